@@ -8,9 +8,11 @@ repositories {
 }
 
 dependencies {
-    implementation("org.jetbrains:annotations:24.0.0")
+    compileOnly("org.jetbrains:annotations:24.0.0")
     testImplementation("junit:junit:4.13.2")
-    implementation("com.google.guava:guava:32.1.1-jre")
+    // The test task runs on the JUnit Platform, which needs the vintage engine to find JUnit 4 tests
+    testRuntimeOnly("org.junit.vintage:junit-vintage-engine:5.10.2")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher:1.10.2")
 }
 
 java {
@@ -19,8 +21,72 @@ java {
     }
 }
 
+sourceSets {
+    create("benchmark") {
+        compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+        runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().runtimeClasspath
+    }
+}
+
+tasks.register<JavaExec>("benchmark") {
+    description = "Runs the benchmarks on synthetic catalogues, arguments are passed with -PbenchmarkArgs."
+    group = "verification"
+    classpath = sourceSets["benchmark"].runtimeClasspath
+    mainClass.set("ArticleBenchmarks")
+    jvmArgs("-Xms4g", "-Xmx4g")
+    args((project.findProperty("benchmarkArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList<String>())
+}
+
+val cdsArchiveName = "${rootProject.name}.jsa"
+val cdsTrainingCommands = listOf(
+    "add book 1 \"Training Book\" Publisher 2000 10.50 100",
+    "add dvd 2 \"Training DVD\" Studio 2010 20 90 12",
+    "add book 3 \"Old Book\" Publisher 1990 5 50",
+    "count", "count book", "count dvd", "meanprice", "oldest", "stats",
+    "list", "list 1", "list --sort=price --limit 2", "top 2 --by year",
+    "find publisher=Publisher year=1990..", "search training",
+    "reprice --publisher Publisher --percent 10", "changes --since 1", "delete 3", "delete 1 2", "bogus"
+)
+
 application {
     mainClass.set("ArticleCLI")
+    // The start scripts replace the placeholder with the installation directory
+    applicationDefaultJvmArgs = listOf("-XX:SharedArchiveFile=__APP_HOME__/lib/$cdsArchiveName", "-Xlog:cds=off,cds+dynamic=off")
+}
+
+tasks.startScripts {
+    doLast {
+        unixScript.writeText(unixScript.readText().replace("__APP_HOME__", "'\"\$APP_HOME\"'"))
+        windowsScript.writeText(windowsScript.readText().replace("__APP_HOME__", "%APP_HOME%"))
+    }
+}
+
+tasks.installDist {
+    // Keep the archive of the previous training run, the JVM ignores it if the jar changed in the meantime
+    preserve {
+        include("lib/$cdsArchiveName")
+    }
+}
+
+tasks.register<JavaExec>("cdsArchive") {
+    description = "Installs the application and creates the class data sharing archive its start scripts use from a training run."
+    group = "distribution"
+    dependsOn(tasks.installDist)
+
+    // The archive only matches the exact jar path the start scripts put on the class path
+    val libDir = tasks.installDist.map { it.destinationDir.resolve("lib") }
+    val trainingDir = layout.buildDirectory.dir("tmp/cdsArchive")
+    classpath(libDir.map { it.resolve(tasks.jar.get().archiveFileName.get()) })
+    mainClass.set("ArticleCLI")
+    outputs.file(libDir.map { it.resolve(cdsArchiveName) })
+
+    doFirst {
+        delete(trainingDir)
+        mkdir(trainingDir)
+        jvmArgs("-XX:ArchiveClassesAtExit=${libDir.get().resolve(cdsArchiveName)}")
+        args(trainingDir.get().file("training.ser").asFile.path, "shell")
+        standardInput = cdsTrainingCommands.joinToString("\n", postfix = "\n").byteInputStream()
+    }
 }
 
 tasks.jar {
@@ -0,0 +1,311 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * ArticleBenchmarks measures the hot paths of the article management on synthetic catalogues.
+ * <p>
+ * The storage benchmarks load, store, look up and add articles with every data access object, so new storage engines
+ * can be compared with the serialized baseline. The concurrency benchmarks measure how the lookups and mutations of
+ * ConcurrentArticleDAO scale with the amount of threads, where the time per operation should drop in proportion to the
+ * threads for lookups. The remaining benchmarks cover pricing, the aggregates of ArticleManagement and rendering the
+ * articles as the {@code list} command does.
+ * <p>
+ * Usage: {@code ArticleBenchmarks [filter] [-size N[,N...]] [-wi N] [-i N] [-r SECONDS]}, where the filter is a regular
+ * expression a benchmark's name has to contain.
+ */
+final class ArticleBenchmarks {
+
+    private static final long SEED = 11908284L;
+    private static final int LOOKUP_BATCH_SIZE = 1024;
+    private static final int PAGE_SIZE = 20;
+    private static final int CONCURRENT_BATCH_SIZE = 1 << 16;
+    private static final int[] DEFAULT_SIZES = {1_000, 100_000, 1_000_000};
+    private static final Map<String, Function<String, ArticleDAO>> STORAGE_ENGINES = new LinkedHashMap<>();
+
+    static {
+        // The serialized data access object is the baseline every other storage engine is compared with
+        STORAGE_ENGINES.put("serialized", SerializedArticleDAO::new);
+        STORAGE_ENGINES.put("binary", BinaryArticleDAO::new);
+        STORAGE_ENGINES.put("journaled", JournaledArticleDAO::new);
+        STORAGE_ENGINES.put("mapped", MappedArticleDAO::new);
+        STORAGE_ENGINES.put("compressed", CompressedArticleDAO::new);
+    }
+
+    private ArticleBenchmarks() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String filter = "";
+        int[] sizes = DEFAULT_SIZES;
+        int warmupIterations = 2;
+        int measurementIterations = 3;
+        long iterationSeconds = 1;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-size" -> sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                case "-wi" -> warmupIterations = Integer.parseInt(args[++i]);
+                case "-i" -> measurementIterations = Integer.parseInt(args[++i]);
+                case "-r" -> iterationSeconds = Long.parseLong(args[++i]);
+                default -> filter = args[i];
+            }
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner(Pattern.compile(filter), warmupIterations, measurementIterations, iterationSeconds * 1_000_000_000L, System.out);
+        Path directory = Files.createTempDirectory("article-benchmarks");
+
+        runner.printHeader();
+
+        try {
+            for (int size : sizes) {
+                List<Article> catalogue = CatalogueGenerator.generate(size, SEED);
+
+                for (Map.Entry<String, Function<String, ArticleDAO>> storageEngine : STORAGE_ENGINES.entrySet()) {
+                    runStorageBenchmarks(runner, storageEngine.getKey(), storageEngine.getValue(), directory, catalogue);
+                }
+
+                runConcurrencyBenchmarks(runner, catalogue);
+                runPricingBenchmarks(runner, catalogue);
+                runManagementBenchmarks(runner, directory, catalogue);
+                runRenderingBenchmarks(runner, catalogue);
+            }
+        } finally {
+            deleteFiles(directory);
+            Files.delete(directory);
+        }
+    }
+
+    private static void runStorageBenchmarks(BenchmarkRunner runner, String name, Function<String, ArticleDAO> storageEngine, Path directory, List<Article> catalogue) {
+        int size = catalogue.size();
+        String filename = directory.resolve("catalogue-" + name).toString();
+
+        // Storing always starts from an empty file, which is left behind for the other benchmarks
+        runner.run("store." + name, size, () -> {
+            deleteFiles(directory);
+
+            try (ArticleDAO articleDAO = storageEngine.apply(filename)) {
+                articleDAO.saveAll(catalogue);
+                return articleDAO;
+            }
+        });
+
+        if (!runner.isSelected("load." + name) && !runner.isSelected("getArticle." + name) && !runner.isSelected("saveArticle." + name)) {
+            return;
+        }
+
+        deleteFiles(directory);
+        try (ArticleDAO articleDAO = storageEngine.apply(filename)) {
+            articleDAO.saveAll(catalogue);
+        }
+
+        runner.run("load." + name, size, () -> {
+            try (ArticleDAO articleDAO = storageEngine.apply(filename)) {
+                return articleDAO.getStatistics();
+            }
+        });
+
+        try (ArticleDAO articleDAO = storageEngine.apply(filename)) {
+            int[] ids = new Random(SEED).ints(LOOKUP_BATCH_SIZE, 1, size + 1).toArray();
+
+            runner.run("getArticle." + name, size, LOOKUP_BATCH_SIZE, () -> {
+                Article article = null;
+
+                for (int id : ids) {
+                    article = articleDAO.getArticle(id);
+                }
+
+                return article;
+            });
+
+            CatalogueGenerator generator = new CatalogueGenerator(SEED);
+            int[] nextId = {size + 1};
+
+            runner.run("saveArticle." + name, size, () -> {
+                Article article = generator.newArticle(nextId[0]++);
+
+                articleDAO.saveArticle(article);
+                return article;
+            });
+        }
+
+        deleteFiles(directory);
+    }
+
+    private static void runConcurrencyBenchmarks(BenchmarkRunner runner, List<Article> catalogue) {
+        if (!runner.isSelected("concurrent.")) return;
+
+        int size = catalogue.size();
+        int processors = Runtime.getRuntime().availableProcessors();
+        ConcurrentArticleDAO articleDAO = new ConcurrentArticleDAO(catalogue);
+        ExecutorService executor = Executors.newFixedThreadPool(processors);
+
+        // Draw the identifiers up front, so the lookups are measured on their own
+        int[][] threadIds = new int[processors][];
+        for (int thread = 0; thread < processors; thread++) {
+            threadIds[thread] = new Random(SEED + thread).ints(CONCURRENT_BATCH_SIZE, 1, size + 1).toArray();
+        }
+
+        // Double the threads up to the amount of processors
+        SortedSet<Integer> threadCounts = new TreeSet<>(List.of(processors));
+        for (int threads = 1; threads < processors; threads *= 2) {
+            threadCounts.add(threads);
+        }
+
+        try {
+            for (int threadCount : threadCounts) {
+                runner.run("concurrent.getArticle.threads" + threadCount, size, threadCount * CONCURRENT_BATCH_SIZE, () -> runThreads(executor, threadCount, thread -> {
+                    Article article = null;
+
+                    for (int id : threadIds[thread]) {
+                        article = articleDAO.getArticle(id);
+                    }
+
+                    return article;
+                }));
+
+                // Every thread adds and deletes its own range of new identifiers, so the catalogue keeps its size
+                runner.run("concurrent.saveDelete.threads" + threadCount, size, threadCount * LOOKUP_BATCH_SIZE * 2, () -> runThreads(executor, threadCount, thread -> {
+                    CatalogueGenerator generator = new CatalogueGenerator(SEED + thread);
+                    int firstId = size + 1 + thread * LOOKUP_BATCH_SIZE;
+
+                    for (int id = firstId; id < firstId + LOOKUP_BATCH_SIZE; id++) {
+                        articleDAO.saveArticle(generator.newArticle(id));
+                    }
+                    for (int id = firstId; id < firstId + LOOKUP_BATCH_SIZE; id++) {
+                        articleDAO.deleteArticle(id);
+                    }
+
+                    return generator;
+                }));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Object runThreads(ExecutorService executor, int threadCount, Function<Integer, Object> task) {
+        List<Callable<Object>> tasks = new ArrayList<>(threadCount);
+
+        for (int thread = 0; thread < threadCount; thread++) {
+            int threadIndex = thread;
+            tasks.add(() -> task.apply(threadIndex));
+        }
+
+        try {
+            List<Object> results = new ArrayList<>(threadCount);
+
+            for (Future<Object> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void runPricingBenchmarks(BenchmarkRunner runner, List<Article> catalogue) {
+        int size = catalogue.size();
+
+        runner.run("Article.getPrice", size, size, () -> {
+            Object price = null;
+
+            for (Article article : catalogue) {
+                price = article.getPrice();
+            }
+
+            return price;
+        });
+
+        runner.run("ArticlePricing.sumPrices", size, size, () -> new ArticlePricing().sumPrices(catalogue));
+    }
+
+    private static void runManagementBenchmarks(BenchmarkRunner runner, Path directory, List<Article> catalogue) {
+        if (!runner.isSelected("ArticleManagement.")) return;
+
+        int size = catalogue.size();
+        String filename = directory.resolve("catalogue-management").toString();
+
+        try (ArticleDAO articleDAO = new SerializedArticleDAO(filename)) {
+            articleDAO.saveAll(catalogue);
+
+            ArticleManagement articleMgmt = new ArticleManagement(articleDAO);
+
+            runner.run("ArticleManagement.getArticlesTotalAmount", size, articleMgmt::getArticlesTotalAmount);
+            runner.run("ArticleManagement.getArticlesPriceMean", size, articleMgmt::getArticlesPriceMean);
+            runner.run("ArticleManagement.getArticlePrices", size, articleMgmt::getArticlePrices);
+            runner.run("ArticleManagement.getOldestArticleIds", size, articleMgmt::getOldestArticleIds);
+            runner.run("ArticleManagement.getAggregates", size, articleMgmt::getAggregates);
+            runner.run("ArticleManagement.getSortedArticles", size, () -> articleMgmt.getSortedArticles(ArticleOrder.PRICE, false, 0, PAGE_SIZE));
+        } finally {
+            deleteFiles(directory);
+        }
+
+        // The same aggregates, scanned from the columns instead of the article objects
+        ArticleManagement columnarMgmt = new ArticleManagement(new ColumnarArticleDAO(catalogue));
+
+        runner.run("ArticleManagement.columnar.getArticlesPriceMean", size, columnarMgmt::getArticlesPriceMean);
+        runner.run("ArticleManagement.columnar.getOldestArticleIds", size, columnarMgmt::getOldestArticleIds);
+        runner.run("ArticleManagement.columnar.getAggregates", size, columnarMgmt::getAggregates);
+        runner.run("ArticleManagement.columnar.getSortedArticles", size, () -> columnarMgmt.getSortedArticles(ArticleOrder.PRICE, false, 0, PAGE_SIZE));
+
+        // The same aggregates, scanned from the off-heap records
+        ArticleManagement offHeapMgmt = new ArticleManagement(new OffHeapArticleDAO(catalogue));
+
+        runner.run("ArticleManagement.offheap.getArticlesPriceMean", size, offHeapMgmt::getArticlesPriceMean);
+        runner.run("ArticleManagement.offheap.getOldestArticleIds", size, offHeapMgmt::getOldestArticleIds);
+        runner.run("ArticleManagement.offheap.getAggregates", size, offHeapMgmt::getAggregates);
+    }
+
+    private static void runRenderingBenchmarks(BenchmarkRunner runner, List<Article> catalogue) {
+        int size = catalogue.size();
+
+        runner.run("Article.toString", size, size, () -> {
+            Object description = null;
+
+            for (Article article : catalogue) {
+                description = article.toString();
+            }
+
+            return description;
+        });
+
+        // Render the catalogue the way the list command does, but into a writer that discards the output
+        runner.run("ArticleRenderer.list", size, size, () -> {
+            ArticleRenderer renderer = new ArticleRenderer(Writer.nullWriter());
+
+            for (Article article : catalogue) {
+                renderer.write(article);
+            }
+
+            renderer.flush();
+            return renderer;
+        });
+    }
+
+    private static void deleteFiles(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * BenchmarkRunner measures the average time of operations in the style of JMH's average time mode.
+ * <p>
+ * Every benchmark runs a number of warmup iterations, whose results are dropped, followed by the measurement
+ * iterations. Each iteration invokes the operation until the iteration time has passed, but at least once, so expensive
+ * operations like loading a large catalogue are measured as single shots. The results of the operations are consumed,
+ * so the JIT compiler cannot eliminate the measured code.
+ */
+final class BenchmarkRunner {
+
+    private static final String HEADER_FMT = "%-48s %8s %16s   %12s%n";
+    private static final String RESULT_FMT = "%-48s %8d %16.1f \u00b1 %12.1f ns/op%n";
+    private final Pattern filter;
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final PrintStream out;
+    private volatile Object blackhole;
+
+    /**
+     * Creates an instance of BenchmarkRunner.
+     *
+     * @param filter                pattern a benchmark's name has to contain to be run
+     * @param warmupIterations      amount of iterations before measuring
+     * @param measurementIterations amount of measured iterations
+     * @param iterationNanos        minimum duration of an iteration in nanoseconds
+     * @param out                   output for the results
+     */
+    BenchmarkRunner(Pattern filter, int warmupIterations, int measurementIterations, long iterationNanos, PrintStream out) {
+        this.filter = filter;
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationNanos;
+        this.out = out;
+    }
+
+    /**
+     * Prints the header of the result table.
+     */
+    void printHeader() {
+        out.printf(Locale.ROOT, HEADER_FMT, "Benchmark", "Size", "Score", "Error");
+    }
+
+    /**
+     * Returns whether the benchmark with the given name is selected by the filter.
+     *
+     * @param name benchmark name
+     * @return whether the benchmark is run
+     */
+    boolean isSelected(String name) {
+        return filter.matcher(name).find();
+    }
+
+    /**
+     * Runs the benchmark, if it is selected by the filter, and prints its average time per operation.
+     *
+     * @param name      benchmark name
+     * @param size      catalogue size the benchmark runs on
+     * @param operation measured operation
+     */
+    void run(String name, int size, Operation operation) {
+        run(name, size, 1, operation);
+    }
+
+    /**
+     * Runs the benchmark, if it is selected by the filter, and prints its average time per operation.
+     *
+     * @param name                     benchmark name
+     * @param size                     catalogue size the benchmark runs on
+     * @param operationsPerInvocation  amount of operations a single invocation performs
+     * @param operation                measured operation
+     */
+    void run(String name, int size, int operationsPerInvocation, Operation operation) {
+        if (!isSelected(name)) return;
+
+        for (int i = 0; i < warmupIterations; i++) {
+            measureIteration(operation, operationsPerInvocation);
+        }
+
+        double[] results = new double[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++) {
+            results[i] = measureIteration(operation, operationsPerInvocation);
+        }
+
+        out.printf(Locale.ROOT, RESULT_FMT, name, size, mean(results), standardDeviation(results));
+    }
+
+    private double measureIteration(Operation operation, int operationsPerInvocation) {
+        long invocations = 0;
+        long startTime = System.nanoTime();
+        long elapsedNanos;
+
+        do {
+            blackhole = operation.run();
+            invocations++;
+            elapsedNanos = System.nanoTime() - startTime;
+        } while (elapsedNanos < iterationNanos);
+
+        return (double) elapsedNanos / (invocations * operationsPerInvocation);
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+
+        for (double value : values) {
+            sum += value;
+        }
+
+        return sum / values.length;
+    }
+
+    private static double standardDeviation(double[] values) {
+        if (values.length < 2) return 0;
+
+        double mean = mean(values);
+        double sum = 0;
+
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+
+        return Math.sqrt(sum / (values.length - 1));
+    }
+
+    /**
+     * Operation is the code measured by a benchmark.
+     */
+    @FunctionalInterface
+    interface Operation {
+
+        /**
+         * Runs the operation once.
+         *
+         * @return result of the operation, which is consumed to keep it from being optimized away
+         */
+        Object run();
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.math.BigDecimal;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * CatalogueGenerator creates synthetic catalogues of articles for the benchmarks.
+ * <p>
+ * The catalogues are reproducible for the same seed and roughly resemble a real catalogue: about as many books as DVDs,
+ * a limited set of publishers shared among many articles and release years spread over the last decades.
+ */
+final class CatalogueGenerator {
+
+    private static final int PUBLISHER_COUNT = 200;
+    private static final int RELEASE_YEAR_SPAN = 80;
+    private static final int[] MIN_AGES = {0, 6, 12, 16, 18};
+    private static final String[] TITLE_WORDS = {"The", "Art", "of", "Silent", "River", "Night", "Java", "Garden",
+            "Lost", "City", "Winter", "Code", "Dream", "Empire", "Shadow", "Light", "Ocean", "Journey", "Stone", "Song"};
+    private final Random random;
+    private final int currentYear = Year.now().getValue();
+
+    /**
+     * Creates an instance of CatalogueGenerator.
+     *
+     * @param seed seed for the random values of the generated articles
+     */
+    CatalogueGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Generates a catalogue with identifiers from 1 to count.
+     *
+     * @param count amount of articles
+     * @param seed  seed for the random values of the generated articles
+     * @return generated articles
+     */
+    static List<Article> generate(int count, long seed) {
+        CatalogueGenerator generator = new CatalogueGenerator(seed);
+        List<Article> articles = new ArrayList<>(count);
+
+        for (int id = 1; id <= count; id++) {
+            articles.add(generator.newArticle(id));
+        }
+
+        return articles;
+    }
+
+    /**
+     * Generates a single article with the given identifier.
+     *
+     * @param id article identifier
+     * @return generated article
+     */
+    Article newArticle(int id) {
+        String title = newTitle();
+        int releaseYear = currentYear - random.nextInt(RELEASE_YEAR_SPAN);
+        BigDecimal basePrice = BigDecimal.valueOf(99 + random.nextInt(9900), 2);
+
+        if (random.nextBoolean()) {
+            return new Book(id, title, "Publishing House " + random.nextInt(PUBLISHER_COUNT), releaseYear, basePrice, 50 + random.nextInt(1500));
+        } else {
+            return new DVD(id, title, "Studio " + random.nextInt(PUBLISHER_COUNT), releaseYear, basePrice, 60 + random.nextInt(180), MIN_AGES[random.nextInt(MIN_AGES.length)]);
+        }
+    }
+
+    private String newTitle() {
+        StringBuilder title = new StringBuilder();
+        int wordCount = 1 + random.nextInt(4);
+
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) title.append(' ');
+            title.append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+        }
+
+        return title.toString();
+    }
+}
@@ -7,10 +7,7 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.text.MessageFormat;
-import java.time.Year;
 import java.util.List;
-import java.util.StringJoiner;
 
 /**
  * Article is the entity we are using for specifying items in the article catalogue.
@@ -22,21 +19,24 @@ public abstract sealed class Article implements Serializable permits Book, DVD {
 
     @Serial
     private static final long serialVersionUID = 1L;
-    private static final int PRICE_DECIMAL_COUNT = 2;
+    static final int PRICE_DECIMAL_COUNT = 2;
     private static final RoundingMode PRICE_DECIMAL_ROUNDING = RoundingMode.HALF_UP;
     private static final String ERR_MSG_INVALID_RELEASE_YEAR = "Error: Invalid release year.";
+    static final long PRICE_NOT_IN_CENTS = Long.MIN_VALUE;
     private final int id;
     private final String title;
     private final String publisher;
     private final int releaseYear;
     private final BigDecimal basePrice;
+    private transient long priceCents;
+    private transient volatile int priceCentsYear;
 
     Article(int id, String title, String publisher, int releaseYear, BigDecimal basePrice) {
         this.id = id;
         this.title = title;
 
         // If the release year is in the future, throw an exception
-        if (releaseYear > Year.now().getValue()) throw new IllegalArgumentException(ERR_MSG_INVALID_RELEASE_YEAR);
+        if (releaseYear > ArticlePricing.getCurrentYear()) throw new IllegalArgumentException(ERR_MSG_INVALID_RELEASE_YEAR);
         this.releaseYear = releaseYear;
 
         this.publisher = publisher;
@@ -159,7 +159,7 @@ public abstract sealed class Article implements Serializable permits Book, DVD {
      * @return age of the article
      */
     public int getAge() {
-        return Year.now().getValue() - releaseYear;
+        return ArticlePricing.getCurrentYear() - releaseYear;
     }
 
     /**
@@ -173,6 +173,14 @@ public abstract sealed class Article implements Serializable permits Book, DVD {
         return basePrice;
     }
 
+    /**
+     * Returns a copy of the article with another base price, which replaces the article when it is updated.
+     *
+     * @param basePrice new base price
+     * @return copy of the article with the new base price
+     */
+    abstract Article withBasePrice(BigDecimal basePrice);
+
     /**
      * Returns the article's discount percentage.
      * <p>
@@ -180,23 +188,82 @@ public abstract sealed class Article implements Serializable permits Book, DVD {
      *
      * @return discount percentage for the article
      */
-    protected abstract int getDiscountPercentage();
+    protected int getDiscountPercentage() {
+        return getDiscountPercentageInYear(ArticlePricing.getCurrentYear());
+    }
+
+    /**
+     * Returns the article's discount percentage in the given reference year.
+     *
+     * @param referenceYear year in which the discount applies
+     * @return discount percentage for the article in the reference year
+     */
+    abstract int getDiscountPercentageInYear(int referenceYear);
 
     /**
-     * Returns the article's discount.
+     * Returns the article's discount in the given reference year.
      * <p>
      * This is the price value that is taken off the base price.
      *
+     * @param referenceYear year in which the discount applies
      * @return discount for the article
      */
-    private BigDecimal getDiscount() {
+    private BigDecimal getDiscount(int referenceYear) {
         // Convert the integer discount percentage to a decimal
-        BigDecimal percentage = BigDecimal.valueOf(getDiscountPercentage()).divide(BigDecimal.valueOf(100), PRICE_DECIMAL_COUNT, PRICE_DECIMAL_ROUNDING);
+        BigDecimal percentage = BigDecimal.valueOf(getDiscountPercentageInYear(referenceYear)).divide(BigDecimal.valueOf(100), PRICE_DECIMAL_COUNT, PRICE_DECIMAL_ROUNDING);
 
         // Return the discount as the price that is cut off the base price
         return basePrice.multiply(percentage).setScale(PRICE_DECIMAL_COUNT, PRICE_DECIMAL_ROUNDING);
     }
 
+    /**
+     * Returns the price in cents of an article with the given base price in cents and discount percentage.
+     * <p>
+     * This calculates the same price as {@link #getPrice()} for base prices with two decimal places, but without
+     * allocating any BigDecimal.
+     *
+     * @param basePriceCents     base price of the article in cents
+     * @param discountPercentage discount percentage for the article
+     * @return price of the article in cents
+     * @throws ArithmeticException if the price does not fit into a long
+     */
+    static long calculatePriceCents(long basePriceCents, int discountPercentage) {
+        // Round the discount half up to whole cents, as it is done for the BigDecimal discount
+        long discountCents = (Math.multiplyExact(basePriceCents, discountPercentage) + 50) / 100;
+
+        return basePriceCents - discountCents;
+    }
+
+    /**
+     * Returns the article's price in cents in the given reference year.
+     * <p>
+     * The price is cached, so it is only calculated again when it is requested for another reference year. If the base
+     * price has more than two decimal places or does not fit into a long, {@link #PRICE_NOT_IN_CENTS} is returned and
+     * the price has to be calculated with {@link #getPrice(int)} instead.
+     *
+     * @param referenceYear year in which the discount applies
+     * @return price of the article in cents or PRICE_NOT_IN_CENTS
+     */
+    long getPriceCents(int referenceYear) {
+        // Write the year last and read it first, so other threads never see it paired with an older price
+        if (priceCentsYear != referenceYear) {
+            priceCents = calculatePriceCentsOrSentinel(referenceYear);
+            priceCentsYear = referenceYear;
+        }
+
+        return priceCents;
+    }
+
+    private long calculatePriceCentsOrSentinel(int referenceYear) {
+        try {
+            long basePriceCents = basePrice.movePointRight(PRICE_DECIMAL_COUNT).longValueExact();
+
+            return calculatePriceCents(basePriceCents, getDiscountPercentageInYear(referenceYear));
+        } catch (ArithmeticException e) {
+            return PRICE_NOT_IN_CENTS;
+        }
+    }
+
     /**
      * Returns the article's price.
      * <p>
@@ -205,21 +272,25 @@ public abstract sealed class Article implements Serializable permits Book, DVD {
      * @return price of the article
      */
     public BigDecimal getPrice() {
-        return basePrice.subtract(getDiscount()).setScale(PRICE_DECIMAL_COUNT, PRICE_DECIMAL_ROUNDING);
+        return getPrice(ArticlePricing.getCurrentYear());
     }
 
-    @Override
-    public String toString() {
-        StringJoiner joiner = new StringJoiner(System.lineSeparator());
+    /**
+     * Returns the article's price in the given reference year.
+     *
+     * @param referenceYear year in which the discount applies
+     * @return price of the article
+     */
+    BigDecimal getPrice(int referenceYear) {
+        long cents = getPriceCents(referenceYear);
 
-        joiner.add(MessageFormat.format("Type:       {0}", getClass().getSimpleName()));
-        joiner.add(MessageFormat.format("Id:         {0,number,#}", Integer.valueOf(id)));
-        joiner.add(MessageFormat.format("Title:      {0}", title));
-        joiner.add(MessageFormat.format("Year:       {0,number,#}", Integer.valueOf(releaseYear)));
-        joiner.add(MessageFormat.format("Publisher:  {0}", publisher));
-        joiner.add(MessageFormat.format("Base price: {0}", basePrice));
-        joiner.add(MessageFormat.format("Price:      {0}", getPrice()));
+        if (cents != PRICE_NOT_IN_CENTS) return BigDecimal.valueOf(cents, PRICE_DECIMAL_COUNT);
 
-        return MessageFormat.format("{0}{1}", joiner, System.lineSeparator());
+        return basePrice.subtract(getDiscount(referenceYear)).setScale(PRICE_DECIMAL_COUNT, PRICE_DECIMAL_ROUNDING);
+    }
+
+    @Override
+    public String toString() {
+        return ArticleRenderer.toString(this);
     }
 }
@@ -0,0 +1,309 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.Serial;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ArticleAggregator calculates all aggregates of the {@code stats} command in a single parallel pass over the articles.
+ * <p>
+ * The articles are split into ranges of rows, which are aggregated by the tasks of a fork-join pool and then combined.
+ * Every range keeps its aggregates in primitive fields, such as the prices in cents as longs and the identifiers of the
+ * oldest articles in a growing int array, and only falls back to BigDecimal for prices that are not given in whole
+ * cents or overflow a long.
+ */
+final class ArticleAggregator {
+
+    private static final int RANGE_THRESHOLD = 1 << 13;
+
+    private ArticleAggregator() {
+    }
+
+    /**
+     * Aggregates the articles in parallel.
+     *
+     * @param articles articles to aggregate, which should support fast random access
+     * @param pricing  pricing all prices are calculated with
+     * @return aggregates of the articles
+     */
+    static Result aggregate(List<Article> articles, ArticlePricing pricing) {
+        return aggregate(articles, pricing, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Aggregates the articles in parallel with the tasks of the given pool.
+     *
+     * @param articles articles to aggregate, which should support fast random access
+     * @param pricing  pricing all prices are calculated with
+     * @param pool     pool running the tasks
+     * @return aggregates of the articles
+     */
+    static Result aggregate(List<Article> articles, ArticlePricing pricing, ForkJoinPool pool) {
+        return aggregate(new Rows() {
+            @Override
+            public int size() {
+                return articles.size();
+            }
+
+            @Override
+            public void addTo(Accumulator accumulator, int row, ArticlePricing pricing) {
+                accumulator.add(articles.get(row), pricing);
+            }
+        }, pricing, pool);
+    }
+
+    /**
+     * Aggregates the rows in parallel with the tasks of the given pool.
+     *
+     * @param rows    rows to aggregate
+     * @param pricing pricing all prices are calculated with, so they are calculated for the same reference year
+     * @param pool    pool running the tasks
+     * @return aggregates of the rows
+     */
+    static Result aggregate(Rows rows, ArticlePricing pricing, ForkJoinPool pool) {
+        return pool.invoke(new RangeTask(rows, pricing, 0, rows.size())).toResult();
+    }
+
+    /**
+     * Rows is a source of articles, which can be read by several tasks at once and adds every row to an accumulator
+     * without having to create an Article object for it.
+     */
+    interface Rows {
+
+        int size();
+
+        /**
+         * Adds the article in the given row to the accumulator.
+         *
+         * @param accumulator accumulator to add the article to
+         * @param row         row of the article
+         * @param pricing     pricing of the aggregation
+         */
+        void addTo(Accumulator accumulator, int row, ArticlePricing pricing);
+    }
+
+    /**
+     * Result holds the aggregates of the articles.
+     *
+     * @param bookCount         amount of books
+     * @param dvdCount          amount of DVDs
+     * @param priceSum          sum of the prices
+     * @param minPrice          lowest price, or null if there are no articles
+     * @param maxPrice          highest price, or null if there are no articles
+     * @param oldestReleaseYear oldest release year, or 0 if there are no articles
+     * @param oldestIds         identifiers of the articles released in the oldest release year in the order of the list
+     */
+    record Result(int bookCount, int dvdCount, BigDecimal priceSum, BigDecimal minPrice, BigDecimal maxPrice,
+                  int oldestReleaseYear, int[] oldestIds) {
+
+        int articleCount() {
+            return bookCount + dvdCount;
+        }
+
+        /**
+         * Returns the average mean of the prices, rounded the same way as by ArticleManagement.
+         *
+         * @return mean price
+         * @throws ArithmeticException if there are no articles
+         */
+        BigDecimal meanPrice() {
+            return priceSum.divide(new BigDecimal(articleCount()), RoundingMode.HALF_UP);
+        }
+    }
+
+    /**
+     * RangeTask aggregates a range of the rows, by splitting it in halves until the ranges are small enough.
+     */
+    private static final class RangeTask extends RecursiveTask<Accumulator> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final Rows rows;
+        private final ArticlePricing pricing;
+        private final int from;
+        private final int to;
+
+        private RangeTask(Rows rows, ArticlePricing pricing, int from, int to) {
+            this.rows = rows;
+            this.pricing = pricing;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Accumulator compute() {
+            if (to - from <= RANGE_THRESHOLD) {
+                Accumulator accumulator = new Accumulator();
+
+                for (int i = from; i < to; i++) {
+                    rows.addTo(accumulator, i, pricing);
+                }
+
+                return accumulator;
+            }
+
+            int middle = (from + to) >>> 1;
+            RangeTask left = new RangeTask(rows, pricing, from, middle);
+            RangeTask right = new RangeTask(rows, pricing, middle, to);
+
+            left.fork();
+            Accumulator rightAccumulator = right.compute();
+
+            // Combine in list order, so the oldest identifiers keep the order of the list
+            return left.join().combine(rightAccumulator);
+        }
+    }
+
+    /**
+     * Accumulator holds the aggregates of a range of rows in primitive fields.
+     */
+    static final class Accumulator {
+
+        private int bookCount;
+        private int dvdCount;
+        private long priceSumCents;
+        private long minPriceCents = Long.MAX_VALUE;
+        private long maxPriceCents = Long.MIN_VALUE;
+        private BigDecimal otherPriceSum;
+        private BigDecimal otherMinPrice;
+        private BigDecimal otherMaxPrice;
+        private int oldestReleaseYear = Integer.MAX_VALUE;
+        private int[] oldestIds = new int[8];
+        private int oldestIdCount;
+
+        private void add(Article article, ArticlePricing pricing) {
+            long cents = pricing.getPriceCents(article);
+
+            if (cents != Article.PRICE_NOT_IN_CENTS) {
+                add(article instanceof Book, article.getId(), article.getReleaseYear(), cents);
+            } else {
+                add(article instanceof Book, article.getId(), article.getReleaseYear(), pricing.getPrice(article));
+            }
+        }
+
+        /**
+         * Adds an article, whose price is given in cents.
+         *
+         * @param isBook      whether the article is a book or a DVD
+         * @param id          identifier of the article
+         * @param releaseYear release year of the article
+         * @param priceCents  price of the article in cents
+         */
+        void add(boolean isBook, int id, int releaseYear, long priceCents) {
+            addArticle(isBook, id, releaseYear);
+
+            minPriceCents = Math.min(minPriceCents, priceCents);
+            maxPriceCents = Math.max(maxPriceCents, priceCents);
+
+            try {
+                priceSumCents = Math.addExact(priceSumCents, priceCents);
+            } catch (ArithmeticException e) {
+                addOtherPrice(BigDecimal.valueOf(priceCents, Article.PRICE_DECIMAL_COUNT), false);
+            }
+        }
+
+        /**
+         * Adds an article, whose price cannot be given in cents.
+         *
+         * @param isBook      whether the article is a book or a DVD
+         * @param id          identifier of the article
+         * @param releaseYear release year of the article
+         * @param price       price of the article
+         */
+        void add(boolean isBook, int id, int releaseYear, BigDecimal price) {
+            addArticle(isBook, id, releaseYear);
+            addOtherPrice(price, true);
+        }
+
+        private void addArticle(boolean isBook, int id, int releaseYear) {
+            if (isBook) {
+                bookCount++;
+            } else {
+                dvdCount++;
+            }
+
+            if (releaseYear < oldestReleaseYear) {
+                oldestReleaseYear = releaseYear;
+                oldestIdCount = 0;
+            }
+            if (releaseYear == oldestReleaseYear) {
+                if (oldestIdCount == oldestIds.length) {
+                    oldestIds = Arrays.copyOf(oldestIds, oldestIds.length * 2);
+                }
+                oldestIds[oldestIdCount++] = id;
+            }
+        }
+
+        private void addOtherPrice(BigDecimal price, boolean updatesExtremes) {
+            otherPriceSum = otherPriceSum == null ? price : otherPriceSum.add(price);
+
+            if (updatesExtremes) {
+                otherMinPrice = otherMinPrice == null ? price : otherMinPrice.min(price);
+                otherMaxPrice = otherMaxPrice == null ? price : otherMaxPrice.max(price);
+            }
+        }
+
+        private void addOldestIds(int[] ids, int count) {
+            if (oldestIdCount + count > oldestIds.length) {
+                oldestIds = Arrays.copyOf(oldestIds, Math.max(oldestIdCount + count, oldestIds.length * 2));
+            }
+
+            System.arraycopy(ids, 0, oldestIds, oldestIdCount, count);
+            oldestIdCount += count;
+        }
+
+        /**
+         * Combines the aggregates of the following range into this one.
+         *
+         * @param next accumulator of the following range
+         * @return this accumulator
+         */
+        private Accumulator combine(Accumulator next) {
+            bookCount += next.bookCount;
+            dvdCount += next.dvdCount;
+            minPriceCents = Math.min(minPriceCents, next.minPriceCents);
+            maxPriceCents = Math.max(maxPriceCents, next.maxPriceCents);
+
+            try {
+                priceSumCents = Math.addExact(priceSumCents, next.priceSumCents);
+            } catch (ArithmeticException e) {
+                addOtherPrice(BigDecimal.valueOf(next.priceSumCents, Article.PRICE_DECIMAL_COUNT), false);
+            }
+            if (next.otherPriceSum != null) addOtherPrice(next.otherPriceSum, false);
+            if (next.otherMinPrice != null) otherMinPrice = otherMinPrice == null ? next.otherMinPrice : otherMinPrice.min(next.otherMinPrice);
+            if (next.otherMaxPrice != null) otherMaxPrice = otherMaxPrice == null ? next.otherMaxPrice : otherMaxPrice.max(next.otherMaxPrice);
+
+            if (next.oldestReleaseYear < oldestReleaseYear) {
+                oldestReleaseYear = next.oldestReleaseYear;
+                oldestIdCount = 0;
+            }
+            if (next.oldestReleaseYear == oldestReleaseYear) {
+                addOldestIds(next.oldestIds, next.oldestIdCount);
+            }
+
+            return this;
+        }
+
+        private Result toResult() {
+            BigDecimal priceSum = BigDecimal.valueOf(priceSumCents, Article.PRICE_DECIMAL_COUNT);
+            BigDecimal minPrice = minPriceCents == Long.MAX_VALUE ? null : BigDecimal.valueOf(minPriceCents, Article.PRICE_DECIMAL_COUNT);
+            BigDecimal maxPrice = maxPriceCents == Long.MIN_VALUE ? null : BigDecimal.valueOf(maxPriceCents, Article.PRICE_DECIMAL_COUNT);
+
+            if (otherPriceSum != null) priceSum = priceSum.add(otherPriceSum);
+            if (otherMinPrice != null) minPrice = minPrice == null ? otherMinPrice : minPrice.min(otherMinPrice);
+            if (otherMaxPrice != null) maxPrice = maxPrice == null ? otherMaxPrice : maxPrice.max(otherMaxPrice);
+
+            boolean isEmpty = bookCount + dvdCount == 0;
+
+            return new Result(bookCount, dvdCount, priceSum, minPrice, maxPrice, isEmpty ? 0 : oldestReleaseYear,
+                    Arrays.copyOf(oldestIds, oldestIdCount));
+        }
+    }
+}
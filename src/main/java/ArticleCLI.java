@@ -3,19 +3,44 @@
  * @id 11908284
  */
 
-import java.io.File;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.text.MessageFormat;
 import java.util.*;
-import java.util.stream.Collectors;
 
 final class ArticleCLI {
 
     static final String ERR_MSG_INVALID_PARAMETER = "Error: Invalid parameter.";
     static final String ERR_MSG_FMT_ARTICLE_NOT_FOUND = "Error: Article not found. (id={0,number,#})";
+    static final String ERR_MSG_FMT_ARTICLE_GIVEN_TWICE = "Error: Article given more than once. (id={0,number,#})";
     private static final String ERR_MSG_NO_ARTICLES_FOUND = "Error: No articles found.";
     private static final String INFO_MSG_FMT_ARTICLE_ID = "Id: {0,number,#}";
     private static final String INFO_MSG_FMT_ARTICLE_DELETED = "Info: Article {0} deleted.";
+    private static final String INFO_MSG_FMT_ARTICLES_DELETED = "Info: {0,number,#} articles deleted.";
+    private static final String INFO_MSG_FMT_ARTICLES_REPRICED = "Info: {0,number,#} articles repriced.";
     private static final String INFO_MSG_FMT_ARTICLE_ADDED = "Info: Article {0,number,#} added.";
+    private static final String INFO_MSG_FMT_ARTICLES_IMPORTED = "Info: {0,number,#} articles imported in {1,number,#} ms ({2,number,#} articles/s).";
+    private static final String ERR_MSG_FMT_ROW_REJECTED = "Error: Row {0,number,#} rejected. ({1})";
+    private static final String ERR_MSG_TARGET_NOT_EMPTY = "Error: Target already contains articles.";
+    private static final String INFO_MSG_FMT_ARTICLES_CONVERTED = "Info: {0,number,#} articles converted to {1}.";
+    private static final String INFO_MSG_FMT_JOURNAL_RECOVERED = "Info: Journal recovered, {0,number,#} damaged bytes cut off after {1,number,#} records.";
+    private static final String METRICS_FLAG = "--metrics";
+    private static final String METRICS_JSON_FLAG = "--metrics=json";
+    private static final String OPTION_PREFIX = "--";
+    private static final String SORT_OPTION = "--sort=";
+    private static final String LIMIT_OPTION = "--limit";
+    private static final String OFFSET_OPTION = "--offset";
+    private static final String BY_OPTION = "--by";
+    private static final String PUBLISHER_OPTION = "--publisher";
+    private static final String PERCENT_OPTION = "--percent";
+    private static final String ALL_OPTION = "--all";
+    private static final String SINCE_OPTION = "--since";
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final int CONVERT_CHUNK_SIZE = 1 << 16;
+    private static String metricsFlag;
     private static String file;
     private static String commandName;
     private static List<String> commandArguments = Collections.emptyList();
@@ -27,23 +52,98 @@ final class ArticleCLI {
         try {
             initializeArticleCLI(args);
 
-            SerializedArticleDAO articleDAO = new SerializedArticleDAO(file);
-            ArticleManagement articleMgmt = new ArticleManagement(articleDAO);
-
-            switch (commandName) {
-                case "add" -> addCommand(articleMgmt, commandArguments);
-                case "list" -> listCommand(articleMgmt, commandArguments);
-                case "delete" -> deleteCommand(articleMgmt, commandArguments);
-                case "count" -> countCommand(articleMgmt, commandArguments);
-                case "meanprice" -> meanpriceCommand(articleMgmt);
-                case "oldest" -> oldestCommand(articleMgmt);
-                default -> throw new IllegalArgumentException(ERR_MSG_INVALID_PARAMETER);
+            ArticleMetrics metrics = ArticleMetrics.getInstance();
+
+            // Linking a lambda takes longer than many commands do, so the timed lambdas are only linked while recording
+            ArticleDAO articleDAO = metrics.isEnabled() ? metrics.time("dao.open", () -> ArticleDAOFactory.open(file)) : ArticleDAOFactory.open(file);
+
+            // Every change is logged next to the catalogue, so other systems can follow the changes by their sequence numbers
+            try (ArticleDAO loggedDAO = isChangeLogged(commandName) ? new ChangeFeedArticleDAO(articleDAO, ArticleDAOFactory.openChangeLog(file)) : articleDAO) {
+                ArticleManagement articleMgmt = new ArticleManagement(metrics.isEnabled() ? new MeteredArticleDAO(loggedDAO, metrics) : loggedDAO);
+
+                // Tell about a journal that had to be cut off, as the changes in the cut off part are lost
+                if (articleDAO instanceof JournaledArticleDAO journaledDAO) {
+                    JournaledArticleDAO.RecoveryReport report = journaledDAO.getRecoveryReport();
+
+                    if (report.truncatedBytes() > 0) {
+                        System.out.println(MessageFormat.format(INFO_MSG_FMT_JOURNAL_RECOVERED, Long.valueOf(report.truncatedBytes()),
+                                Integer.valueOf(report.replayedAddCount() + report.replayedDeleteCount())));
+                    }
+                }
+
+                // The shell and server modes keep the catalogue loaded and execute any amount of commands
+                switch (commandName) {
+                    case "shell" -> new ArticleShell(articleMgmt).run(System.in, System.out);
+                    case "serve" -> new ArticleShell(articleMgmt).serve(Path.of(Article.parseStringFromArgs(commandArguments, 0)));
+                    default -> executeCommand(articleMgmt, commandName, commandArguments, System.out);
+                }
+            }
+
+            // Print the metrics after closing the catalogue, so they include its final write, and keep them apart from the output
+            if (METRICS_JSON_FLAG.equals(metricsFlag)) {
+                System.err.println(metrics.toJson());
+            } else if (METRICS_FLAG.equals(metricsFlag)) {
+                System.err.print(metrics.toSummary());
             }
         } catch (Throwable th) {
             System.out.println(th.getMessage());
         }
     }
 
+    /**
+     * Returns whether the command may change the articles or reads their change log, so it needs the change feed. All
+     * other commands neither load it nor create the change log.
+     *
+     * @param name command name
+     * @return whether the changes of the command are logged
+     */
+    private static boolean isChangeLogged(String name) {
+        return switch (name) {
+            case "add", "delete", "import", "reprice", "changes", "shell", "serve" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Executes a single command on the articles and prints its output.
+     *
+     * @param articleMgmt article management to execute the command on
+     * @param name        command name
+     * @param arguments   command arguments
+     * @param out         output for the command
+     * @throws RuntimeException if the command is invalid or could not be executed
+     */
+    static void executeCommand(ArticleManagement articleMgmt, String name, List<String> arguments, PrintStream out) {
+        ArticleMetrics metrics = ArticleMetrics.getInstance();
+
+        if (metrics.isEnabled()) {
+            metrics.time("command." + name, () -> dispatchCommand(articleMgmt, name, arguments, out));
+        } else {
+            dispatchCommand(articleMgmt, name, arguments, out);
+        }
+    }
+
+    private static void dispatchCommand(ArticleManagement articleMgmt, String name, List<String> arguments, PrintStream out) {
+        switch (name) {
+            case "add" -> addCommand(articleMgmt, arguments, out);
+            case "list" -> listCommand(articleMgmt, arguments, out);
+            case "delete" -> deleteCommand(articleMgmt, arguments, out);
+            case "count" -> countCommand(articleMgmt, arguments, out);
+            case "meanprice" -> meanpriceCommand(articleMgmt, out);
+            case "oldest" -> oldestCommand(articleMgmt, out);
+            case "import" -> importCommand(articleMgmt, arguments, out);
+            case "top" -> topCommand(articleMgmt, arguments, out);
+            case "find" -> findCommand(articleMgmt, arguments, out);
+            case "search" -> searchCommand(articleMgmt, arguments, out);
+            case "stats" -> statsCommand(articleMgmt, out);
+            case "convert" -> convertCommand(articleMgmt, arguments, out);
+            case "reprice" -> repriceCommand(articleMgmt, arguments, out);
+            case "changes" -> changesCommand(articleMgmt, arguments, out);
+            case "metrics" -> out.println(ArticleMetrics.getInstance().toJson());
+            default -> throw new IllegalArgumentException(ERR_MSG_INVALID_PARAMETER);
+        }
+    }
+
     /**
      * Initializes ArticleCLI's class members.
      *
@@ -52,30 +152,43 @@ final class ArticleCLI {
      */
     private static void initializeArticleCLI(String[] args) {
         try {
-            file = String.valueOf(args[0]);
-            commandName = String.valueOf(args[1]);
+            int offset = 0;
+
+            // A leading metrics flag enables recording and selects how the metrics are printed
+            if (args.length > 0 && (args[0].equals(METRICS_FLAG) || args[0].equals(METRICS_JSON_FLAG))) {
+                metricsFlag = args[0];
+                offset = 1;
+
+                ArticleMetrics.getInstance().enable();
+            }
+
+            file = String.valueOf(args[offset]);
+            commandName = String.valueOf(args[offset + 1]);
 
             // Store arguments after the command, if there are any
-            if (args.length > 2) {
-                commandArguments = Arrays.asList(args).subList(2, args.length);
+            if (args.length > offset + 2) {
+                commandArguments = Arrays.asList(args).subList(offset + 2, args.length);
             }
         } catch (Throwable th) {
             throw new IllegalArgumentException(ERR_MSG_INVALID_PARAMETER, th);
         }
     }
 
-    private static void addCommand(ArticleManagement articleMgmt, List<String> arguments) {
+    private static void addCommand(ArticleManagement articleMgmt, List<String> arguments, PrintStream out) {
         Article article = Article.newFromArgs(arguments);
 
         articleMgmt.saveArticle(article);
 
-        System.out.println(MessageFormat.format(INFO_MSG_FMT_ARTICLE_ADDED, Integer.valueOf(article.getId())));
+        out.println(MessageFormat.format(INFO_MSG_FMT_ARTICLE_ADDED, Integer.valueOf(article.getId())));
     }
 
-    private static void listCommand(ArticleManagement articleMgmt, List<String> arguments) {
-        List<Article> articleList = articleMgmt.getArticleList();
+    private static void listCommand(ArticleManagement articleMgmt, List<String> arguments, PrintStream out) {
+        if (!arguments.isEmpty() && arguments.get(0).startsWith(OPTION_PREFIX)) {
+            listPageCommand(articleMgmt, arguments, out);
+            return;
+        }
 
-        // If there is an argument, reduce the article list to the specified article id
+        // If there is an argument, only look up the specified article id instead of accessing the whole list
         if (arguments.size() == 1) {
             int id = Article.parseIntFromArgs(arguments, 0);
             Article article = articleMgmt.getArticle(id);
@@ -85,27 +198,184 @@ final class ArticleCLI {
                 throw new NoSuchElementException(MessageFormat.format(ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(id)));
             }
 
-            articleList = Collections.singletonList(article);
+            printArticles(Collections.singletonList(article), out);
+            return;
+        }
+
+        printArticles(articleMgmt.getArticleList(), out);
+    }
+
+    private static void listPageCommand(ArticleManagement articleMgmt, List<String> arguments, PrintStream out) {
+        ArticleOrder order = null;
+        int offset = 0;
+        int limit = Integer.MAX_VALUE;
+
+        for (int i = 0; i < arguments.size(); i++) {
+            String argument = arguments.get(i);
+
+            if (argument.startsWith(SORT_OPTION)) {
+                order = ArticleOrder.fromKey(argument.substring(SORT_OPTION.length()));
+            } else if (argument.equals(LIMIT_OPTION)) {
+                limit = Article.parseIntFromArgs(arguments, ++i);
+            } else if (argument.equals(OFFSET_OPTION)) {
+                offset = Article.parseIntFromArgs(arguments, ++i);
+            } else {
+                throw new IllegalArgumentException(ERR_MSG_INVALID_PARAMETER);
+            }
+        }
+
+        // Without an order, the page is cut out of the list view, so only its articles are accessed
+        if (order == null) {
+            List<Article> articleList = articleMgmt.getArticleList();
+            int fromIndex = Math.min(offset, articleList.size());
+
+            printArticles(articleList.subList(fromIndex, (int) Math.min(articleList.size(), (long) fromIndex + limit)), out);
+        } else {
+            printArticles(articleMgmt.getSortedArticles(order, false, offset, limit), out);
+        }
+    }
+
+    private static void topCommand(ArticleManagement articleMgmt, List<String> arguments, PrintStream out) {
+        int limit = Article.parseIntFromArgs(arguments, 0);
+        ArticleOrder order = ArticleOrder.PRICE;
+
+        if (arguments.size() > 1) {
+            if (arguments.size() != 3 || !arguments.get(1).equals(BY_OPTION)) throw new IllegalArgumentException(ERR_MSG_INVALID_PARAMETER);
+
+            order = ArticleOrder.fromKey(arguments.get(2));
         }
 
+        printArticles(articleMgmt.getSortedArticles(order, true, 0, limit), out);
+    }
+
+    private static void findCommand(ArticleManagement articleMgmt, List<String> arguments, PrintStream out) {
+        ArticleQuery query = ArticleQuery.newFromArgs(arguments);
+
+        printArticles(articleMgmt.findArticles(query), out);
+    }
+
+    private static void searchCommand(ArticleManagement articleMgmt, List<String> arguments, PrintStream out) {
+        if (arguments.isEmpty()) throw new IllegalArgumentException(ERR_MSG_INVALID_PARAMETER);
+
+        printArticles(articleMgmt.searchArticles(arguments), out);
+    }
+
+    private static void printArticles(List<Article> articleList, PrintStream out) {
         // If there are no articles, throw an exception
         if (articleList.isEmpty()) {
             throw new NoSuchElementException(ERR_MSG_NO_ARTICLES_FOUND);
         }
 
-        // Join the article description(s) together with new lines
-        System.out.println(articleList.stream().map(Article::toString).collect(Collectors.joining(System.lineSeparator())));
+        ArticleMetrics metrics = ArticleMetrics.getInstance();
+
+        if (metrics.isEnabled()) {
+            metrics.time("render.articles", () -> renderArticles(articleList, out));
+            metrics.count("render.articleCount", articleList.size());
+        } else {
+            renderArticles(articleList, out);
+        }
+    }
+
+    private static void renderArticles(List<Article> articleList, PrintStream out) {
+        // Stream the article description(s) separated with new lines into the buffered output
+        ArticleRenderer renderer = new ArticleRenderer(new BufferedWriter(new OutputStreamWriter(out), OUTPUT_BUFFER_SIZE));
+
+        for (Article article : articleList) {
+            renderer.write(article);
+        }
+
+        renderer.flush();
+    }
+
+    private static void deleteCommand(ArticleManagement articleMgmt, List<String> arguments, PrintStream out) {
+        if (!arguments.isEmpty() && arguments.get(0).equals(PUBLISHER_OPTION)) {
+            if (arguments.size() != 2) throw new IllegalArgumentException(ERR_MSG_INVALID_PARAMETER);
+
+            String publisher = arguments.get(1);
+            int deletedCount = articleMgmt.deleteArticles(article -> article.getPublisher().equals(publisher));
+
+            if (deletedCount == 0) throw new NoSuchElementException(ERR_MSG_NO_ARTICLES_FOUND);
+
+            out.println(MessageFormat.format(INFO_MSG_FMT_ARTICLES_DELETED, Integer.valueOf(deletedCount)));
+        } else if (arguments.size() > 1) {
+            int[] ids = new int[arguments.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = Article.parseIntFromArgs(arguments, i);
+            }
+
+            // Either all or none of the articles are deleted, with a single write of the storage
+            articleMgmt.deleteArticles(ids);
+
+            out.println(MessageFormat.format(INFO_MSG_FMT_ARTICLES_DELETED, Integer.valueOf(ids.length)));
+        } else {
+            int id = Article.parseIntFromArgs(arguments, 0);
+
+            articleMgmt.deleteArticle(id);
+
+            out.println(MessageFormat.format(INFO_MSG_FMT_ARTICLE_DELETED, Integer.valueOf(id)));
+        }
+    }
+
+    private static void repriceCommand(ArticleManagement articleMgmt, List<String> arguments, PrintStream out) {
+        String publisher = null;
+        boolean isAll = false;
+        BigDecimal percent = null;
+
+        for (int i = 0; i < arguments.size(); i++) {
+            String argument = arguments.get(i);
+
+            if (argument.equals(PUBLISHER_OPTION)) {
+                publisher = Article.parseStringFromArgs(arguments, ++i);
+            } else if (argument.equals(ALL_OPTION)) {
+                isAll = true;
+            } else if (argument.equals(PERCENT_OPTION)) {
+                percent = parsePercent(Article.parseStringFromArgs(arguments, ++i));
+            } else {
+                throw new IllegalArgumentException(ERR_MSG_INVALID_PARAMETER);
+            }
+        }
+
+        // Repricing the whole catalogue has to be asked for explicitly, so a forgotten publisher does not cause it
+        if (percent == null || (publisher == null) == !isAll) throw new IllegalArgumentException(ERR_MSG_INVALID_PARAMETER);
+
+        String selectedPublisher = publisher;
+        int repricedCount = articleMgmt.repriceArticles(article -> selectedPublisher == null || article.getPublisher().equals(selectedPublisher), percent);
+
+        if (repricedCount == 0) throw new NoSuchElementException(ERR_MSG_NO_ARTICLES_FOUND);
+
+        out.println(MessageFormat.format(INFO_MSG_FMT_ARTICLES_REPRICED, Integer.valueOf(repricedCount)));
+    }
+
+    private static BigDecimal parsePercent(String percent) {
+        try {
+            return new BigDecimal(percent);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(ERR_MSG_INVALID_PARAMETER, e);
+        }
     }
 
-    private static void deleteCommand(ArticleManagement articleMgmt, List<String> arguments) {
-        int id = Article.parseIntFromArgs(arguments, 0);
+    private static void changesCommand(ArticleManagement articleMgmt, List<String> arguments, PrintStream out) {
+        long sequence = 0;
+
+        // Without a sequence number, all logged changes are written
+        if (!arguments.isEmpty()) {
+            if (arguments.size() != 2 || !arguments.get(0).equals(SINCE_OPTION)) throw new IllegalArgumentException(ERR_MSG_INVALID_PARAMETER);
 
-        articleMgmt.deleteArticle(id);
+            sequence = parseSequence(arguments.get(1));
+        }
 
-        System.out.println(MessageFormat.format(INFO_MSG_FMT_ARTICLE_DELETED, Integer.valueOf(id)));
+        articleMgmt.writeChangesSince(sequence, out);
+    }
+
+    private static long parseSequence(String sequence) {
+        try {
+            return Long.parseUnsignedLong(sequence);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(ERR_MSG_INVALID_PARAMETER, e);
+        }
     }
 
-    private static void countCommand(ArticleManagement articleMgmt, List<String> arguments) {
+    private static void countCommand(ArticleManagement articleMgmt, List<String> arguments, PrintStream out) {
         String type = arguments.isEmpty() ? "articles" : Article.parseStringFromArgs(arguments, 0);
 
         String output = switch (type) {
@@ -114,19 +384,74 @@ final class ArticleCLI {
             default -> String.valueOf(articleMgmt.getArticlesTotalAmount());
         };
 
-        System.out.println(output);
+        out.println(output);
+    }
+
+    private static void meanpriceCommand(ArticleManagement articleMgmt, PrintStream out) {
+        out.println(articleMgmt.getArticlesPriceMean());
+    }
+
+    private static void statsCommand(ArticleManagement articleMgmt, PrintStream out) {
+        ArticleAggregator.Result aggregates = articleMgmt.getAggregates();
+
+        // If there are no articles, throw an exception
+        if (aggregates.articleCount() == 0) {
+            throw new NoSuchElementException(ERR_MSG_NO_ARTICLES_FOUND);
+        }
+
+        StringJoiner oldestIds = new StringJoiner(", ");
+        Arrays.stream(aggregates.oldestIds()).forEach(id -> oldestIds.add(String.valueOf(id)));
+
+        out.println("Articles:    " + aggregates.articleCount());
+        out.println("Books:       " + aggregates.bookCount());
+        out.println("DVDs:        " + aggregates.dvdCount());
+        out.println("Price sum:   " + aggregates.priceSum());
+        out.println("Mean price:  " + aggregates.meanPrice());
+        out.println("Min price:   " + aggregates.minPrice());
+        out.println("Max price:   " + aggregates.maxPrice());
+        out.println("Oldest year: " + aggregates.oldestReleaseYear());
+        out.println("Oldest ids:  " + oldestIds);
+    }
+
+    private static void convertCommand(ArticleManagement articleMgmt, List<String> arguments, PrintStream out) {
+        String target = Article.parseStringFromArgs(arguments, 0);
+        List<Article> articleList = articleMgmt.getArticleList();
+
+        try (ArticleDAO targetDAO = ArticleDAOFactory.open(target)) {
+            if (!targetDAO.getArticleList().isEmpty()) throw new IllegalArgumentException(ERR_MSG_TARGET_NOT_EMPTY);
+
+            // Only a target appending to its file is given chunks, so a source decoded on access only holds one chunk,
+            // while every other target writes its whole file with each call and is given all articles at once
+            if (targetDAO instanceof CompressedArticleDAO) {
+                for (int start = 0; start < articleList.size(); start += CONVERT_CHUNK_SIZE) {
+                    targetDAO.saveAll(articleList.subList(start, Math.min(articleList.size(), start + CONVERT_CHUNK_SIZE)));
+                }
+            } else {
+                targetDAO.saveAll(articleList);
+            }
+        }
+
+        out.println(MessageFormat.format(INFO_MSG_FMT_ARTICLES_CONVERTED, Integer.valueOf(articleList.size()), target));
     }
 
-    private static void meanpriceCommand(ArticleManagement articleMgmt) {
-        System.out.println(articleMgmt.getArticlesPriceMean());
+    private static void importCommand(ArticleManagement articleMgmt, List<String> arguments, PrintStream out) {
+        String filename = Article.parseStringFromArgs(arguments, 0);
+
+        ArticleImporter.Report report = new ArticleImporter(articleMgmt).importFile(filename);
+
+        // Report every rejected row, so it can be corrected and imported again
+        report.rejectedRows().forEach(row -> out.println(MessageFormat.format(ERR_MSG_FMT_ROW_REJECTED, Integer.valueOf(row.rowNumber()), row.reason())));
+
+        out.println(MessageFormat.format(INFO_MSG_FMT_ARTICLES_IMPORTED, Integer.valueOf(report.importedCount()),
+                Long.valueOf(report.elapsedNanos() / 1_000_000), Long.valueOf(report.articlesPerSecond())));
     }
 
-    private static void oldestCommand(ArticleManagement articleMgmt) {
+    private static void oldestCommand(ArticleManagement articleMgmt, PrintStream out) {
         StringJoiner joiner = new StringJoiner(System.lineSeparator());
 
         // Join the id(s) of the oldest article(s) together with new lines
         articleMgmt.getOldestArticleIds().forEach(id -> joiner.add(MessageFormat.format(INFO_MSG_FMT_ARTICLE_ID, id)));
 
-        System.out.println(joiner);
+        out.println(joiner);
     }
 }
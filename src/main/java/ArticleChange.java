@@ -0,0 +1,106 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+/**
+ * ArticleChange is a single change of the catalogue, as it is published by ChangeFeedArticleDAO and kept in the
+ * ArticleChangeLog.
+ *
+ * @param sequence sequence number of the change, which grows by one with every change of the catalogue, or 0 as long as
+ *                 the change has not been logged
+ * @param type     kind of the change
+ * @param id       identifier of the changed article
+ * @param article  added or updated article, or null if the article was deleted
+ */
+record ArticleChange(long sequence, Type type, int id, Article article) {
+
+    static ArticleChange added(Article article) {
+        return new ArticleChange(0, Type.ADD, article.getId(), article);
+    }
+
+    static ArticleChange updated(Article article) {
+        return new ArticleChange(0, Type.UPDATE, article.getId(), article);
+    }
+
+    static ArticleChange deleted(int id) {
+        return new ArticleChange(0, Type.DELETE, id, null);
+    }
+
+    ArticleChange withSequence(long sequence) {
+        return new ArticleChange(sequence, type, id, article);
+    }
+
+    /**
+     * Returns the change as a flat JSON object on a single line, which starts with the sequence number and the kind of
+     * the change. Added and updated articles follow with the keys the JSON Lines import reads, so the added articles of
+     * a change feed can be imported into another catalogue as they are. All characters outside of printable ASCII are
+     * escaped.
+     *
+     * @return change as JSON object
+     */
+    String toJson() {
+        StringBuilder json = new StringBuilder(128);
+
+        json.append("{\"seq\":").append(sequence).append(",\"op\":\"").append(type.getKey()).append('"');
+
+        if (article == null) {
+            json.append(",\"id\":").append(id);
+        } else {
+            json.append(",\"type\":\"").append(article instanceof Book ? "book" : "dvd").append('"')
+                    .append(",\"id\":").append(id)
+                    .append(",\"title\":");
+            appendString(json, article.getTitle());
+            json.append(",\"publisher\":");
+            appendString(json, article.getPublisher());
+            json.append(",\"releaseYear\":").append(article.getReleaseYear())
+                    .append(",\"basePrice\":").append(article.getBasePrice().toPlainString());
+
+            if (article instanceof Book book) {
+                json.append(",\"pages\":").append(book.getPages());
+            } else if (article instanceof DVD dvd) {
+                json.append(",\"length\":").append(dvd.getLength()).append(",\"minAge\":").append(dvd.getMinAge());
+            }
+        }
+
+        return json.append('}').toString();
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < ' ' || c > '~') {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+
+        json.append('"');
+    }
+
+    /**
+     * Type is the kind of a change.
+     */
+    enum Type {
+
+        ADD("add"),
+        UPDATE("update"),
+        DELETE("delete");
+
+        private final String key;
+
+        Type(String key) {
+            this.key = key;
+        }
+
+        String getKey() {
+            return key;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ArticleChangeLog keeps every change of a catalogue as a line of JSON with its sequence number, so a reader can ask
+ * for all changes after the last sequence number it has seen.
+ * <p>
+ * The log of a persistent catalogue is the file {@code <file>.changes} next to it, which is only ever appended to. Every
+ * change locks the file, reads the sequence number of its last complete line, applies the change to the catalogue and
+ * forces the appended lines to the disk before it unlocks the file again. Several processes can therefore change the
+ * same catalogue, and the order of the lines is always the order the changes were applied in. A line that was only
+ * written partially, e.g. because the process crashed, is cut off by the next append, and malformed lines, e.g. edited
+ * by hand, are skipped. Since the lines are in the order of their sequence numbers, the first change after a sequence
+ * number is found by binary searching the byte offsets of the file, so reading the changes takes time proportional to
+ * their amount instead of the size of the log or the catalogue. The log of an in-memory catalogue is kept in memory
+ * only.
+ */
+final class ArticleChangeLog {
+
+    private static final String FILE_SUFFIX = ".changes";
+    private static final byte[] SEQUENCE_PREFIX = "{\"seq\":".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_SEQUENCE_DIGITS = 19;
+    private static final int SEQUENCE_SIZE = SEQUENCE_PREFIX.length + MAX_SEQUENCE_DIGITS + 1;
+    private static final int PROBE_SIZE = 1 << 9;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MALFORMED = -1;
+    private final Path file;
+    private final List<String> lines = new ArrayList<>();
+
+    private ArticleChangeLog(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Creates the change log of the catalogue stored in the given file. The log file is created with the first change.
+     *
+     * @param filename file the catalogue is stored in
+     * @return change log next to the catalogue
+     */
+    static ArticleChangeLog forFile(String filename) {
+        return new ArticleChangeLog(Path.of(filename + FILE_SUFFIX));
+    }
+
+    /**
+     * Creates a change log, which is kept in memory only.
+     *
+     * @return empty change log
+     */
+    static ArticleChangeLog inMemory() {
+        return new ArticleChangeLog(null);
+    }
+
+    /**
+     * Applies the mutation of the catalogue and appends its changes with the next sequence numbers, while holding the
+     * lock of the log. A mutation that throws appends nothing.
+     *
+     * @param mutation mutation of the catalogue, which may throw if it is invalid
+     * @param changes  changes the mutation makes in the order they are made
+     * @return appended changes with their sequence numbers
+     * @throws RuntimeException if the mutation failed or the log could not be written
+     */
+    synchronized List<ArticleChange> append(Runnable mutation, List<ArticleChange> changes) {
+        if (file == null || changes.isEmpty()) {
+            mutation.run();
+
+            List<ArticleChange> sequencedChanges = sequence(changes, lines.size());
+
+            if (file == null) {
+                sequencedChanges.forEach(change -> lines.add(change.toJson()));
+            }
+
+            return sequencedChanges;
+        }
+
+        // A single JVM must not lock the same file twice, so its instances take turns
+        synchronized (ArticleChangeLog.class) {
+            return appendToFile(mutation, changes);
+        }
+    }
+
+    @SuppressWarnings("try")
+    private List<ArticleChange> appendToFile(Runnable mutation, List<ArticleChange> changes) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            // Cut off a line that was only written partially and continue after the last complete one
+            long end = findCompleteEnd(channel);
+            if (end < channel.size()) {
+                channel.truncate(end);
+            }
+
+            // Another process cannot change the catalogue until the changes are appended, so no line can overtake them
+            List<ArticleChange> sequencedChanges = sequence(changes, readLastSequence(channel, end));
+            mutation.run();
+
+            StringBuilder appendedLines = new StringBuilder();
+            sequencedChanges.forEach(change -> appendedLines.append(change.toJson()).append('\n'));
+
+            ByteBuffer buffer = ByteBuffer.wrap(appendedLines.toString().getBytes(StandardCharsets.US_ASCII));
+            while (buffer.hasRemaining()) {
+                end += channel.write(buffer, end);
+            }
+            channel.force(false);
+
+            ArticleMetrics.getInstance().countBytesWritten(buffer.capacity());
+
+            return sequencedChanges;
+        } catch (IOException | SecurityException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_SERIALIZATION, e);
+        }
+    }
+
+    private static List<ArticleChange> sequence(List<ArticleChange> changes, long lastSequence) {
+        List<ArticleChange> sequencedChanges = new ArrayList<>(changes.size());
+
+        for (ArticleChange change : changes) {
+            sequencedChanges.add(change.withSequence(++lastSequence));
+        }
+
+        return sequencedChanges;
+    }
+
+    /**
+     * Writes all changes with a sequence number greater than the given one as JSON Lines in the order of their sequence
+     * numbers.
+     *
+     * @param sequence last sequence number that is not written
+     * @param out      output to write into
+     * @throws RuntimeException if the log could not be read or written into the output
+     */
+    synchronized void writeSince(long sequence, OutputStream out) {
+        try {
+            if (file == null) {
+                for (int line = (int) Math.min(Math.max(sequence, 0), lines.size()); line < lines.size(); line++) {
+                    out.write((lines.get(line) + '\n').getBytes(StandardCharsets.US_ASCII));
+                }
+            } else if (Files.exists(file)) {
+                synchronized (ArticleChangeLog.class) {
+                    writeFileSince(sequence, out);
+                }
+            }
+
+            out.flush();
+        } catch (IOException | SecurityException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_DESERIALIZATION, e);
+        }
+    }
+
+    @SuppressWarnings("try")
+    private void writeFileSince(long sequence, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             FileLock ignored = channel.lock(0, Long.MAX_VALUE, true)) {
+            long end = findCompleteEnd(channel);
+
+            // Find the first line whose sequence number is greater, all lines before it have smaller or equal ones
+            long low = 0;
+            long high = end;
+            while (low < high) {
+                long middle = (low + high) >>> 1;
+                long lineStart = findNextLineStart(channel, middle, end);
+
+                if (readNextSequence(channel, lineStart, end) > sequence) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            byte[] bytes = buffer.array();
+            boolean isLineStart = true;
+            boolean isKept = false;
+
+            for (long position = findNextLineStart(channel, low, end); position < end; position += buffer.limit()) {
+                buffer.clear().limit((int) Math.min(BUFFER_SIZE, end - position));
+                readFully(channel, buffer, position);
+
+                int segmentStart = 0;
+                for (int i = 0; i < buffer.limit(); i++) {
+                    if (isLineStart) {
+                        // Malformed lines are left out, read their start again if the buffer cuts it off
+                        long lineSequence = buffer.limit() - i >= SEQUENCE_SIZE || position + buffer.limit() == end
+                                ? parseSequence(bytes, i, Math.min(buffer.limit(), i + SEQUENCE_SIZE))
+                                : readSequence(channel, position + i);
+
+                        isKept = lineSequence != MALFORMED;
+                        isLineStart = false;
+                        segmentStart = i;
+                    }
+                    if (bytes[i] == '\n') {
+                        if (isKept) out.write(bytes, segmentStart, i + 1 - segmentStart);
+                        isLineStart = true;
+                    }
+                }
+
+                // A line continuing in the next buffer is written up to the end of this one
+                if (!isLineStart && isKept) out.write(bytes, segmentStart, buffer.limit() - segmentStart);
+            }
+        }
+    }
+
+    /**
+     * Returns the offset after the last complete line, which ends with a line separator.
+     */
+    private static long findCompleteEnd(FileChannel channel) throws IOException {
+        long size = channel.size();
+
+        return size == 0 ? 0 : findLineStart(channel, size);
+    }
+
+    /**
+     * Returns the start of the line the byte at the given position belongs to, by searching backwards for the line
+     * separator before it.
+     */
+    private static long findLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PROBE_SIZE);
+
+        for (long chunkEnd = position; chunkEnd > 0; ) {
+            long chunkStart = Math.max(0, chunkEnd - PROBE_SIZE);
+
+            buffer.clear().limit((int) (chunkEnd - chunkStart));
+            readFully(channel, buffer, chunkStart);
+
+            for (int i = buffer.limit() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') return chunkStart + i + 1;
+            }
+
+            chunkEnd = chunkStart;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Returns the start of the first line at or after the given position, or the end if there is none.
+     */
+    private static long findNextLineStart(FileChannel channel, long position, long end) throws IOException {
+        if (position == 0) return 0;
+
+        ByteBuffer buffer = ByteBuffer.allocate(PROBE_SIZE);
+
+        // A line starts at the position, if the byte before it is a line separator
+        for (long chunkStart = position - 1; chunkStart < end; chunkStart += PROBE_SIZE) {
+            buffer.clear().limit((int) Math.min(PROBE_SIZE, end - chunkStart));
+            readFully(channel, buffer, chunkStart);
+
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') return chunkStart + i + 1;
+            }
+        }
+
+        return end;
+    }
+
+    /**
+     * Returns the sequence number of the last well-formed line before the given end, or 0 if there is none.
+     */
+    private static long readLastSequence(FileChannel channel, long end) throws IOException {
+        for (long lineEnd = end; lineEnd > 0; ) {
+            long lineStart = findLineStart(channel, lineEnd - 1);
+            long sequence = readSequence(channel, lineStart);
+
+            if (sequence != MALFORMED) return sequence;
+
+            lineEnd = lineStart;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Returns the sequence number of the first well-formed line at or after the given line start, or the greatest
+     * sequence number if there is none before the end.
+     */
+    private static long readNextSequence(FileChannel channel, long lineStart, long end) throws IOException {
+        for (long start = lineStart; start < end; start = findNextLineStart(channel, start + 1, end)) {
+            long sequence = readSequence(channel, start);
+
+            if (sequence != MALFORMED) return sequence;
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+    private static long readSequence(FileChannel channel, long lineStart) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SEQUENCE_SIZE);
+
+        buffer.limit((int) Math.min(buffer.capacity(), channel.size() - lineStart));
+        readFully(channel, buffer, lineStart);
+
+        return parseSequence(buffer.array(), 0, buffer.limit());
+    }
+
+    /**
+     * Returns the sequence number the line starting at the given index begins with, or MALFORMED if it does not begin
+     * with one.
+     */
+    private static long parseSequence(byte[] bytes, int from, int to) {
+        for (int i = 0; i < SEQUENCE_PREFIX.length; i++) {
+            if (from + i >= to || bytes[from + i] != SEQUENCE_PREFIX[i]) return MALFORMED;
+        }
+
+        long sequence = 0;
+        int i = from + SEQUENCE_PREFIX.length;
+        for (; i < to && Character.isDigit(bytes[i]); i++) {
+            if (sequence > (Long.MAX_VALUE - 9) / 10) return MALFORMED;
+
+            sequence = sequence * 10 + (bytes[i] - '0');
+        }
+
+        return i == from + SEQUENCE_PREFIX.length ? MALFORMED : sequence;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new StreamCorruptedException("Unexpected end of change log");
+        }
+
+        ArticleMetrics.getInstance().countBytesRead(buffer.limit());
+    }
+}
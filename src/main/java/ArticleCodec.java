@@ -0,0 +1,292 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ArticleCodec is the compact, versioned binary format for articles, which is used instead of Java Object
+ * Serialization.
+ * <p>
+ * A catalogue starts with a magic number and the format version, followed by the article records and a terminating
+ * zero byte. Each record starts with its type tag, followed by the identifier and release year as fixed-width ints, the
+ * title as length-prefixed UTF-8, the publisher as reference into a dictionary of previously seen publishers (a new
+ * publisher is written inline when it is referenced the first time), and the base price in cents as varint. Books then
+ * store their page count, DVDs their length and a single byte for the age rating.
+ */
+final class ArticleCodec {
+
+    static final String ERR_MSG_FMT_ARTICLE_NOT_ENCODABLE = "Error: Article cannot be stored in this format. (id={0,number,#})";
+    static final int MAGIC = 0x41435431;
+    static final byte VERSION = 1;
+    private static final byte TAG_END = 0;
+    private static final byte TAG_BOOK = 'B';
+    private static final byte TAG_DVD = 'D';
+    private static final int PRICE_DECIMAL_COUNT = 2;
+    private static final int[] AGE_RATING_MIN_AGES = {0, 6, 12, 16, 18};
+
+    private ArticleCodec() {
+    }
+
+    /**
+     * Write a single self-contained article record, which does not depend on any previously written records.
+     *
+     * @param out     output to write into
+     * @param article article to write
+     * @throws IOException if the output could not be written or the article cannot be represented
+     */
+    static void writeArticle(DataOutput out, Article article) throws IOException {
+        writeRecord(out, article, null);
+    }
+
+    /**
+     * Read a single self-contained article record, as written by {@link #writeArticle(DataOutput, Article)}.
+     *
+     * @param in input to read from
+     * @return read article
+     * @throws IOException if the input could not be read or is malformed
+     */
+    static Article readArticle(DataInput in) throws IOException {
+        Article article = readRecord(in, in.readByte(), null);
+
+        if (article == null) throw new StreamCorruptedException("Missing article record");
+
+        return article;
+    }
+
+    private static void writeRecord(DataOutput out, Article article, Map<String, Integer> publisherDictionary) throws IOException {
+        out.writeByte(article instanceof Book ? TAG_BOOK : TAG_DVD);
+        out.writeInt(article.getId());
+        out.writeInt(article.getReleaseYear());
+        writeString(out, article.getTitle());
+
+        if (publisherDictionary == null) {
+            writeString(out, article.getPublisher());
+        } else {
+            Integer reference = publisherDictionary.get(article.getPublisher());
+
+            // Reference the next free dictionary slot to announce a new publisher, which follows inline
+            if (reference == null) {
+                writeVarLong(out, publisherDictionary.size());
+                writeString(out, article.getPublisher());
+                publisherDictionary.put(article.getPublisher(), publisherDictionary.size());
+            } else {
+                writeVarLong(out, reference);
+            }
+        }
+
+        writeVarLong(out, toCents(article.getBasePrice()));
+
+        if (article instanceof Book book) {
+            out.writeInt(book.getPages());
+        } else if (article instanceof DVD dvd) {
+            out.writeInt(dvd.getLength());
+            out.writeByte(toAgeRatingCode(dvd.getMinAge()));
+        }
+    }
+
+    private static Article readRecord(DataInput in, byte tag, List<String> publisherDictionary) throws IOException {
+        if (tag == TAG_END) return null;
+
+        int id = in.readInt();
+        int releaseYear = in.readInt();
+        String title = readString(in);
+        String publisher;
+
+        if (publisherDictionary == null) {
+            publisher = readString(in);
+        } else {
+            long reference = readVarLong(in);
+
+            if (reference == publisherDictionary.size()) {
+                publisher = readString(in);
+                publisherDictionary.add(publisher);
+            } else if (reference >= 0 && reference < publisherDictionary.size()) {
+                publisher = publisherDictionary.get((int) reference);
+            } else {
+                throw new StreamCorruptedException("Invalid publisher reference " + reference);
+            }
+        }
+
+        BigDecimal basePrice = BigDecimal.valueOf(readVarLong(in), PRICE_DECIMAL_COUNT);
+
+        try {
+            return switch (tag) {
+                case TAG_BOOK -> new Book(id, title, publisher, releaseYear, basePrice, in.readInt());
+                case TAG_DVD -> new DVD(id, title, publisher, releaseYear, basePrice, in.readInt(), fromAgeRatingCode(in.readByte()));
+                default -> throw new StreamCorruptedException("Unknown article type " + tag);
+            };
+        } catch (IllegalArgumentException e) {
+            throw new StreamCorruptedException(e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that all articles can be written in this format, so a data access object can reject them before it changes
+     * anything. The base price has to fit into a long in whole cents and a DVD needs a known age rating.
+     *
+     * @param articles articles to check
+     * @throws IllegalArgumentException if any of the articles cannot be written
+     */
+    static void requireEncodable(Collection<Article> articles) {
+        for (Article article : articles) {
+            try {
+                toCents(article.getBasePrice());
+
+                if (article instanceof DVD dvd) {
+                    toAgeRatingCode(dvd.getMinAge());
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException(MessageFormat.format(ERR_MSG_FMT_ARTICLE_NOT_ENCODABLE, Integer.valueOf(article.getId())), e);
+            }
+        }
+    }
+
+    static long toCents(BigDecimal price) throws IOException {
+        try {
+            return price.movePointRight(PRICE_DECIMAL_COUNT).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new InvalidObjectException("Price cannot be represented in cents: " + price);
+        }
+    }
+
+    static byte toAgeRatingCode(int minAge) throws IOException {
+        for (int code = 0; code < AGE_RATING_MIN_AGES.length; code++) {
+            if (AGE_RATING_MIN_AGES[code] == minAge) return (byte) code;
+        }
+
+        throw new InvalidObjectException("Unknown age rating " + minAge);
+    }
+
+    static int fromAgeRatingCode(byte code) throws IOException {
+        if (code < 0 || code >= AGE_RATING_MIN_AGES.length) throw new StreamCorruptedException("Unknown age rating code " + code);
+
+        return AGE_RATING_MIN_AGES[code];
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        // Write seven bits at a time, the highest bit marks that more bytes follow
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+
+            if (b >= 0) return value;
+        }
+
+        throw new StreamCorruptedException("Malformed varint");
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        long length = readVarLong(in);
+
+        if (length < 0 || length > Integer.MAX_VALUE) throw new StreamCorruptedException("Invalid string length " + length);
+
+        byte[] bytes = new byte[(int) length];
+        in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writer writes a catalogue of articles, sharing a publisher dictionary between its records.
+     */
+    static final class Writer implements Closeable {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> publisherDictionary = new HashMap<>();
+
+        /**
+         * Creates an instance of Writer and writes the catalogue header.
+         *
+         * @param out stream to write the catalogue into
+         * @throws IOException if the header could not be written
+         */
+        Writer(OutputStream out) throws IOException {
+            this.out = out instanceof DataOutputStream dataOut ? dataOut : new DataOutputStream(out);
+
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+        }
+
+        void write(Article article) throws IOException {
+            writeRecord(out, article, publisherDictionary);
+        }
+
+        /**
+         * Terminates the catalogue and closes the underlying stream.
+         *
+         * @throws IOException if the stream could not be written or closed
+         */
+        @Override
+        public void close() throws IOException {
+            out.writeByte(TAG_END);
+            out.close();
+        }
+    }
+
+    /**
+     * Reader reads a catalogue of articles, as written by Writer.
+     */
+    static final class Reader implements Closeable {
+
+        private final DataInputStream in;
+        private final List<String> publisherDictionary = new ArrayList<>();
+
+        /**
+         * Creates an instance of Reader and validates the catalogue header.
+         *
+         * @param in stream to read the catalogue from
+         * @throws IOException if the header could not be read or does not match the format
+         */
+        Reader(InputStream in) throws IOException {
+            this.in = in instanceof DataInputStream dataIn ? dataIn : new DataInputStream(in);
+
+            if (this.in.readInt() != MAGIC) throw new StreamCorruptedException("Not an article catalogue");
+
+            byte version = this.in.readByte();
+            if (version != VERSION) throw new StreamCorruptedException("Unsupported catalogue version " + version);
+        }
+
+        /**
+         * Reads the next article of the catalogue.
+         *
+         * @return next article or null, if the end of the catalogue has been reached
+         * @throws IOException if the stream could not be read or is malformed
+         */
+        Article read() throws IOException {
+            return readRecord(in, in.readByte(), publisherDictionary);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -3,9 +3,14 @@
  * @id 11908284
  */
 
+import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 
-interface ArticleDAO {
+interface ArticleDAO extends AutoCloseable {
 
     /**
      * Return all stored articles as a List.
@@ -31,6 +36,20 @@ interface ArticleDAO {
      */
     void saveArticle(Article article);
 
+    /**
+     * Store all article objects persistently at once.
+     * <p>
+     * Implementations should check all articles before storing any of them and write the persistent storage only once,
+     * instead of storing every article on its own like this default implementation does.
+     *
+     * @param articles articles to store
+     * @throws IllegalArgumentException if any article's id is already taken or given more than once
+     * @throws RuntimeException         if the article list could not be serialized afterward
+     */
+    default void saveAll(Collection<Article> articles) {
+        articles.forEach(this::saveArticle);
+    }
+
     /**
      * Delete an article from the persistent storage.
      *
@@ -39,4 +58,173 @@ interface ArticleDAO {
      * @throws RuntimeException         if the article list could not be serialized afterward
      */
     void deleteArticle(int id);
+
+    /**
+     * Delete all articles with the given identifiers from the persistent storage at once.
+     * <p>
+     * Implementations should check all identifiers before deleting any of them and write the persistent storage only
+     * once, instead of deleting every article on its own like this default implementation does.
+     *
+     * @param ids article id numbers to delete
+     * @throws IllegalArgumentException if any article's id could not be found or is given more than once
+     * @throws RuntimeException         if the article list could not be serialized afterward
+     */
+    default void deleteAll(int[] ids) {
+        Set<Integer> checkedIds = new HashSet<>(ids.length * 2);
+
+        for (int id : ids) {
+            if (getArticle(id) == null) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(id)));
+            }
+            if (!checkedIds.add(id)) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_GIVEN_TWICE, Integer.valueOf(id)));
+            }
+        }
+
+        for (int id : ids) {
+            deleteArticle(id);
+        }
+    }
+
+    /**
+     * Delete all articles matching the predicate from the persistent storage at once.
+     *
+     * @param predicate predicate selecting the articles to delete
+     * @return amount of deleted articles
+     * @throws RuntimeException if the article list could not be serialized afterward
+     */
+    default int deleteWhere(Predicate<Article> predicate) {
+        int[] ids = getArticleList().stream().filter(predicate).mapToInt(Article::getId).toArray();
+
+        if (ids.length > 0) {
+            deleteAll(ids);
+        }
+
+        return ids.length;
+    }
+
+    /**
+     * Replace the stored articles with the given articles of the same identifiers in the persistent storage at once.
+     * <p>
+     * Implementations should check all articles before replacing any of them, keep the replaced articles' positions and
+     * write the persistent storage only once, instead of deleting and storing the articles again like this default
+     * implementation does.
+     *
+     * @param articles articles replacing the stored articles
+     * @throws IllegalArgumentException if any article's id could not be found or is given more than once
+     * @throws RuntimeException         if the article list could not be serialized afterward
+     */
+    default void updateAll(Collection<Article> articles) {
+        deleteAll(articles.stream().mapToInt(Article::getId).toArray());
+        saveAll(articles);
+    }
+
+    /**
+     * Return the stored articles matching the query in ascending order of their identifiers.
+     * <p>
+     * Implementations should keep secondary indexes over the articles to only visit the articles that can match,
+     * instead of testing all articles like this default implementation does.
+     *
+     * @param query query to answer
+     * @return matching articles
+     */
+    default List<Article> find(ArticleQuery query) {
+        return ArticleIndex.scan(query, getArticleList());
+    }
+
+    /**
+     * Return a page of the stored articles in the given order.
+     * <p>
+     * Implementations should read the page from sorted secondary indexes where the order allows it, instead of
+     * selecting it from all articles like this default implementation does. Either way, the whole catalogue is never
+     * sorted.
+     *
+     * @param order        order of the articles
+     * @param isDescending whether the order is reversed
+     * @param offset       amount of articles to skip
+     * @param limit        maximum amount of articles to return
+     * @return page of the articles in the given order
+     */
+    default List<Article> getSortedArticles(ArticleOrder order, boolean isDescending, int offset, int limit) {
+        return ArticleIndex.select(getArticleList(), order.getComparator(new ArticlePricing(), isDescending), offset, limit);
+    }
+
+    /**
+     * Return the stored articles whose title or publisher contains a word starting with every one of the search
+     * terms, in ascending order of their identifiers.
+     * <p>
+     * Implementations should keep an inverted index of the words, instead of splitting the titles and publishers of
+     * all articles into words like this default implementation does.
+     *
+     * @param terms search terms
+     * @return matching articles
+     */
+    default List<Article> search(List<String> terms) {
+        return TextIndex.scan(terms, getArticleList());
+    }
+
+    /**
+     * Return the statistics about all stored articles, with a price sum that is valid for the current year.
+     * <p>
+     * Implementations should keep the statistics up to date with every stored or deleted article, instead of
+     * aggregating all articles again like this default implementation does.
+     *
+     * @return statistics about all stored articles
+     */
+    default ArticleStatistics getStatistics() {
+        ArticleStatistics statistics = ArticleStatistics.of(getArticleList());
+        statistics.recalculatePriceSum(getArticleList());
+
+        return statistics;
+    }
+
+    /**
+     * Return the counts, price aggregates and oldest articles of all stored articles, calculated in a single parallel
+     * pass.
+     * <p>
+     * Implementations should aggregate their raw storage, instead of creating an Article object for every stored
+     * article like this default implementation does.
+     *
+     * @param pricing pricing all prices are calculated with
+     * @return aggregates of all stored articles
+     */
+    default ArticleAggregator.Result aggregate(ArticlePricing pricing) {
+        return ArticleAggregator.aggregate(getArticleList(), pricing);
+    }
+
+    /**
+     * Return the identifiers of the stored articles released in the oldest release year, in the order of the article
+     * list.
+     * <p>
+     * Implementations should read the release years from their raw storage, instead of creating an Article object for
+     * every stored article like this default implementation does.
+     *
+     * @return identifiers of the oldest articles
+     * @throws java.util.NoSuchElementException if there are no articles
+     */
+    default List<Integer> getOldestArticleIds() {
+        int oldestReleaseYear = getStatistics().getOldestReleaseYear();
+
+        return getArticleList().stream().filter(article -> article.getReleaseYear() == oldestReleaseYear)
+                .map(Article::getId).toList();
+    }
+
+    /**
+     * Return the log of the changes made through this data access object. Decorators return the log of the data
+     * access object they decorate.
+     *
+     * @return change log, or null if the changes are not logged
+     */
+    default ArticleChangeLog getChangeLog() {
+        return null;
+    }
+
+    /**
+     * Release any resources held by the data access object and flush pending changes to the persistent storage.
+     *
+     * @throws RuntimeException if pending changes could not be written
+     */
+    @Override
+    default void close() {
+    }
 }
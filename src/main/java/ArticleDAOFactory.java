@@ -0,0 +1,160 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectStreamConstants;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ArticleDAOFactory opens the data access object for a storage location, as it is given on the command line.
+ * <p>
+ * A location is either a file name prefixed with the scheme of a backend, e.g. {@code bin:catalogue}, or a plain file
+ * name. The backend of an existing plain file is detected from the magic number its format starts with, so catalogues
+ * keep working under any name, such as the serialized catalogues written before the extensions selected a backend. The
+ * extension only selects the backend of a new or empty file, or of a file whose format it can read, and files without
+ * a registered extension are serialized. The in-memory backends ignore the file name and start out empty.
+ */
+final class ArticleDAOFactory {
+
+    private static final String SCHEME_SEPARATOR = ":";
+    private static final String DEFAULT_SCHEME = "ser";
+    private static final int SERIALIZED_MAGIC = ObjectStreamConstants.STREAM_MAGIC << 16 | ObjectStreamConstants.STREAM_VERSION;
+    private static final int NO_MAGIC = 0;
+    private static final Set<String> SCHEMES = new HashSet<>();
+    private static final Map<String, String> SCHEMES_BY_EXTENSION = new HashMap<>();
+    private static final Map<String, Integer> MAGICS_BY_SCHEME = new LinkedHashMap<>();
+
+    // Constant magic numbers, so no backend class is loaded before one is opened. The snapshot of a journaled catalogue
+    // is serialized, so of several backends sharing a magic number, the one registered first is detected.
+    static {
+        register("ser", ".ser", SERIALIZED_MAGIC);
+        register("bin", ".bin", ArticleCodec.MAGIC);
+        register("log", ".log", SERIALIZED_MAGIC);
+        register("mmap", ".mmap", MappedArticleDAO.MAGIC);
+        register("blk", ".blk", CompressedArticleDAO.MAGIC);
+        register("mem", null, NO_MAGIC);
+        register("col", null, NO_MAGIC);
+        register("off", null, NO_MAGIC);
+    }
+
+    private ArticleDAOFactory() {
+    }
+
+    /**
+     * Registers a backend, which is selected by its scheme, by the magic number an existing file starts with and, if
+     * given, by the extension of a file name.
+     *
+     * @param scheme    scheme selecting the backend
+     * @param extension file name extension selecting the backend including the leading dot, or null
+     * @param magic     first four bytes of the backend's files, or 0 if it does not store any file
+     */
+    private static void register(String scheme, String extension, int magic) {
+        SCHEMES.add(scheme);
+
+        if (extension != null) {
+            SCHEMES_BY_EXTENSION.put(extension, scheme);
+        }
+        if (magic != NO_MAGIC) {
+            MAGICS_BY_SCHEME.put(scheme, magic);
+        }
+    }
+
+    /**
+     * Opens the data access object for the storage location.
+     *
+     * @param location file name, optionally prefixed with the scheme of a backend
+     * @return data access object of the selected backend
+     * @throws RuntimeException if the storage could not be opened
+     */
+    static ArticleDAO open(String location) {
+        String scheme = getBackendScheme(location);
+
+        String filename = getFilename(location, scheme);
+
+        // A switch instead of a lambda per backend, since linking the lambdas takes longer than opening a small catalogue
+        return switch (scheme) {
+            case "bin" -> new BinaryArticleDAO(filename);
+            case "log" -> new JournaledArticleDAO(filename);
+            case "mmap" -> new MappedArticleDAO(filename);
+            case "blk" -> new CompressedArticleDAO(filename);
+            case "mem" -> new ConcurrentArticleDAO();
+            case "col" -> new ColumnarArticleDAO();
+            case "off" -> new OffHeapArticleDAO();
+            default -> new SerializedArticleDAO(filename);
+        };
+    }
+
+    /**
+     * Opens the change log for the storage location, which is stored next to the file of a persistent backend and kept
+     * in memory for the in-memory backends.
+     *
+     * @param location file name, optionally prefixed with the scheme of a backend
+     * @return change log of the storage location
+     */
+    static ArticleChangeLog openChangeLog(String location) {
+        String scheme = getBackendScheme(location);
+
+        // Only the persistent backends are selected by an extension
+        if (!SCHEMES_BY_EXTENSION.containsValue(scheme)) return ArticleChangeLog.inMemory();
+
+        return ArticleChangeLog.forFile(getFilename(location, scheme));
+    }
+
+    private static String getBackendScheme(String location) {
+        String scheme = getScheme(location);
+
+        // Only a registered scheme is cut off, so file names may still contain the separator
+        if (scheme != null && SCHEMES.contains(scheme)) return scheme;
+
+        String extensionScheme = SCHEMES_BY_EXTENSION.getOrDefault(getExtension(location), DEFAULT_SCHEME);
+        int magic = readMagic(location);
+
+        // Keep the backend of the extension as long as it can read the file, otherwise open the file in its own format
+        if (magic == NO_MAGIC || MAGICS_BY_SCHEME.get(extensionScheme) == magic) return extensionScheme;
+
+        for (Map.Entry<String, Integer> magicEntry : MAGICS_BY_SCHEME.entrySet()) {
+            if (magicEntry.getValue() == magic) return magicEntry.getKey();
+        }
+
+        return extensionScheme;
+    }
+
+    /**
+     * Returns the first four bytes of the file, or 0 if the file does not exist or is shorter.
+     */
+    private static int readMagic(String filename) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(filename))) {
+            return in.readInt();
+        } catch (IOException | SecurityException e) {
+            // A new or empty file is created by the backend of its extension
+            return NO_MAGIC;
+        }
+    }
+
+    private static String getFilename(String location, String backendScheme) {
+        return backendScheme.equals(getScheme(location)) ? location.substring(backendScheme.length() + SCHEME_SEPARATOR.length()) : location;
+    }
+
+    private static String getScheme(String location) {
+        int separatorIndex = location.indexOf(SCHEME_SEPARATOR);
+
+        return separatorIndex < 0 ? null : location.substring(0, separatorIndex);
+    }
+
+    private static String getExtension(String filename) {
+        int dotIndex = filename.lastIndexOf('.');
+
+        // A dot before the last path separator belongs to a directory name
+        if (dotIndex < 0 || dotIndex < Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\'))) return "";
+
+        return filename.substring(dotIndex);
+    }
+}
@@ -0,0 +1,312 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ArticleImporter reads articles from a CSV or JSON Lines file and stores all valid ones with a single write.
+ * <p>
+ * The file is parsed row by row. Every row is validated the same way as the arguments of the {@code add} command, and
+ * rows that are invalid or whose identifier is already taken are rejected without stopping the import. CSV rows list the
+ * values in the order of the {@code add} arguments, optionally after a header row starting with {@code type}. JSON Lines
+ * rows are flat objects with the keys {@code type}, {@code id}, {@code title}, {@code publisher}, {@code releaseYear},
+ * {@code basePrice} and {@code pages} or {@code length} and {@code minAge}.
+ */
+final class ArticleImporter {
+
+    static final String ERR_MSG_IMPORT = "Error during import.";
+    private static final String[] JSON_KEYS_BOOK = {"type", "id", "title", "publisher", "releaseYear", "basePrice", "pages"};
+    private static final String[] JSON_KEYS_DVD = {"type", "id", "title", "publisher", "releaseYear", "basePrice", "length", "minAge"};
+    private final ArticleManagement articleMgmt;
+
+    ArticleImporter(ArticleManagement articleMgmt) {
+        this.articleMgmt = articleMgmt;
+    }
+
+    /**
+     * Imports all valid articles from the file, which is parsed as JSON Lines if its name ends with {@code .jsonl} or
+     * {@code .ndjson} and as CSV otherwise.
+     *
+     * @param filename file to import
+     * @return report about the imported and rejected rows
+     * @throws RuntimeException if the file could not be read or the articles could not be stored
+     */
+    Report importFile(String filename) {
+        long startTime = System.nanoTime();
+        boolean isJsonLines = filename.endsWith(".jsonl") || filename.endsWith(".ndjson");
+        IntArticleMap batch = new IntArticleMap();
+        List<RejectedRow> rejectedRows = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(filename), StandardCharsets.UTF_8)) {
+            int rowNumber = 0;
+
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                rowNumber++;
+
+                if (line.isBlank()) continue;
+
+                try {
+                    List<String> arguments;
+
+                    if (isJsonLines) {
+                        arguments = parseJsonLine(line);
+                    } else {
+                        // Quoted values may span multiple lines, so keep reading until the row is complete
+                        StringBuilder row = new StringBuilder(line);
+                        while (hasOpenQuote(row)) {
+                            String nextLine = reader.readLine();
+                            if (nextLine == null) throw new IllegalArgumentException(ArticleCLI.ERR_MSG_INVALID_PARAMETER);
+
+                            row.append('\n').append(nextLine);
+                        }
+
+                        arguments = parseCsvRow(row);
+
+                        // Skip the header row
+                        if (rowNumber == 1 && "type".equalsIgnoreCase(arguments.get(0))) continue;
+                    }
+
+                    Article article = Article.newFromArgs(arguments);
+
+                    // Reject articles that are either already stored or were given before in the same file
+                    if (articleMgmt.getArticle(article.getId()) != null || batch.containsKey(article.getId())) {
+                        throw new IllegalArgumentException(MessageFormat.format(SerializedArticleDAO.ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS, Integer.valueOf(article.getId())));
+                    }
+
+                    batch.put(article);
+                } catch (IllegalArgumentException e) {
+                    rejectedRows.add(new RejectedRow(rowNumber, e.getMessage()));
+                }
+            }
+        } catch (IOException | SecurityException e) {
+            throw new RuntimeException(ERR_MSG_IMPORT, e);
+        }
+
+        articleMgmt.saveAll(batch.values());
+
+        return new Report(batch.size(), rejectedRows, System.nanoTime() - startTime);
+    }
+
+    private static boolean hasOpenQuote(CharSequence row) {
+        boolean isQuoted = false;
+
+        for (int i = 0; i < row.length(); i++) {
+            if (row.charAt(i) == '"') isQuoted = !isQuoted;
+        }
+
+        return isQuoted;
+    }
+
+    /**
+     * Splits a CSV row into its values. Values may be enclosed in double quotes to contain commas, line breaks or double
+     * quotes, which are then escaped by doubling them.
+     *
+     * @param row CSV row
+     * @return values of the row
+     */
+    static List<String> parseCsvRow(CharSequence row) {
+        List<String> values = new ArrayList<>(8);
+        StringBuilder value = new StringBuilder();
+        boolean isQuoted = false;
+
+        for (int i = 0; i < row.length(); i++) {
+            char c = row.charAt(i);
+
+            if (isQuoted) {
+                if (c == '"' && i + 1 < row.length() && row.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    isQuoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                isQuoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else if (c != '\r') {
+                value.append(c);
+            }
+        }
+
+        values.add(value.toString());
+
+        return values;
+    }
+
+    /**
+     * Parses a flat JSON object into the values of the add command's arguments.
+     *
+     * @param line JSON object with string or number values
+     * @return values of the object in the order of the add command's arguments
+     * @throws IllegalArgumentException if the line is no flat JSON object or misses a value
+     */
+    static List<String> parseJsonLine(String line) {
+        JsonObjectParser parser = new JsonObjectParser(line);
+        List<String> keys = new ArrayList<>(8);
+        List<String> values = new ArrayList<>(8);
+
+        parser.parse(keys, values);
+
+        String type = values.get(requireKey(keys, "type"));
+        String[] orderedKeys = "dvd".equals(type) ? JSON_KEYS_DVD : JSON_KEYS_BOOK;
+        List<String> arguments = new ArrayList<>(orderedKeys.length);
+
+        for (String key : orderedKeys) {
+            arguments.add(values.get(requireKey(keys, key)));
+        }
+
+        return arguments;
+    }
+
+    private static int requireKey(List<String> keys, String key) {
+        int index = keys.indexOf(key);
+
+        if (index < 0) throw new IllegalArgumentException(ArticleCLI.ERR_MSG_INVALID_PARAMETER);
+
+        return index;
+    }
+
+    /**
+     * Report is the outcome of an import.
+     *
+     * @param importedCount amount of imported articles
+     * @param rejectedRows  rows which were not imported
+     * @param elapsedNanos  time the import took in nanoseconds
+     */
+    record Report(int importedCount, List<RejectedRow> rejectedRows, long elapsedNanos) {
+
+        /**
+         * Returns the amount of imported articles per second.
+         *
+         * @return imported articles per second
+         */
+        long articlesPerSecond() {
+            return elapsedNanos == 0 ? 0 : importedCount * 1_000_000_000L / elapsedNanos;
+        }
+    }
+
+    /**
+     * RejectedRow is a row that could not be imported.
+     *
+     * @param rowNumber number of the row in the file, counting from one
+     * @param reason    error message describing why the row was rejected
+     */
+    record RejectedRow(int rowNumber, String reason) {
+    }
+
+    /**
+     * JsonObjectParser parses a single flat JSON object, whose values are strings, numbers, booleans or null.
+     */
+    private static final class JsonObjectParser {
+
+        private final String json;
+        private int position;
+
+        private JsonObjectParser(String json) {
+            this.json = json;
+        }
+
+        private void parse(List<String> keys, List<String> values) {
+            expect('{');
+
+            if (peek() == '}') {
+                position++;
+            } else {
+                do {
+                    keys.add(parseString());
+                    expect(':');
+                    values.add(peek() == '"' ? parseString() : parseLiteral());
+                } while (consumeIf(','));
+
+                expect('}');
+            }
+
+            if (peek() != 0) throw invalid();
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+
+            while (position < json.length()) {
+                char c = json.charAt(position++);
+
+                if (c == '"') return value.toString();
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= json.length()) break;
+
+                char escaped = json.charAt(position++);
+                switch (escaped) {
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > json.length()) throw invalid();
+
+                        try {
+                            value.append((char) Integer.parseInt(json, position, position + 4, 16));
+                        } catch (NumberFormatException e) {
+                            throw invalid();
+                        }
+                        position += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            }
+
+            throw invalid();
+        }
+
+        private String parseLiteral() {
+            int start = position;
+
+            while (position < json.length() && ",}".indexOf(json.charAt(position)) < 0 && !Character.isWhitespace(json.charAt(position))) {
+                position++;
+            }
+
+            if (start == position) throw invalid();
+
+            return json.substring(start, position);
+        }
+
+        private char peek() {
+            while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+                position++;
+            }
+
+            return position < json.length() ? json.charAt(position) : 0;
+        }
+
+        private boolean consumeIf(char c) {
+            if (peek() != c) return false;
+
+            position++;
+            return true;
+        }
+
+        private void expect(char c) {
+            if (!consumeIf(c)) throw invalid();
+        }
+
+        private static IllegalArgumentException invalid() {
+            return new IllegalArgumentException(ArticleCLI.ERR_MSG_INVALID_PARAMETER);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * ArticleIndex holds secondary indexes over the articles of a data access object, so queries only visit the articles
+ * that can match instead of all of them.
+ * <p>
+ * There is a sorted index of the release years, a hash index of the publishers and a sorted index of the prices in
+ * cents. The first query is answered by scanning all articles, which is cheaper than building the indexes, so they are
+ * only built when a second query is answered and from then on updated with every added or deleted article. Since the
+ * price of a book depends on its age, the price index is only valid for the year it was built in and is built again
+ * once that year has passed. Prices that cannot be given in whole cents are kept aside and checked with every price
+ * query.
+ * <p>
+ * Once the indexes are built, pages of the articles in the order of their release years or prices are read from the
+ * buckets of the sorted indexes in order, so only the buckets the page falls into are sorted. Any other page is selected with a bounded heap, which
+ * never holds more articles than the page and the articles before it.
+ */
+final class ArticleIndex {
+
+    private static final int MAX_INITIAL_HEAP_CAPACITY = 1 << 10;
+    private final TreeMap<Integer, IntArticleMap> releaseYearIndex = new TreeMap<>();
+    private final HashMap<String, IntArticleMap> publisherIndex = new HashMap<>();
+    private final TreeMap<Long, IntArticleMap> priceIndex = new TreeMap<>();
+    private final IntArticleMap unindexedPrices = new IntArticleMap();
+    private boolean isBuilt;
+    private boolean isQueried;
+    private int priceIndexYear;
+
+    /**
+     * Returns the articles matching the query in ascending order of their identifiers, by scanning all articles.
+     *
+     * @param query    query to answer
+     * @param articles all articles
+     * @return matching articles
+     */
+    static List<Article> scan(ArticleQuery query, Iterable<Article> articles) {
+        return filter(List.of(articles), query.toPredicate(new ArticlePricing()));
+    }
+
+    /**
+     * Returns a page of the articles in the given order, by selecting the page and the articles before it from all
+     * articles with a bounded heap.
+     *
+     * @param articles   all articles
+     * @param comparator order of the articles
+     * @param offset     amount of articles to skip
+     * @param limit      maximum amount of articles to return
+     * @return page of the articles in the given order
+     */
+    static List<Article> select(Iterable<Article> articles, Comparator<Article> comparator, int offset, int limit) {
+        int count = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        if (count == 0) return Collections.emptyList();
+
+        // Keep the smallest articles seen so far in a heap with the largest of them on top
+        PriorityQueue<Article> heap = new PriorityQueue<>(Math.min(count, MAX_INITIAL_HEAP_CAPACITY), comparator.reversed());
+
+        for (Article article : articles) {
+            if (heap.size() < count) {
+                heap.add(article);
+            } else if (comparator.compare(article, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(article);
+            }
+        }
+
+        Article[] selected = heap.toArray(new Article[0]);
+        Arrays.sort(selected, comparator);
+
+        return Arrays.asList(selected).subList(Math.min(offset, selected.length), selected.length);
+    }
+
+    /**
+     * Adds an article to the indexes, if they are built already.
+     *
+     * @param article added article
+     */
+    void add(Article article) {
+        if (!isBuilt) return;
+
+        releaseYearIndex.computeIfAbsent(article.getReleaseYear(), year -> new IntArticleMap()).put(article);
+        publisherIndex.computeIfAbsent(article.getPublisher(), publisher -> new IntArticleMap()).put(article);
+        addPrice(article);
+    }
+
+    /**
+     * Removes an article from the indexes, if they are built already.
+     *
+     * @param article deleted article
+     */
+    void remove(Article article) {
+        if (!isBuilt) return;
+
+        removeFrom(releaseYearIndex, article.getReleaseYear(), article);
+        removeFrom(publisherIndex, article.getPublisher(), article);
+
+        long cents = article.getPriceCents(priceIndexYear);
+        if (cents == Article.PRICE_NOT_IN_CENTS) {
+            unindexedPrices.remove(article.getId());
+        } else {
+            removeFrom(priceIndex, cents, article);
+        }
+    }
+
+    /**
+     * Returns the articles matching the query in ascending order of their identifiers.
+     * <p>
+     * The first query scans all articles and only a later one builds the indexes. Of the publisher, release year and
+     * price indexes that apply to the query, the one with the fewest candidates is used, and only those candidates are
+     * tested against the whole query.
+     *
+     * @param query    query to answer
+     * @param articles all articles, which the indexes are built from if necessary
+     * @return matching articles
+     */
+    List<Article> find(ArticleQuery query, Collection<Article> articles) {
+        ArticlePricing pricing = new ArticlePricing();
+
+        // The indexes are not stored, so a single query is answered by scanning the articles, and only a process
+        // querying again builds them and keeps them up to date from then on
+        if (!isBuilt && !isQueried) {
+            isQueried = true;
+
+            return filter(List.of(articles), query.toPredicate(pricing));
+        }
+        if (!isBuilt) {
+            build(articles, pricing.getReferenceYear());
+        } else if (query.hasPriceRange() && priceIndexYear != pricing.getReferenceYear()) {
+            buildPriceIndex(articles, pricing.getReferenceYear());
+        }
+
+        List<Iterable<Article>> candidates = List.of(articles);
+        int candidateCount = articles.size();
+
+        if (query.publisher() != null) {
+            IntArticleMap publisherArticles = publisherIndex.get(query.publisher());
+
+            if (publisherArticles == null) return Collections.emptyList();
+            if (publisherArticles.size() < candidateCount) {
+                candidates = List.of(publisherArticles.values());
+                candidateCount = publisherArticles.size();
+            }
+        }
+
+        if (query.hasReleaseYearRange()) {
+            Collection<IntArticleMap> releaseYears = releaseYearIndex.subMap(query.minReleaseYear(), true, query.maxReleaseYear(), true).values();
+            int count = countUpTo(releaseYears, candidateCount);
+
+            if (count < candidateCount) {
+                candidates = valuesOf(releaseYears);
+                candidateCount = count;
+            }
+        }
+
+        if (query.hasPriceRange() && query.getMinPriceCents() <= query.getMaxPriceCents()) {
+            List<IntArticleMap> prices = new ArrayList<>(priceIndex.subMap(query.getMinPriceCents(), true, query.getMaxPriceCents(), true).values());
+            prices.add(unindexedPrices);
+            int count = countUpTo(prices, candidateCount);
+
+            if (count < candidateCount) {
+                candidates = valuesOf(prices);
+            }
+        }
+
+        return filter(candidates, query.toPredicate(pricing));
+    }
+
+    /**
+     * Returns a page of the articles in the given order.
+     * <p>
+     * Pages in the order of release years or prices are read from the sorted indexes, skipping every bucket before the
+     * page as a whole. Pages in the order of titles, pages in the order of prices while some price cannot be given in
+     * whole cents and any page before the indexes are built are selected from all articles instead, since building the
+     * indexes for a single page costs more than selecting it.
+     *
+     * @param order        order of the articles
+     * @param isDescending whether the order is reversed
+     * @param offset       amount of articles to skip
+     * @param limit        maximum amount of articles to return
+     * @param articles     all articles
+     * @return page of the articles in the given order
+     */
+    List<Article> getSorted(ArticleOrder order, boolean isDescending, int offset, int limit, Collection<Article> articles) {
+        ArticlePricing pricing = new ArticlePricing();
+        Comparator<Article> comparator = order.getComparator(pricing, isDescending);
+
+        if (!isBuilt) return select(articles, comparator, offset, limit);
+
+        if (order == ArticleOrder.PRICE && priceIndexYear != pricing.getReferenceYear()) {
+            buildPriceIndex(articles, pricing.getReferenceYear());
+        }
+
+        NavigableMap<?, IntArticleMap> index = switch (order) {
+            case RELEASE_YEAR -> releaseYearIndex;
+            case PRICE -> unindexedPrices.size() == 0 ? priceIndex : null;
+            case TITLE -> null;
+        };
+
+        if (index == null) return select(articles, comparator, offset, limit);
+
+        Collection<IntArticleMap> buckets = isDescending ? index.descendingMap().values() : index.values();
+        List<Article> page = new ArrayList<>();
+        int skipped = offset;
+
+        for (IntArticleMap bucket : buckets) {
+            if (page.size() == limit) break;
+
+            if (skipped >= bucket.size()) {
+                skipped -= bucket.size();
+            } else {
+                page.addAll(select(bucket.values(), comparator, skipped, limit - page.size()));
+                skipped = 0;
+            }
+        }
+
+        return page;
+    }
+
+    private void build(Collection<Article> articles, int referenceYear) {
+        isBuilt = true;
+        priceIndexYear = referenceYear;
+
+        articles.forEach(this::add);
+    }
+
+    private void buildPriceIndex(Collection<Article> articles, int referenceYear) {
+        priceIndex.clear();
+        priceIndexYear = referenceYear;
+
+        // The unindexed prices cannot change with the year, since their base price stays the same
+        for (Article article : articles) {
+            if (!unindexedPrices.containsKey(article.getId())) {
+                addPrice(article);
+            }
+        }
+    }
+
+    private void addPrice(Article article) {
+        long cents = article.getPriceCents(priceIndexYear);
+
+        if (cents == Article.PRICE_NOT_IN_CENTS) {
+            unindexedPrices.put(article);
+        } else {
+            priceIndex.computeIfAbsent(cents, price -> new IntArticleMap()).put(article);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, IntArticleMap> index, K key, Article article) {
+        IntArticleMap articles = index.get(key);
+
+        // Drop the key from the index once its last article is gone
+        if (articles != null && articles.remove(article.getId()) != null && articles.size() == 0) {
+            index.remove(key);
+        }
+    }
+
+    private static int countUpTo(Collection<IntArticleMap> buckets, int limit) {
+        int count = 0;
+
+        // Stop counting once there are more candidates than with the best index so far
+        for (IntArticleMap bucket : buckets) {
+            count += bucket.size();
+
+            if (count >= limit) return limit;
+        }
+
+        return count;
+    }
+
+    private static List<Iterable<Article>> valuesOf(Collection<IntArticleMap> buckets) {
+        List<Iterable<Article>> values = new ArrayList<>(buckets.size());
+
+        for (IntArticleMap bucket : buckets) {
+            values.add(bucket.values());
+        }
+
+        return values;
+    }
+
+    private static List<Article> filter(List<Iterable<Article>> candidates, Predicate<Article> predicate) {
+        List<Article> matches = new ArrayList<>();
+
+        for (Iterable<Article> bucket : candidates) {
+            for (Article article : bucket) {
+                if (predicate.test(article)) {
+                    matches.add(article);
+                }
+            }
+        }
+
+        matches.sort(Comparator.comparingInt(Article::getId));
+
+        return matches;
+    }
+}
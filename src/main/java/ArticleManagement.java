@@ -3,21 +3,33 @@
  * @id 11908284
  */
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Collection;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Objects;
 import java.util.function.Predicate;
 
 class ArticleManagement {
 
+    private static final String ERR_MSG_NO_CHANGE_LOG = "Error: Changes are not logged.";
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
     private final ArticleDAO articleDAO;
 
     ArticleManagement(ArticleDAO articleDAO) {
         this.articleDAO = articleDAO;
     }
 
+    /**
+     * Closes the data access object, which stores its pending changes.
+     *
+     * @throws RuntimeException if pending changes could not be written
+     */
+    void close() {
+        articleDAO.close();
+    }
+
     List<Article> getArticleList() {
         return articleDAO.getArticleList();
     }
@@ -30,17 +42,116 @@ class ArticleManagement {
         articleDAO.saveArticle(article);
     }
 
+    void saveAll(Collection<Article> articles) {
+        articleDAO.saveAll(articles);
+    }
+
     void deleteArticle(int id) {
         articleDAO.deleteArticle(id);
     }
 
+    /**
+     * Deletes all articles with the given identifiers at once, or none of them if any could not be found.
+     *
+     * @param ids identifiers of the articles to delete
+     */
+    void deleteArticles(int[] ids) {
+        articleDAO.deleteAll(ids);
+    }
+
+    /**
+     * Writes all changes with a sequence number greater than the given one as JSON Lines, one line per stored, updated
+     * or deleted article.
+     *
+     * @param sequence last sequence number that is not written
+     * @param out      output to write into
+     * @throws IllegalStateException if the changes of the articles are not logged
+     * @throws RuntimeException      if the change log could not be read
+     */
+    void writeChangesSince(long sequence, OutputStream out) {
+        ArticleChangeLog changeLog = articleDAO.getChangeLog();
+
+        if (changeLog == null) throw new IllegalStateException(ERR_MSG_NO_CHANGE_LOG);
+
+        changeLog.writeSince(sequence, out);
+    }
+
+    /**
+     * Deletes all articles matching the predicate at once.
+     *
+     * @param predicate predicate selecting the articles to delete
+     * @return amount of deleted articles
+     */
+    int deleteArticles(Predicate<Article> predicate) {
+        return articleDAO.deleteWhere(predicate);
+    }
+
+    /**
+     * Changes the base price of all articles matching the predicate by the given percentage at once.
+     *
+     * @param predicate predicate selecting the articles to reprice
+     * @param percent   percentage to add to the base prices, which is negative to lower them
+     * @return amount of repriced articles
+     * @throws IllegalArgumentException if the percentage would make the base prices negative
+     */
+    int repriceArticles(Predicate<Article> predicate, BigDecimal percent) {
+        if (percent.compareTo(ONE_HUNDRED.negate()) < 0) throw new IllegalArgumentException(ArticleCLI.ERR_MSG_INVALID_PARAMETER);
+
+        BigDecimal factor = ONE_HUNDRED.add(percent);
+        List<Article> repricedArticles = articleDAO.getArticleList().stream()
+                .filter(predicate)
+                .map(article -> article.withBasePrice(article.getBasePrice().multiply(factor)
+                        .divide(ONE_HUNDRED, Article.PRICE_DECIMAL_COUNT, RoundingMode.HALF_UP)))
+                .toList();
+
+        if (!repricedArticles.isEmpty()) {
+            articleDAO.updateAll(repricedArticles);
+        }
+
+        return repricedArticles.size();
+    }
+
+    /**
+     * Returns the articles matching the query in ascending order of their identifiers.
+     *
+     * @param query query to answer
+     * @return matching articles
+     */
+    List<Article> findArticles(ArticleQuery query) {
+        return articleDAO.find(query);
+    }
+
+    /**
+     * Returns a page of the articles in the given order, without sorting all articles.
+     *
+     * @param order        order of the articles
+     * @param isDescending whether the order is reversed
+     * @param offset       amount of articles to skip
+     * @param limit        maximum amount of articles to return
+     * @return page of the articles in the given order
+     */
+    List<Article> getSortedArticles(ArticleOrder order, boolean isDescending, int offset, int limit) {
+        return articleDAO.getSortedArticles(order, isDescending, offset, limit);
+    }
+
+    /**
+     * Returns the articles whose title or publisher contains a word starting with every one of the search terms, in
+     * ascending order of their identifiers.
+     *
+     * @param terms search terms
+     * @return matching articles
+     */
+    List<Article> searchArticles(List<String> terms) {
+        return articleDAO.search(terms);
+    }
+
     /**
      * Returns the total amount of articles.
      *
      * @return total amount of articles
      */
     int getArticlesTotalAmount() {
-        return articleDAO.getArticleList().size();
+        return articleDAO.getStatistics().getArticleCount();
     }
 
     /**
@@ -49,7 +160,7 @@ class ArticleManagement {
      * @return total amount of books among the articles
      */
     int getBooksTotalAmount() {
-        return articleDAO.getArticleList().stream().filter(article -> article instanceof Book).toList().size();
+        return articleDAO.getStatistics().getBookCount();
     }
 
     /**
@@ -58,7 +169,7 @@ class ArticleManagement {
      * @return total amount of DVDs among the articles
      */
     int getDVDsTotalAmount() {
-        return articleDAO.getArticleList().stream().filter(article -> article instanceof DVD).toList().size();
+        return articleDAO.getStatistics().getDVDCount();
     }
 
     /**
@@ -67,7 +178,9 @@ class ArticleManagement {
      * @return list of raw article prices
      */
     List<BigDecimal> getArticlePrices() {
-        return articleDAO.getArticleList().stream().map(Article::getPrice).toList();
+        ArticlePricing pricing = new ArticlePricing();
+
+        return articleDAO.getArticleList().stream().map(pricing::getPrice).toList();
     }
 
     /**
@@ -76,7 +189,7 @@ class ArticleManagement {
      * @return sum of the article prices
      */
     BigDecimal getArticlePriceSum() {
-        return getArticlePrices().stream().map(Objects::requireNonNull).reduce(BigDecimal.ZERO, BigDecimal::add);
+        return articleDAO.getStatistics().getPriceSum();
     }
 
     /**
@@ -88,6 +201,21 @@ class ArticleManagement {
         return getArticlePriceSum().divide(new BigDecimal(getArticlesTotalAmount()), RoundingMode.HALF_UP);
     }
 
+    /**
+     * Returns the counts, price aggregates and oldest articles, which are calculated in a single parallel pass over all
+     * articles.
+     *
+     * @return aggregates of all articles
+     */
+    ArticleAggregator.Result getAggregates() {
+        ArticleMetrics metrics = ArticleMetrics.getInstance();
+
+        // The reference year is taken once, so all prices are calculated for the same year
+        if (!metrics.isEnabled()) return articleDAO.aggregate(new ArticlePricing());
+
+        return metrics.time("management.getAggregates", () -> articleDAO.aggregate(new ArticlePricing()));
+    }
+
     /**
      * Returns the oldest release year among the articles.
      *
@@ -95,8 +223,8 @@ class ArticleManagement {
      * @throws NoSuchElementException if there are no articles or the oldest year could not be determined
      */
     int getOldestReleaseYear() {
-        // Find the earliest release year in the article list
-        return articleDAO.getArticleList().stream().mapToInt(Article::getReleaseYear).reduce(Integer::min).orElseThrow();
+        // Find the earliest release year in the release year histogram
+        return articleDAO.getStatistics().getOldestReleaseYear();
     }
 
     /**
@@ -105,11 +233,11 @@ class ArticleManagement {
      * @return list of the oldest article id(s)
      */
     List<Integer> getOldestArticleIds() {
-        int oldestReleaseYear = getOldestReleaseYear();
-        Predicate<Article> isOldArticle = article -> article.getReleaseYear() == oldestReleaseYear;
+        ArticleMetrics metrics = ArticleMetrics.getInstance();
+
+        if (!metrics.isEnabled()) return articleDAO.getOldestArticleIds();
 
-        // Returns a list of the ids of the oldest article
-        return articleDAO.getArticleList().stream().filter(isOldArticle).mapToInt(Article::getId).boxed().toList();
+        return metrics.time("management.getOldestArticleIds", articleDAO::getOldestArticleIds);
     }
 
 }
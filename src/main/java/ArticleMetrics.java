@@ -0,0 +1,302 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * ArticleMetrics is the registry of the counters and latency histograms, which are recorded while the application runs.
+ * <p>
+ * Recording is disabled by default, so the instrumented code paths only pay for a single check of a volatile flag. Once
+ * enabled, every timed operation is recorded into a histogram of its name, and every byte read or written by a data
+ * access object is counted for the operation that is running on the same thread. All metrics can be recorded by any
+ * amount of threads at once and are printed either as a summary table or as a single line of JSON.
+ */
+final class ArticleMetrics {
+
+    private static final ArticleMetrics INSTANCE = new ArticleMetrics();
+    private static final String BYTES_READ_SUFFIX = ".bytesRead";
+    private static final String BYTES_WRITTEN_SUFFIX = ".bytesWritten";
+    private static final String UNATTRIBUTED_OPERATION = "other";
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> currentOperation = new ThreadLocal<>();
+    private volatile boolean enabled;
+
+    private ArticleMetrics() {
+    }
+
+    /**
+     * Returns the registry of the application.
+     *
+     * @return registry of the application
+     */
+    static ArticleMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables recording for the rest of the application's run.
+     */
+    void enable() {
+        enabled = true;
+    }
+
+    /**
+     * Adds the amount to the counter of the given name.
+     *
+     * @param name   name of the counter
+     * @param amount amount to add
+     */
+    void count(String name, long amount) {
+        if (!enabled) return;
+
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+    }
+
+    /**
+     * Counts bytes that were read for the operation running on the current thread.
+     *
+     * @param amount amount of bytes
+     */
+    void countBytesRead(long amount) {
+        if (!enabled) return;
+
+        count(getCurrentOperation() + BYTES_READ_SUFFIX, amount);
+    }
+
+    /**
+     * Counts bytes that were written for the operation running on the current thread.
+     *
+     * @param amount amount of bytes
+     */
+    void countBytesWritten(long amount) {
+        if (!enabled) return;
+
+        count(getCurrentOperation() + BYTES_WRITTEN_SUFFIX, amount);
+    }
+
+    private String getCurrentOperation() {
+        String operation = currentOperation.get();
+
+        return operation == null ? UNATTRIBUTED_OPERATION : operation;
+    }
+
+    /**
+     * Runs the operation and records its latency into the histogram of the given name. Nested operations are recorded
+     * on their own, while the bytes they read or write are counted for the innermost one.
+     *
+     * @param name      name of the operation
+     * @param operation operation to run
+     * @param <T>       type of the operation's result
+     * @return result of the operation
+     */
+    <T> T time(String name, Supplier<T> operation) {
+        if (!enabled) return operation.get();
+
+        String outerOperation = currentOperation.get();
+        long startTime = System.nanoTime();
+
+        currentOperation.set(name);
+        try {
+            return operation.get();
+        } finally {
+            currentOperation.set(outerOperation);
+            histograms.computeIfAbsent(name, key -> new Histogram()).record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Runs the operation and records its latency into the histogram of the given name.
+     *
+     * @param name      name of the operation
+     * @param operation operation to run
+     */
+    void time(String name, Runnable operation) {
+        time(name, () -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Returns a table of all metrics, with one line per histogram including the bytes counted for its operation,
+     * followed by one line per remaining counter.
+     *
+     * @return summary of all metrics
+     */
+    String toSummary() {
+        StringBuilder summary = new StringBuilder();
+        Map<String, Long> remainingCounters = getCounters();
+
+        summary.append(String.format("%-36s %10s %12s %12s %12s %12s %14s %14s%n", "Operation", "Count", "Mean us",
+                "p50 us", "p99 us", "Max us", "Bytes read", "Bytes written"));
+
+        getHistograms().forEach((name, histogram) -> {
+            Long bytesRead = remainingCounters.remove(name + BYTES_READ_SUFFIX);
+            Long bytesWritten = remainingCounters.remove(name + BYTES_WRITTEN_SUFFIX);
+
+            summary.append(String.format("%-36s %10d %12.1f %12.1f %12.1f %12.1f %14d %14d%n", name,
+                    histogram.getCount(), histogram.getMean() / 1e3, histogram.getPercentile(50) / 1e3,
+                    histogram.getPercentile(99) / 1e3, histogram.getMax() / 1e3,
+                    bytesRead == null ? 0 : bytesRead, bytesWritten == null ? 0 : bytesWritten));
+        });
+
+        remainingCounters.forEach((name, value) -> summary.append(String.format("%-36s %10d%n", name, value)));
+
+        return summary.toString();
+    }
+
+    /**
+     * Returns all metrics as a single line of JSON, with the counters as numbers and the histograms as objects of their
+     * count, sum, minimum, maximum and percentiles in nanoseconds.
+     *
+     * @return all metrics as JSON
+     */
+    String toJson() {
+        StringBuilder json = new StringBuilder("{\"counters\":{");
+
+        String separator = "";
+        for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+            json.append(separator).append('"').append(counter.getKey()).append("\":").append(counter.getValue());
+            separator = ",";
+        }
+
+        json.append("},\"histograms\":{");
+
+        separator = "";
+        for (Map.Entry<String, Histogram> entry : getHistograms().entrySet()) {
+            Histogram histogram = entry.getValue();
+
+            json.append(separator).append('"').append(entry.getKey()).append("\":{")
+                    .append("\"count\":").append(histogram.getCount())
+                    .append(",\"sumNanos\":").append(histogram.getSum())
+                    .append(",\"minNanos\":").append(histogram.getMin())
+                    .append(",\"maxNanos\":").append(histogram.getMax())
+                    .append(",\"p50Nanos\":").append(histogram.getPercentile(50))
+                    .append(",\"p90Nanos\":").append(histogram.getPercentile(90))
+                    .append(",\"p99Nanos\":").append(histogram.getPercentile(99))
+                    .append(",\"p999Nanos\":").append(histogram.getPercentile(99.9))
+                    .append('}');
+            separator = ",";
+        }
+
+        return json.append("}}").toString();
+    }
+
+    private Map<String, Long> getCounters() {
+        Map<String, Long> sortedCounters = new TreeMap<>();
+
+        counters.forEach((name, counter) -> sortedCounters.put(name, counter.sum()));
+
+        return sortedCounters;
+    }
+
+    private Map<String, Histogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    /**
+     * Histogram counts latencies in buckets, whose width grows with the latency, as HdrHistogram does.
+     * <p>
+     * Every power of two is split into the same amount of linear sub-buckets, so any recorded value is reported with a
+     * relative error of at most 1/32, while the whole range of non-negative longs fits into less than two thousand
+     * buckets.
+     */
+    private static final class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong();
+
+        private static int getBucketIndex(long value) {
+            // Values below twice the sub-bucket count get a bucket each, all larger ones keep their top six bits
+            int shift = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS - 1);
+
+            return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+        }
+
+        private static long getBucketValue(int index) {
+            int shift = Math.max(0, index / SUB_BUCKET_COUNT - 1);
+            long lowestValue = (long) (index - shift * SUB_BUCKET_COUNT) << shift;
+
+            // Report the middle of the bucket, which halves the error of reporting either of its bounds
+            return lowestValue + ((1L << shift) >>> 1);
+        }
+
+        /**
+         * Records a latency.
+         *
+         * @param nanos latency in nanoseconds, negative values are recorded as zero
+         */
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+
+            buckets.incrementAndGet(getBucketIndex(value));
+            count.increment();
+            sum.add(value);
+            min.accumulateAndGet(value, Math::min);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        long getSum() {
+            return sum.sum();
+        }
+
+        long getMin() {
+            return getCount() == 0 ? 0 : min.get();
+        }
+
+        long getMax() {
+            return max.get();
+        }
+
+        double getMean() {
+            long recordedCount = getCount();
+
+            return recordedCount == 0 ? 0 : (double) getSum() / recordedCount;
+        }
+
+        /**
+         * Returns the latency, which the given percentage of the recorded latencies does not exceed.
+         *
+         * @param percentile percentage between 0 and 100
+         * @return latency at the percentile in nanoseconds, or 0 if nothing was recorded
+         */
+        long getPercentile(double percentile) {
+            long recordedCount = getCount();
+            if (recordedCount == 0) return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * recordedCount));
+            long seen = 0;
+
+            for (int index = 0; index < BUCKET_COUNT; index++) {
+                seen += buckets.get(index);
+
+                if (seen >= rank) return Math.min(Math.max(getBucketValue(index), getMin()), getMax());
+            }
+
+            return getMax();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.util.Comparator;
+
+/**
+ * ArticleOrder is the property the {@code list --sort} and {@code top --by} commands order the articles by. Articles
+ * with the same value of the property are ordered by their identifiers, so every order is total.
+ */
+enum ArticleOrder {
+
+    PRICE("price"),
+    RELEASE_YEAR("year"),
+    TITLE("title");
+
+    private final String key;
+
+    ArticleOrder(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Returns the order with the given key as it is given on the command line.
+     *
+     * @param key one of {@code price}, {@code year} and {@code title}
+     * @return order with the given key
+     * @throws IllegalArgumentException if there is no order with the given key
+     */
+    static ArticleOrder fromKey(String key) {
+        for (ArticleOrder order : values()) {
+            if (order.key.equals(key)) return order;
+        }
+
+        throw new IllegalArgumentException(ArticleCLI.ERR_MSG_INVALID_PARAMETER);
+    }
+
+    /**
+     * Returns the comparator of this order.
+     *
+     * @param pricing      pricing to compare the prices with
+     * @param isDescending whether the order is reversed
+     * @return comparator of this order
+     */
+    Comparator<Article> getComparator(ArticlePricing pricing, boolean isDescending) {
+        Comparator<Article> comparator = switch (this) {
+            case PRICE -> (first, second) -> comparePrices(pricing, first, second);
+            case RELEASE_YEAR -> Comparator.comparingInt(Article::getReleaseYear);
+            case TITLE -> Comparator.comparing(Article::getTitle);
+        };
+
+        comparator = comparator.thenComparingInt(Article::getId);
+
+        return isDescending ? comparator.reversed() : comparator;
+    }
+
+    private static int comparePrices(ArticlePricing pricing, Article first, Article second) {
+        long firstCents = pricing.getPriceCents(first);
+        long secondCents = pricing.getPriceCents(second);
+
+        // Only prices that are not given in cents are compared as BigDecimal
+        if (firstCents != Article.PRICE_NOT_IN_CENTS && secondCents != Article.PRICE_NOT_IN_CENTS) {
+            return Long.compare(firstCents, secondCents);
+        }
+
+        return pricing.getPrice(first).compareTo(pricing.getPrice(second));
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Year;
+
+/**
+ * ArticlePricing calculates the prices of articles for a single query.
+ * <p>
+ * The reference year is taken once when the instance is created, so the discounts of all articles are calculated for
+ * the same year. Prices are accumulated in cents as longs and every article caches its price for the reference year,
+ * so summing the prices of all articles does not allocate any BigDecimal as long as the base prices are given in cents
+ * and the sum does not overflow.
+ */
+final class ArticlePricing {
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private final int referenceYear;
+
+    /**
+     * Creates an instance of ArticlePricing for the current year.
+     */
+    ArticlePricing() {
+        this(getCurrentYear());
+    }
+
+    /**
+     * Returns the current year in the default time zone.
+     * <p>
+     * Loading the time zone rules takes longer than most commands do, so the year is taken from the UTC date, unless it
+     * is the first or last day of a year, where the offset of the default time zone might move the date into another
+     * year.
+     *
+     * @return current year
+     */
+    static int getCurrentYear() {
+        LocalDate utcDate = LocalDate.ofEpochDay(Math.floorDiv(System.currentTimeMillis(), MILLIS_PER_DAY));
+
+        if (utcDate.getDayOfYear() > 1 && utcDate.getDayOfYear() < utcDate.lengthOfYear()) {
+            return utcDate.getYear();
+        }
+
+        return Year.now().getValue();
+    }
+
+    /**
+     * Creates an instance of ArticlePricing.
+     *
+     * @param referenceYear year in which the discounts apply
+     */
+    ArticlePricing(int referenceYear) {
+        this.referenceYear = referenceYear;
+    }
+
+    int getReferenceYear() {
+        return referenceYear;
+    }
+
+    /**
+     * Returns the price of the article in cents in the reference year.
+     *
+     * @param article article to price
+     * @return price of the article in cents or {@link Article#PRICE_NOT_IN_CENTS}
+     */
+    long getPriceCents(Article article) {
+        return article.getPriceCents(referenceYear);
+    }
+
+    /**
+     * Returns the price of the article in the reference year.
+     *
+     * @param article article to price
+     * @return price of the article
+     */
+    BigDecimal getPrice(Article article) {
+        return article.getPrice(referenceYear);
+    }
+
+    /**
+     * Returns the sum of the prices of the articles in the reference year.
+     *
+     * @param articles articles to price
+     * @return sum of the prices of the articles
+     */
+    BigDecimal sumPrices(Iterable<Article> articles) {
+        long sumCents = 0;
+        BigDecimal sum = null;
+
+        for (Article article : articles) {
+            long cents = article.getPriceCents(referenceYear);
+
+            if (cents != Article.PRICE_NOT_IN_CENTS) {
+                try {
+                    sumCents = Math.addExact(sumCents, cents);
+                    continue;
+                } catch (ArithmeticException e) {
+                    // Fall through and continue the sum in BigDecimal
+                }
+            }
+
+            // Only prices that are not given in cents or overflow the long sum are added up in BigDecimal
+            sum = (sum == null ? BigDecimal.ZERO : sum).add(article.getPrice(referenceYear));
+        }
+
+        BigDecimal centsSum = BigDecimal.valueOf(sumCents, Article.PRICE_DECIMAL_COUNT);
+
+        return sum == null ? centsSum : sum.add(centsSum);
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * ArticleQuery describes which articles the {@code find} command selects. Every predicate is optional, an article has
+ * to match all given predicates, and every range includes both of its bounds.
+ *
+ * @param type           article class, or null for any type
+ * @param publisher      publisher name, or null for any publisher
+ * @param minReleaseYear lowest release year
+ * @param maxReleaseYear highest release year
+ * @param minPrice       lowest price, or null for no lower bound
+ * @param maxPrice       highest price, or null for no upper bound
+ * @param minMinAge      lowest minimum age of a DVD
+ * @param maxMinAge      highest minimum age of a DVD
+ * @param minPages       lowest page count of a book
+ * @param maxPages       highest page count of a book
+ */
+record ArticleQuery(Class<? extends Article> type, String publisher, int minReleaseYear, int maxReleaseYear,
+                    BigDecimal minPrice, BigDecimal maxPrice, int minMinAge, int maxMinAge, int minPages, int maxPages) {
+
+    private static final String RANGE_SEPARATOR = "..";
+
+    /**
+     * Creates an ArticleQuery from a sequence of command line arguments.
+     * <p>
+     * Every argument has the form {@code <key>=<value>}, where the key is one of {@code type}, {@code publisher},
+     * {@code year}, {@code price}, {@code minage} and {@code pages}. The type is either {@code book} or {@code dvd}, all
+     * other keys but the publisher take a single value or a range {@code <from>..<to>}, where either bound may be left
+     * out. Giving a minimum age or page count restricts the query to DVDs or books respectively.
+     *
+     * @param arguments query arguments
+     * @return query described by the arguments
+     * @throws IllegalArgumentException if the arguments could not be parsed successfully
+     */
+    static ArticleQuery newFromArgs(List<String> arguments) {
+        Class<? extends Article> type = null;
+        String publisher = null;
+        int[] releaseYears = {Integer.MIN_VALUE, Integer.MAX_VALUE};
+        BigDecimal[] prices = {null, null};
+        int[] minAges = {Integer.MIN_VALUE, Integer.MAX_VALUE};
+        int[] pages = {Integer.MIN_VALUE, Integer.MAX_VALUE};
+
+        for (String argument : arguments) {
+            int separator = argument.indexOf('=');
+            if (separator < 0) throw new IllegalArgumentException(ArticleCLI.ERR_MSG_INVALID_PARAMETER);
+
+            String value = argument.substring(separator + 1);
+
+            switch (argument.substring(0, separator)) {
+                case "type" -> type = switch (value) {
+                    case "book" -> Book.class;
+                    case "dvd" -> DVD.class;
+                    default -> throw new IllegalArgumentException(ArticleCLI.ERR_MSG_INVALID_PARAMETER);
+                };
+                case "publisher" -> publisher = value;
+                case "year" -> releaseYears = parseIntRange(value);
+                case "price" -> prices = parseBigDecimalRange(value);
+                case "minage" -> minAges = parseIntRange(value);
+                case "pages" -> pages = parseIntRange(value);
+                default -> throw new IllegalArgumentException(ArticleCLI.ERR_MSG_INVALID_PARAMETER);
+            }
+        }
+
+        boolean hasMinAges = minAges[0] != Integer.MIN_VALUE || minAges[1] != Integer.MAX_VALUE;
+        boolean hasPages = pages[0] != Integer.MIN_VALUE || pages[1] != Integer.MAX_VALUE;
+
+        // The minimum age only exists for DVDs and the page count only for books
+        if (hasMinAges && hasPages || hasMinAges && type == Book.class || hasPages && type == DVD.class) {
+            throw new IllegalArgumentException(ArticleCLI.ERR_MSG_INVALID_PARAMETER);
+        }
+        if (hasMinAges) type = DVD.class;
+        if (hasPages) type = Book.class;
+
+        return new ArticleQuery(type, publisher, releaseYears[0], releaseYears[1], prices[0], prices[1], minAges[0], minAges[1], pages[0], pages[1]);
+    }
+
+    private static int[] parseIntRange(String range) {
+        String[] bounds = splitRange(range);
+
+        return new int[]{
+                bounds[0].isEmpty() ? Integer.MIN_VALUE : Article.parseIntFromArgs(List.of(bounds[0]), 0),
+                bounds[1].isEmpty() ? Integer.MAX_VALUE : Article.parseIntFromArgs(List.of(bounds[1]), 0)
+        };
+    }
+
+    private static BigDecimal[] parseBigDecimalRange(String range) {
+        String[] bounds = splitRange(range);
+
+        return new BigDecimal[]{
+                bounds[0].isEmpty() ? null : Article.parseBigDecimalFromArgs(List.of(bounds[0]), 0),
+                bounds[1].isEmpty() ? null : Article.parseBigDecimalFromArgs(List.of(bounds[1]), 0)
+        };
+    }
+
+    private static String[] splitRange(String range) {
+        int separator = range.indexOf(RANGE_SEPARATOR);
+
+        if (separator < 0) {
+            if (range.isEmpty()) throw new IllegalArgumentException(ArticleCLI.ERR_MSG_INVALID_PARAMETER);
+
+            return new String[]{range, range};
+        }
+
+        return new String[]{range.substring(0, separator), range.substring(separator + RANGE_SEPARATOR.length())};
+    }
+
+    boolean hasReleaseYearRange() {
+        return minReleaseYear != Integer.MIN_VALUE || maxReleaseYear != Integer.MAX_VALUE;
+    }
+
+    boolean hasPriceRange() {
+        return minPrice != null || maxPrice != null;
+    }
+
+    /**
+     * Returns the lowest price in cents, which is the lower bound rounded up to whole cents.
+     *
+     * @return lowest price in cents
+     */
+    long getMinPriceCents() {
+        return minPrice == null ? Long.MIN_VALUE : toCents(minPrice.setScale(Article.PRICE_DECIMAL_COUNT, RoundingMode.CEILING));
+    }
+
+    /**
+     * Returns the highest price in cents, which is the upper bound rounded down to whole cents.
+     *
+     * @return highest price in cents
+     */
+    long getMaxPriceCents() {
+        return maxPrice == null ? Long.MAX_VALUE : toCents(maxPrice.setScale(Article.PRICE_DECIMAL_COUNT, RoundingMode.FLOOR));
+    }
+
+    private static long toCents(BigDecimal price) {
+        BigDecimal cents = price.movePointRight(Article.PRICE_DECIMAL_COUNT);
+
+        // Bounds beyond the range of long include every price in that direction anyway
+        if (cents.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0) return Long.MAX_VALUE;
+        if (cents.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) < 0) return Long.MIN_VALUE;
+
+        return cents.longValueExact();
+    }
+
+    /**
+     * Returns the predicate which tests whether an article matches all predicates of the query.
+     *
+     * @param pricing pricing for the price range
+     * @return predicate matching the articles selected by the query
+     */
+    Predicate<Article> toPredicate(ArticlePricing pricing) {
+        // Convert the price bounds only once instead of for every tested article
+        long minPriceCents = getMinPriceCents();
+        long maxPriceCents = getMaxPriceCents();
+
+        return article -> test(article, pricing, minPriceCents, maxPriceCents);
+    }
+
+    private boolean test(Article article, ArticlePricing pricing, long minPriceCents, long maxPriceCents) {
+        if (type != null && !type.isInstance(article)) return false;
+        if (publisher != null && !publisher.equals(article.getPublisher())) return false;
+        if (article.getReleaseYear() < minReleaseYear || article.getReleaseYear() > maxReleaseYear) return false;
+
+        if (article instanceof DVD dvd && (dvd.getMinAge() < minMinAge || dvd.getMinAge() > maxMinAge)) return false;
+        if (article instanceof Book book && (book.getPages() < minPages || book.getPages() > maxPages)) return false;
+
+        if (hasPriceRange()) {
+            long cents = pricing.getPriceCents(article);
+
+            if (cents != Article.PRICE_NOT_IN_CENTS) return cents >= minPriceCents && cents <= maxPriceCents;
+
+            BigDecimal price = pricing.getPrice(article);
+
+            return (minPrice == null || price.compareTo(minPrice) >= 0) && (maxPrice == null || price.compareTo(maxPrice) <= 0);
+        }
+
+        return true;
+    }
+}
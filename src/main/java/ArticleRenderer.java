@@ -0,0 +1,113 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.text.FieldPosition;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * ArticleRenderer writes the descriptions of articles into an output one after another.
+ * <p>
+ * Each description is built in a single reusable buffer with a number format that is created once, and then written
+ * into the output right away, so rendering any amount of articles keeps the memory usage flat. The descriptions match
+ * the ones formatted with MessageFormat before, including the locale-specific formatting of prices and page counts.
+ */
+final class ArticleRenderer {
+
+    static final String ERR_MSG_OUTPUT = "Error during output.";
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private final Writer out;
+    private final StringBuilder buffer = new StringBuilder(256);
+    private final StringBuffer numberBuffer = new StringBuffer(16);
+    private final FieldPosition fieldPosition = new FieldPosition(0);
+    private final NumberFormat numberFormat = NumberFormat.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+
+    /**
+     * Creates an instance of ArticleRenderer.
+     *
+     * @param out output to write the descriptions into, or null if they are only rendered into strings
+     */
+    ArticleRenderer(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Returns the description of the article, as it is written by {@link #write(Article)}.
+     *
+     * @param article article to describe
+     * @return description of the article
+     */
+    static String toString(Article article) {
+        ArticleRenderer renderer = new ArticleRenderer(null);
+
+        renderer.append(article);
+
+        return renderer.buffer.toString();
+    }
+
+    /**
+     * Writes the description of the article followed by an empty line into the output.
+     *
+     * @param article article to describe
+     * @throws RuntimeException if the output could not be written
+     */
+    void write(Article article) {
+        buffer.setLength(0);
+        append(article);
+        buffer.append(LINE_SEPARATOR);
+
+        try {
+            out.append(buffer);
+        } catch (IOException e) {
+            throw new RuntimeException(ERR_MSG_OUTPUT, e);
+        }
+    }
+
+    /**
+     * Writes all buffered descriptions into the underlying output.
+     *
+     * @throws RuntimeException if the output could not be written
+     */
+    void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(ERR_MSG_OUTPUT, e);
+        }
+    }
+
+    private void append(Article article) {
+        // Every line of the description ends with a line separator, including the last one
+        buffer.append("Type:       ").append(article.getClass().getSimpleName()).append(LINE_SEPARATOR);
+        buffer.append("Id:         ").append(article.getId()).append(LINE_SEPARATOR);
+        buffer.append("Title:      ").append(article.getTitle()).append(LINE_SEPARATOR);
+        buffer.append("Year:       ").append(article.getReleaseYear()).append(LINE_SEPARATOR);
+        buffer.append("Publisher:  ").append(article.getPublisher()).append(LINE_SEPARATOR);
+        appendNumber(buffer.append("Base price: "), article.getBasePrice()).append(LINE_SEPARATOR);
+        appendNumber(buffer.append("Price:      "), article.getPrice()).append(LINE_SEPARATOR);
+
+        if (article instanceof Book book) {
+            appendNumber(buffer.append("Pages:      "), book.getPages()).append(LINE_SEPARATOR);
+        } else if (article instanceof DVD dvd) {
+            buffer.append("Length:     ").append(dvd.getLength()).append(LINE_SEPARATOR);
+            buffer.append("Age rating: ").append(dvd.getMinAge()).append(LINE_SEPARATOR);
+        }
+    }
+
+    private StringBuilder appendNumber(StringBuilder builder, BigDecimal value) {
+        numberBuffer.setLength(0);
+
+        return builder.append(numberFormat.format(value, numberBuffer, fieldPosition));
+    }
+
+    private StringBuilder appendNumber(StringBuilder builder, long value) {
+        numberBuffer.setLength(0);
+
+        return builder.append(numberFormat.format(value, numberBuffer, fieldPosition));
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ArticleShell executes commands on an article management, which stays loaded between the commands.
+ * <p>
+ * The commands are read line by line, either from an input stream or from the connections to a Unix domain socket,
+ * and take the same arguments as on the command line. Arguments containing whitespace can be enclosed in double quotes.
+ * Since the catalogue is only loaded once, a command does not pay for starting the JVM and reading the file again,
+ * while every mutation is still stored by the data access object right away. A session ends with the {@code exit}
+ * command or at the end of its input.
+ */
+final class ArticleShell {
+
+    static final String ERR_MSG_SERVER = "Error during serving.";
+    private static final String EXIT_COMMAND = "exit";
+    private static final int MAX_SESSIONS = 16;
+    private final ArticleManagement articleMgmt;
+
+    /**
+     * Creates an instance of ArticleShell.
+     *
+     * @param articleMgmt article management the commands are executed on
+     */
+    ArticleShell(ArticleManagement articleMgmt) {
+        this.articleMgmt = articleMgmt;
+    }
+
+    /**
+     * Executes the commands read from the input until the exit command or the end of the input.
+     *
+     * @param in  input to read the commands from
+     * @param out output for the commands
+     * @throws RuntimeException if the input could not be read
+     */
+    void run(InputStream in, PrintStream out) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                List<String> commandLine = parseCommandLine(line);
+
+                if (commandLine.isEmpty()) continue;
+                if (EXIT_COMMAND.equals(commandLine.get(0))) break;
+
+                execute(commandLine, out);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(ERR_MSG_SERVER, e);
+        }
+    }
+
+    /**
+     * Listens on the Unix domain socket and runs a session for every connection until the process is stopped.
+     * <p>
+     * The connections are served by a fixed amount of session threads, so further connections wait until a session
+     * ends, while the commands of all connections are executed one after another. An existing file at the socket's path
+     * is replaced. On shutdown, the socket file is deleted again and the article management is closed once no command
+     * is executed anymore, so the data access object stores its pending changes before the process ends.
+     *
+     * @param socketPath path of the socket file
+     * @throws RuntimeException if the socket could not be opened
+     */
+    void serve(Path socketPath) {
+        ExecutorService sessions = Executors.newFixedThreadPool(MAX_SESSIONS, runnable -> {
+            Thread session = new Thread(runnable);
+            session.setDaemon(true);
+            return session;
+        });
+
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            Files.deleteIfExists(socketPath);
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socketPath);
+                } catch (IOException ignored) {
+                    // The socket file is replaced on the next start anyway
+                }
+
+                synchronized (articleMgmt) {
+                    articleMgmt.close();
+                }
+            }));
+
+            while (true) {
+                SocketChannel connection = server.accept();
+
+                sessions.execute(() -> runSession(connection));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(ERR_MSG_SERVER, e);
+        }
+    }
+
+    private void runSession(SocketChannel connection) {
+        try (connection; PrintStream out = new PrintStream(new BufferedOutputStream(Channels.newOutputStream(connection)))) {
+            run(Channels.newInputStream(connection), out);
+        } catch (IOException | RuntimeException e) {
+            // A broken connection only ends its own session
+        }
+    }
+
+    private void execute(List<String> commandLine, PrintStream out) {
+        // The data access objects are not thread-safe, so the sessions take turns
+        synchronized (articleMgmt) {
+            try {
+                ArticleCLI.executeCommand(articleMgmt, commandLine.get(0), commandLine.subList(1, commandLine.size()), out);
+            } catch (Throwable th) {
+                out.println(th.getMessage());
+            }
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Splits a command line into its arguments at whitespace, except for whitespace within double quotes.
+     *
+     * @param line command line
+     * @return arguments of the command line
+     */
+    static List<String> parseCommandLine(String line) {
+        List<String> arguments = new ArrayList<>();
+        StringBuilder argument = new StringBuilder();
+        boolean isQuoted = false;
+        boolean hasArgument = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (c == '"') {
+                isQuoted = !isQuoted;
+                hasArgument = true;
+            } else if (!isQuoted && Character.isWhitespace(c)) {
+                if (hasArgument) {
+                    arguments.add(argument.toString());
+                    argument.setLength(0);
+                    hasArgument = false;
+                }
+            } else {
+                argument.append(c);
+                hasArgument = true;
+            }
+        }
+
+        if (hasArgument) {
+            arguments.add(argument.toString());
+        }
+
+        return arguments;
+    }
+}
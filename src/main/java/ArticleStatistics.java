@@ -0,0 +1,213 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * ArticleStatistics holds the aggregates about a catalogue of articles, which are updated with every added or deleted
+ * article instead of being recalculated from all articles for every query.
+ * <p>
+ * It keeps the amount of books and DVDs, a histogram of the release years to find the oldest release year and the sum
+ * of the article prices. Since the price of a book depends on its age, the price sum is only valid for the year it was
+ * calculated in and has to be recalculated once that year has passed.
+ */
+final class ArticleStatistics implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private final TreeMap<Integer, Integer> releaseYearHistogram;
+    private int bookCount;
+    private int dvdCount;
+    private BigDecimal priceSum;
+    private int priceSumYear;
+
+    ArticleStatistics() {
+        this(0, 0, new TreeMap<>(), null, 0);
+    }
+
+    /**
+     * Creates an instance of ArticleStatistics with already known aggregates.
+     *
+     * @param bookCount            amount of books
+     * @param dvdCount             amount of DVDs
+     * @param releaseYearHistogram amount of articles per release year
+     * @param priceSum             sum of the article prices or null, if it is not known
+     * @param priceSumYear         year the price sum was calculated in
+     */
+    ArticleStatistics(int bookCount, int dvdCount, SortedMap<Integer, Integer> releaseYearHistogram, BigDecimal priceSum, int priceSumYear) {
+        this.bookCount = bookCount;
+        this.dvdCount = dvdCount;
+        this.releaseYearHistogram = new TreeMap<>(releaseYearHistogram);
+        this.priceSum = priceSum;
+        this.priceSumYear = priceSumYear;
+    }
+
+    /**
+     * Creates an instance of ArticleStatistics for the given articles. The price sum is left to be calculated when it is
+     * needed.
+     *
+     * @param articles articles to aggregate
+     * @return statistics about the articles
+     */
+    static ArticleStatistics of(Iterable<Article> articles) {
+        ArticleStatistics statistics = new ArticleStatistics();
+
+        articles.forEach(statistics::add);
+
+        return statistics;
+    }
+
+    /**
+     * Adds an article to the aggregates.
+     *
+     * @param article added article
+     */
+    void add(Article article) {
+        if (article instanceof Book) {
+            bookCount++;
+        } else {
+            dvdCount++;
+        }
+
+        releaseYearHistogram.merge(article.getReleaseYear(), 1, Integer::sum);
+
+        if (priceSum != null) {
+            priceSum = priceSum.add(article.getPrice(priceSumYear));
+        }
+    }
+
+    /**
+     * Removes an article from the aggregates.
+     *
+     * @param article deleted article
+     */
+    void remove(Article article) {
+        if (article instanceof Book) {
+            bookCount--;
+        } else {
+            dvdCount--;
+        }
+
+        // Drop the release year from the histogram once its last article is gone
+        releaseYearHistogram.computeIfPresent(article.getReleaseYear(), (year, count) -> count > 1 ? count - 1 : null);
+
+        if (priceSum != null) {
+            priceSum = priceSum.subtract(article.getPrice(priceSumYear));
+        }
+    }
+
+    /**
+     * Adds the aggregates of other articles to these aggregates. The price sum is only kept, if both price sums are known
+     * and were calculated in the same year.
+     *
+     * @param statistics aggregates of the other articles
+     */
+    void addAll(ArticleStatistics statistics) {
+        bookCount += statistics.bookCount;
+        dvdCount += statistics.dvdCount;
+        statistics.releaseYearHistogram.forEach((year, count) -> releaseYearHistogram.merge(year, count, Integer::sum));
+
+        if (priceSum != null && statistics.priceSum != null && priceSumYear == statistics.priceSumYear) {
+            priceSum = priceSum.add(statistics.priceSum);
+        } else {
+            priceSum = null;
+        }
+    }
+
+    /**
+     * Returns a copy of the aggregates, which can be changed without affecting these.
+     *
+     * @return copy of the aggregates
+     */
+    ArticleStatistics copy() {
+        return new ArticleStatistics(bookCount, dvdCount, releaseYearHistogram, priceSum, priceSumYear);
+    }
+
+    int getArticleCount() {
+        return bookCount + dvdCount;
+    }
+
+    int getBookCount() {
+        return bookCount;
+    }
+
+    int getDVDCount() {
+        return dvdCount;
+    }
+
+    /**
+     * Returns the oldest release year among the articles.
+     *
+     * @return oldest release year
+     * @throws NoSuchElementException if there are no articles
+     */
+    int getOldestReleaseYear() {
+        if (releaseYearHistogram.isEmpty()) throw new NoSuchElementException("No value present");
+
+        return releaseYearHistogram.firstKey();
+    }
+
+    /**
+     * Returns the amount of articles per release year in ascending order of the release years.
+     *
+     * @return unmodifiable release year histogram
+     */
+    SortedMap<Integer, Integer> getReleaseYearHistogram() {
+        return Collections.unmodifiableSortedMap(releaseYearHistogram);
+    }
+
+    /**
+     * Returns whether the price sum is known and was calculated in the current year.
+     *
+     * @return whether the price sum is valid
+     */
+    boolean hasCurrentPriceSum() {
+        return priceSum != null && priceSumYear == ArticlePricing.getCurrentYear();
+    }
+
+    /**
+     * Returns the sum of the article prices.
+     *
+     * @return sum of the article prices
+     * @throws IllegalStateException if the price sum has not been calculated yet
+     */
+    BigDecimal getPriceSum() {
+        if (priceSum == null) throw new IllegalStateException("Price sum has not been calculated");
+
+        return priceSum;
+    }
+
+    int getPriceSumYear() {
+        return priceSumYear;
+    }
+
+    /**
+     * Sets the sum of the article prices, which was calculated in the current year.
+     *
+     * @param priceSum sum of the article prices
+     */
+    void setPriceSum(BigDecimal priceSum) {
+        setPriceSum(priceSum, ArticlePricing.getCurrentYear());
+    }
+
+    private void setPriceSum(BigDecimal priceSum, int priceSumYear) {
+        this.priceSum = priceSum;
+        this.priceSumYear = priceSumYear;
+    }
+
+    /**
+     * Recalculates the sum of the article prices for the current year.
+     *
+     * @param articles all articles the statistics are about
+     */
+    void recalculatePriceSum(Iterable<Article> articles) {
+        ArticlePricing pricing = new ArticlePricing();
+
+        setPriceSum(pricing.sumPrices(articles), pricing.getReferenceYear());
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * BinaryArticleDAO is the data access object specialization for storing a list of articles in file on the local
+ * filesystem by encoding the articles with the compact binary format of ArticleCodec.
+ * <p>
+ * Articles the format cannot represent are rejected before anything is changed, and the file is replaced with a
+ * completely written temporary file, so a failed write never leaves a partially written file behind.
+ */
+public class BinaryArticleDAO implements ArticleDAO {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private final File file;
+    private IntArticleMap articleMap = new IntArticleMap();
+    private ArticleStatistics statistics = new ArticleStatistics();
+    private ArticleIndex index = new ArticleIndex();
+    private TextIndex textIndex;
+    private boolean isSearched;
+
+    /**
+     * Creates an instance of BinaryArticleDAO.
+     *
+     * @param filename the file used for encoding
+     * @throws RuntimeException if something goes wrong while decoding an existent file
+     */
+    BinaryArticleDAO(String filename) {
+        this.file = new File(filename);
+
+        // Decode the specified file and store it in article map, if the file exists
+        if (this.file.exists()) {
+            decodeArticleList();
+        }
+    }
+
+    @Override
+    public List<Article> getArticleList() {
+        return articleMap.values();
+    }
+
+    @Override
+    public Article getArticle(int id) {
+        return articleMap.get(id);
+    }
+
+    @Override
+    public void saveArticle(Article article) {
+        int articleId = article.getId();
+
+        // Throw an exception if the article already exists
+        if (articleMap.containsKey(articleId)) {
+            throw new IllegalArgumentException(MessageFormat.format(SerializedArticleDAO.ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS, Integer.valueOf(articleId)));
+        }
+        ArticleCodec.requireEncodable(List.of(article));
+
+        articleMap.put(article);
+        statistics.add(article);
+        index.add(article);
+        if (textIndex != null) textIndex.add(article);
+
+        encodeArticleList();
+    }
+
+    @Override
+    public void saveAll(Collection<Article> articles) {
+        // Throw an exception if any of the articles already exists, before any of them is stored
+        articleMap.requireAbsent(articles);
+        ArticleCodec.requireEncodable(articles);
+
+        for (Article article : articles) {
+            articleMap.put(article);
+            statistics.add(article);
+            index.add(article);
+            if (textIndex != null) textIndex.add(article);
+        }
+
+        encodeArticleList();
+    }
+
+    @Override
+    public void deleteArticle(int id) {
+        Article article = articleMap.remove(id);
+
+        // Throw an exception if the article could not be found
+        if (article == null) {
+            throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(id)));
+        }
+
+        statistics.remove(article);
+        index.remove(article);
+        if (textIndex != null) textIndex.remove(article);
+
+        encodeArticleList();
+    }
+
+    @Override
+    public void deleteAll(int[] ids) {
+        // Throw an exception if any of the articles could not be found, before any of them is deleted
+        articleMap.requirePresent(ids);
+
+        for (int id : ids) {
+            Article article = articleMap.remove(id);
+
+            statistics.remove(article);
+            index.remove(article);
+            if (textIndex != null) textIndex.remove(article);
+        }
+
+        encodeArticleList();
+    }
+
+    @Override
+    public void updateAll(Collection<Article> articles) {
+        // Throw an exception if any of the articles could not be found, before any of them is replaced
+        articleMap.requirePresent(articles.stream().mapToInt(Article::getId).toArray());
+        ArticleCodec.requireEncodable(articles);
+
+        for (Article article : articles) {
+            Article replaced = articleMap.put(article);
+
+            statistics.remove(replaced);
+            statistics.add(article);
+            index.remove(replaced);
+            index.add(article);
+            if (textIndex != null) {
+                textIndex.remove(replaced);
+                textIndex.add(article);
+            }
+        }
+
+        encodeArticleList();
+    }
+
+    @Override
+    public List<Article> find(ArticleQuery query) {
+        return index.find(query, articleMap.values());
+    }
+
+    @Override
+    public List<Article> getSortedArticles(ArticleOrder order, boolean isDescending, int offset, int limit) {
+        return index.getSorted(order, isDescending, offset, limit, articleMap.values());
+    }
+
+    @Override
+    public List<Article> search(List<String> terms) {
+        // The index is not stored, so a single search is answered by scanning the articles, which is cheaper than
+        // building the index, and only a process searching again builds it and keeps it up to date from then on
+        if (textIndex == null && !isSearched) {
+            isSearched = true;
+
+            return TextIndex.scan(terms, articleMap.values());
+        }
+        if (textIndex == null) {
+            textIndex = TextIndex.of(articleMap.values());
+        }
+
+        return Arrays.stream(textIndex.search(terms)).mapToObj(articleMap::get).toList();
+    }
+
+    @Override
+    public ArticleStatistics getStatistics() {
+        // The price sum is only calculated on demand and whenever the year changed since it was calculated
+        if (!statistics.hasCurrentPriceSum()) {
+            statistics.recalculatePriceSum(articleMap.values());
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Decode the content stored in the specified file and store it in articleMap.
+     *
+     * @throws RuntimeException if something goes wrong while reading or decoding the file
+     */
+    private void decodeArticleList() {
+        try (ArticleCodec.Reader reader = new ArticleCodec.Reader(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            IntArticleMap decodedMap = new IntArticleMap();
+            ArticleStatistics decodedStatistics = new ArticleStatistics();
+
+            // Aggregate the counts while decoding, the price sum is left to be calculated on demand
+            for (Article article = reader.read(); article != null; article = reader.read()) {
+                decodedMap.put(article);
+                decodedStatistics.add(article);
+            }
+
+            articleMap = decodedMap;
+            statistics = decodedStatistics;
+
+            ArticleMetrics.getInstance().countBytesRead(file.length());
+        } catch (IOException | SecurityException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_DESERIALIZATION, e);
+        }
+    }
+
+    /**
+     * Encode the content stored in articleMap to a temporary file and replace the file specified in file with it.
+     *
+     * @throws RuntimeException if something goes wrong while encoding the article list or writing the file
+     */
+    private void encodeArticleList() {
+        File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+
+        try {
+            try (ArticleCodec.Writer writer = new ArticleCodec.Writer(new BufferedOutputStream(new FileOutputStream(tempFile), BUFFER_SIZE))) {
+                for (Article article : articleMap.values()) {
+                    writer.write(article);
+                }
+            }
+
+            ArticleMetrics.getInstance().countBytesWritten(tempFile.length());
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | SecurityException e) {
+            tempFile.delete();
+
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_SERIALIZATION, e);
+        }
+    }
+
+}
@@ -5,8 +5,6 @@
 
 import java.io.Serial;
 import java.math.BigDecimal;
-import java.text.MessageFormat;
-import java.util.StringJoiner;
 
 /**
  * Book is the specialized entity of Article, which describes book-related properties for an article.
@@ -46,10 +44,16 @@ public final class Book extends Article {
         return pages;
     }
 
-    @Override
-    protected int getDiscountPercentage() {
+    /**
+     * Returns the discount percentage of a book with the given age and page count.
+     *
+     * @param age   age of the book in years
+     * @param pages page count of the book
+     * @return discount percentage for such a book
+     */
+    static int getDiscountPercentage(int age, int pages) {
         // Calculate the age discount as 5% for every passed year not passing 30%
-        int ageDiscount = Math.min(AGE_DISCOUNT_PER_YEAR * getAge(), AGE_DISCOUNT_LIMIT);
+        int ageDiscount = Math.min(AGE_DISCOUNT_PER_YEAR * age, AGE_DISCOUNT_LIMIT);
         // Calculate the pages discount as 3% if there are more than 1000 pages
         int pagesDiscount = pages > PAGES_DISCOUNT_QUALIFIER ? PAGE_DISCOUNT : 0;
 
@@ -57,11 +61,12 @@ public final class Book extends Article {
     }
 
     @Override
-    public String toString() {
-        StringJoiner joiner = new StringJoiner(System.lineSeparator());
-
-        joiner.add(MessageFormat.format("Pages:      {0}", Integer.valueOf(pages)));
+    Book withBasePrice(BigDecimal basePrice) {
+        return new Book(getId(), getTitle(), getPublisher(), getReleaseYear(), basePrice, pages);
+    }
 
-        return MessageFormat.format("{0}{1}{2}", super.toString(), joiner, System.lineSeparator());
+    @Override
+    int getDiscountPercentageInYear(int referenceYear) {
+        return getDiscountPercentage(referenceYear - getReleaseYear(), pages);
     }
 }
@@ -0,0 +1,151 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * ChangeFeedArticleDAO is the data access object decorator, which appends every stored, updated or deleted article to a
+ * change log and publishes it to its subscribers afterward.
+ * <p>
+ * Changes are logged and published in the order they were made, each with the next sequence number of the log. The
+ * subscribers are served by a SubmissionPublisher, so every subscriber requests changes at its own pace, while a change
+ * waits for a subscriber whose buffer is full, which slows the changes down to the pace of the slowest subscriber
+ * instead of dropping changes or buffering them without bounds. A subscriber only receives the changes made after it
+ * subscribed, earlier ones are read from the change log by their sequence numbers.
+ * <p>
+ * A change is applied to the decorated data access object while the change log is locked and logged right afterward,
+ * so the log holds the changes in the order they were applied, even if several processes change the same catalogue. A
+ * failed change is never logged, while a crash between storing and logging a change loses its log line. The changes
+ * are only published once the log is unlocked again, so a slow subscriber never holds back other processes.
+ */
+final class ChangeFeedArticleDAO implements ArticleDAO, Flow.Publisher<ArticleChange> {
+
+    private final ArticleDAO articleDAO;
+    private final ArticleChangeLog changeLog;
+    private SubmissionPublisher<ArticleChange> publisher;
+    private boolean isClosed;
+
+    /**
+     * Creates an instance of ChangeFeedArticleDAO.
+     *
+     * @param articleDAO data access object to decorate
+     * @param changeLog  change log to append the changes to
+     */
+    ChangeFeedArticleDAO(ArticleDAO articleDAO, ArticleChangeLog changeLog) {
+        this.articleDAO = articleDAO;
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * Subscribes to the changes made from now on, until the data access object is closed.
+     *
+     * @param subscriber subscriber to receive the changes
+     */
+    @Override
+    public synchronized void subscribe(Flow.Subscriber<? super ArticleChange> subscriber) {
+        // The publisher is only created for the first subscriber, since most processes never have one
+        if (publisher == null) {
+            publisher = new SubmissionPublisher<>();
+
+            if (isClosed) publisher.close();
+        }
+
+        publisher.subscribe(subscriber);
+    }
+
+    @Override
+    public List<Article> getArticleList() {
+        return articleDAO.getArticleList();
+    }
+
+    @Override
+    public Article getArticle(int id) {
+        return articleDAO.getArticle(id);
+    }
+
+    @Override
+    public synchronized void saveArticle(Article article) {
+        publish(changeLog.append(() -> articleDAO.saveArticle(article), List.of(ArticleChange.added(article))));
+    }
+
+    @Override
+    public synchronized void saveAll(Collection<Article> articles) {
+        publish(changeLog.append(() -> articleDAO.saveAll(articles), articles.stream().map(ArticleChange::added).toList()));
+    }
+
+    @Override
+    public synchronized void deleteArticle(int id) {
+        publish(changeLog.append(() -> articleDAO.deleteArticle(id), List.of(ArticleChange.deleted(id))));
+    }
+
+    @Override
+    public synchronized void deleteAll(int[] ids) {
+        publish(changeLog.append(() -> articleDAO.deleteAll(ids), Arrays.stream(ids).mapToObj(ArticleChange::deleted).toList()));
+    }
+
+    @Override
+    public synchronized void updateAll(Collection<Article> articles) {
+        publish(changeLog.append(() -> articleDAO.updateAll(articles), articles.stream().map(ArticleChange::updated).toList()));
+    }
+
+    @Override
+    public List<Article> find(ArticleQuery query) {
+        return articleDAO.find(query);
+    }
+
+    @Override
+    public List<Article> getSortedArticles(ArticleOrder order, boolean isDescending, int offset, int limit) {
+        return articleDAO.getSortedArticles(order, isDescending, offset, limit);
+    }
+
+    @Override
+    public List<Article> search(List<String> terms) {
+        return articleDAO.search(terms);
+    }
+
+    @Override
+    public ArticleStatistics getStatistics() {
+        return articleDAO.getStatistics();
+    }
+
+    @Override
+    public ArticleAggregator.Result aggregate(ArticlePricing pricing) {
+        return articleDAO.aggregate(pricing);
+    }
+
+    @Override
+    public List<Integer> getOldestArticleIds() {
+        return articleDAO.getOldestArticleIds();
+    }
+
+    @Override
+    public ArticleChangeLog getChangeLog() {
+        return changeLog;
+    }
+
+    /**
+     * Completes all subscriptions and closes the decorated data access object.
+     */
+    @Override
+    public synchronized void close() {
+        isClosed = true;
+        if (publisher != null) publisher.close();
+
+        articleDAO.close();
+    }
+
+    private void publish(List<ArticleChange> changes) {
+        if (publisher == null) return;
+
+        // Submitting blocks while a subscriber's buffer is full, which holds back further changes as well
+        for (ArticleChange change : changes) {
+            publisher.submit(change);
+        }
+    }
+}
@@ -0,0 +1,495 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.math.BigDecimal;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * ColumnarArticleDAO is the data access object specialization for keeping a list of articles in memory, with every
+ * property of the articles stored in its own primitive array instead of an object per article.
+ * <p>
+ * Each article is a row in the columns of identifiers, types, release years, base prices in cents, page counts or
+ * lengths and minimum ages. Titles and publishers are interned into a shared StringPool, so the rows only hold their
+ * codes. Article objects are only created when an article is accessed, while the counts, prices and oldest articles
+ * are aggregated by scanning the columns. The prices are kept in cents in another column, which is only calculated
+ * again once the year changes. Base prices that are not given in whole cents or do not fit into a long are kept aside
+ * and aggregated as BigDecimal.
+ * <p>
+ * The rows are kept in insertion order and found by their identifier through an open-addressing table with linear
+ * probing. Deleting an article only leaves a hole in the columns, which is closed the next time the rows are scanned
+ * in order or once most of the rows are holes.
+ */
+public class ColumnarArticleDAO implements ArticleDAO {
+
+    private static final byte TYPE_DELETED = 0;
+    private static final byte TYPE_BOOK = 'B';
+    private static final byte TYPE_DVD = 'D';
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+    private static final int MIN_CAPACITY = 8;
+    private int[] ids = new int[MIN_CAPACITY];
+    private byte[] types = new byte[MIN_CAPACITY];
+    private int[] releaseYears = new int[MIN_CAPACITY];
+    private long[] basePriceCents = new long[MIN_CAPACITY];
+    private long[] priceCents = new long[MIN_CAPACITY];
+    private int priceCentsYear = ArticlePricing.getCurrentYear();
+    private int[] pagesOrLengths = new int[MIN_CAPACITY];
+    private byte[] minAges = new byte[MIN_CAPACITY];
+    private int[] titleCodes = new int[MIN_CAPACITY];
+    private int[] publisherCodes = new int[MIN_CAPACITY];
+    private int rowCount;
+    private int size;
+    // Holds the row plus one of every article, so the identifiers are only stored in their column
+    private int[] slots = new int[MIN_CAPACITY * 2];
+    private int usedSlots;
+    private StringPool strings = new StringPool();
+    private final Map<Integer, BigDecimal> otherBasePrices = new HashMap<>();
+    private ArticleStatistics statistics = new ArticleStatistics();
+    private int modificationCount;
+
+    ColumnarArticleDAO() {
+        this(Collections.emptyList());
+    }
+
+    /**
+     * Creates an instance of ColumnarArticleDAO, which initially contains the given articles.
+     *
+     * @param articles initial articles
+     * @throws IllegalArgumentException if any article's id is given more than once
+     */
+    ColumnarArticleDAO(Collection<Article> articles) {
+        saveAll(articles);
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public List<Article> getArticleList() {
+        if (size < rowCount) {
+            compactRows();
+        }
+
+        return new RowListView();
+    }
+
+    @Override
+    public Article getArticle(int id) {
+        int slot = findSlot(id);
+
+        return slot < 0 ? null : getRow(slots[slot] - 1);
+    }
+
+    @Override
+    public void saveArticle(Article article) {
+        int articleId = article.getId();
+
+        // Throw an exception if the article already exists
+        if (findSlot(articleId) >= 0) {
+            throw new IllegalArgumentException(MessageFormat.format(SerializedArticleDAO.ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS, Integer.valueOf(articleId)));
+        }
+
+        addRow(article);
+        statistics.add(article);
+        modificationCount++;
+    }
+
+    @Override
+    public void saveAll(Collection<Article> articles) {
+        IntArticleMap addedArticles = new IntArticleMap(articles.size());
+
+        // Throw an exception if any of the articles already exists, before any of them is stored
+        for (Article article : articles) {
+            if (findSlot(article.getId()) >= 0 || addedArticles.put(article) != null) {
+                throw new IllegalArgumentException(MessageFormat.format(SerializedArticleDAO.ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS, Integer.valueOf(article.getId())));
+            }
+        }
+
+        if (rowCount + articles.size() > ids.length) {
+            growColumns(rowCount + articles.size());
+        }
+        for (Article article : articles) {
+            addRow(article);
+            statistics.add(article);
+        }
+        modificationCount++;
+    }
+
+    @Override
+    public void deleteArticle(int id) {
+        int slot = findSlot(id);
+
+        // Throw an exception if the article could not be found
+        if (slot < 0) {
+            throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(id)));
+        }
+
+        int row = slots[slot] - 1;
+        statistics.remove(getRow(row));
+
+        strings.release(titleCodes[row]);
+        strings.release(publisherCodes[row]);
+        otherBasePrices.remove(id);
+
+        // Leave a tombstone, so the probe sequences of other identifiers stay intact
+        slots[slot] = DELETED;
+        types[row] = TYPE_DELETED;
+        size--;
+        modificationCount++;
+
+        if (size < rowCount / 2) {
+            compactRows();
+        }
+        if (strings.isMostlyUnused()) {
+            compactStrings();
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<Article> articles) {
+        IntArticleMap updatedArticles = new IntArticleMap(articles.size());
+
+        // Throw an exception if any of the articles could not be found, before any of them is replaced
+        for (Article article : articles) {
+            if (findSlot(article.getId()) < 0) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(article.getId())));
+            }
+            if (updatedArticles.put(article) != null) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_GIVEN_TWICE, Integer.valueOf(article.getId())));
+            }
+        }
+
+        // Every article is written over its own row, so it keeps its position and leaves no tombstone behind
+        for (Article article : articles) {
+            int row = slots[findSlot(article.getId())] - 1;
+            statistics.remove(getRow(row));
+
+            strings.release(titleCodes[row]);
+            strings.release(publisherCodes[row]);
+            otherBasePrices.remove(article.getId());
+
+            setRow(row, article);
+            statistics.add(article);
+        }
+        modificationCount++;
+
+        if (strings.isMostlyUnused()) {
+            compactStrings();
+        }
+    }
+
+    @Override
+    public ArticleStatistics getStatistics() {
+        // Recalculate the price sum from the columns, once the year changed since it was calculated
+        if (!statistics.hasCurrentPriceSum()) {
+            statistics.setPriceSum(calculatePriceSum());
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Returns the counts, price aggregates and oldest articles, which are calculated from the columns in a single
+     * parallel pass without creating any Article objects.
+     *
+     * @param pricing pricing all prices are calculated with
+     * @return aggregates of all articles
+     */
+    @Override
+    public ArticleAggregator.Result aggregate(ArticlePricing pricing) {
+        if (size < rowCount) {
+            compactRows();
+        }
+        updatePriceCents(ArticlePricing.getCurrentYear());
+
+        int count = rowCount;
+
+        return ArticleAggregator.aggregate(new ArticleAggregator.Rows() {
+            @Override
+            public int size() {
+                return count;
+            }
+
+            @Override
+            public void addTo(ArticleAggregator.Accumulator accumulator, int row, ArticlePricing pricing) {
+                int referenceYear = pricing.getReferenceYear();
+                long rowPriceCents = referenceYear == priceCentsYear ? priceCents[row] : calculatePriceCents(row, referenceYear);
+                boolean isBook = types[row] == TYPE_BOOK;
+
+                if (rowPriceCents != Article.PRICE_NOT_IN_CENTS) {
+                    accumulator.add(isBook, ids[row], releaseYears[row], rowPriceCents);
+                } else {
+                    accumulator.add(isBook, ids[row], releaseYears[row], getRow(row).getPrice(pricing.getReferenceYear()));
+                }
+            }
+        }, pricing, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the identifiers of the articles released in the oldest release year, read from the column of release years.
+     *
+     * @return identifiers of the oldest articles
+     * @throws NoSuchElementException if there are no articles
+     */
+    @Override
+    public List<Integer> getOldestArticleIds() {
+        int releaseYear = getStatistics().getOldestReleaseYear();
+        List<Integer> articleIds = new ArrayList<>();
+
+        for (int row = 0; row < rowCount; row++) {
+            if (releaseYears[row] == releaseYear && types[row] != TYPE_DELETED) {
+                articleIds.add(ids[row]);
+            }
+        }
+
+        return articleIds;
+    }
+
+    /**
+     * Returns the sum of the article prices, calculated from the columns.
+     *
+     * @return sum of the article prices
+     */
+    private BigDecimal calculatePriceSum() {
+        int currentYear = ArticlePricing.getCurrentYear();
+        long sumCents = 0;
+        BigDecimal otherSum = BigDecimal.ZERO;
+
+        updatePriceCents(currentYear);
+
+        for (int row = 0; row < rowCount; row++) {
+            if (types[row] == TYPE_DELETED) continue;
+
+            if (priceCents[row] != Article.PRICE_NOT_IN_CENTS) {
+                try {
+                    sumCents = Math.addExact(sumCents, priceCents[row]);
+                } catch (ArithmeticException e) {
+                    otherSum = otherSum.add(BigDecimal.valueOf(priceCents[row], Article.PRICE_DECIMAL_COUNT));
+                }
+            } else {
+                otherSum = otherSum.add(getRow(row).getPrice(currentYear));
+            }
+        }
+
+        return BigDecimal.valueOf(sumCents, Article.PRICE_DECIMAL_COUNT).add(otherSum);
+    }
+
+    /**
+     * Calculates the column of prices in cents again, if it was calculated for another year.
+     *
+     * @param referenceYear year in which the discounts apply
+     */
+    private void updatePriceCents(int referenceYear) {
+        if (referenceYear == priceCentsYear) return;
+
+        for (int row = 0; row < rowCount; row++) {
+            priceCents[row] = calculatePriceCents(row, referenceYear);
+        }
+        priceCentsYear = referenceYear;
+    }
+
+    /**
+     * Returns the price in cents of the article in the given row, or PRICE_NOT_IN_CENTS if it has to be calculated
+     * from its Article object instead.
+     *
+     * @param row           row of the article
+     * @param referenceYear year in which the discount applies
+     * @return price of the article in cents or PRICE_NOT_IN_CENTS
+     */
+    private long calculatePriceCents(int row, int referenceYear) {
+        if (basePriceCents[row] == Article.PRICE_NOT_IN_CENTS) return Article.PRICE_NOT_IN_CENTS;
+
+        int discountPercentage = types[row] == TYPE_BOOK
+                ? Book.getDiscountPercentage(referenceYear - releaseYears[row], pagesOrLengths[row])
+                : DVD.getDiscountPercentage(minAges[row]);
+
+        try {
+            return Article.calculatePriceCents(basePriceCents[row], discountPercentage);
+        } catch (ArithmeticException e) {
+            return Article.PRICE_NOT_IN_CENTS;
+        }
+    }
+
+    private Article getRow(int row) {
+        int id = ids[row];
+        String title = strings.get(titleCodes[row]);
+        String publisher = strings.get(publisherCodes[row]);
+        BigDecimal basePrice = basePriceCents[row] == Article.PRICE_NOT_IN_CENTS
+                ? otherBasePrices.get(id)
+                : BigDecimal.valueOf(basePriceCents[row], Article.PRICE_DECIMAL_COUNT);
+
+        if (types[row] == TYPE_BOOK) {
+            return new Book(id, title, publisher, releaseYears[row], basePrice, pagesOrLengths[row]);
+        }
+
+        return new DVD(id, title, publisher, releaseYears[row], basePrice, pagesOrLengths[row], minAges[row]);
+    }
+
+    private void addRow(Article article) {
+        if (rowCount == ids.length) {
+            // Closing the holes first might already make enough room
+            if (size < rowCount) {
+                compactRows();
+            }
+            if (rowCount == ids.length) {
+                growColumns(rowCount + (rowCount >> 1) + 1);
+            }
+        }
+        if ((usedSlots + 1) * 2 > slots.length) {
+            rehash(Integer.highestOneBit(Math.max(MIN_CAPACITY, size + 1) * 2 - 1) << 1);
+        }
+
+        int row = rowCount++;
+        setRow(row, article);
+
+        insertSlot(article.getId(), row);
+        size++;
+    }
+
+    private void setRow(int row, Article article) {
+        ids[row] = article.getId();
+        releaseYears[row] = article.getReleaseYear();
+        titleCodes[row] = strings.intern(article.getTitle());
+        publisherCodes[row] = strings.intern(article.getPublisher());
+
+        try {
+            basePriceCents[row] = article.getBasePrice().movePointRight(Article.PRICE_DECIMAL_COUNT).longValueExact();
+        } catch (ArithmeticException e) {
+            basePriceCents[row] = Article.PRICE_NOT_IN_CENTS;
+            otherBasePrices.put(article.getId(), article.getBasePrice());
+        }
+
+        if (article instanceof Book book) {
+            types[row] = TYPE_BOOK;
+            pagesOrLengths[row] = book.getPages();
+            minAges[row] = 0;
+        } else if (article instanceof DVD dvd) {
+            types[row] = TYPE_DVD;
+            pagesOrLengths[row] = dvd.getLength();
+            minAges[row] = (byte) dvd.getMinAge();
+        }
+        priceCents[row] = calculatePriceCents(row, priceCentsYear);
+    }
+
+    private void growColumns(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        types = Arrays.copyOf(types, capacity);
+        releaseYears = Arrays.copyOf(releaseYears, capacity);
+        basePriceCents = Arrays.copyOf(basePriceCents, capacity);
+        priceCents = Arrays.copyOf(priceCents, capacity);
+        pagesOrLengths = Arrays.copyOf(pagesOrLengths, capacity);
+        minAges = Arrays.copyOf(minAges, capacity);
+        titleCodes = Arrays.copyOf(titleCodes, capacity);
+        publisherCodes = Arrays.copyOf(publisherCodes, capacity);
+    }
+
+    private int findSlot(int id) {
+        int mask = slots.length - 1;
+
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+
+            if (entry == EMPTY) return -1;
+            if (entry != DELETED && ids[entry - 1] == id) return slot;
+        }
+    }
+
+    private void insertSlot(int id, int row) {
+        int mask = slots.length - 1;
+        int slot = hash(id) & mask;
+
+        while (slots[slot] > EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+
+        if (slots[slot] == EMPTY) {
+            usedSlots++;
+        }
+
+        slots[slot] = row + 1;
+    }
+
+    /**
+     * Moves the remaining rows to the front of the columns and rebuilds the table to point at their new positions.
+     */
+    private void compactRows() {
+        int target = 0;
+
+        for (int source = 0; source < rowCount; source++) {
+            if (types[source] == TYPE_DELETED) continue;
+
+            ids[target] = ids[source];
+            types[target] = types[source];
+            releaseYears[target] = releaseYears[source];
+            basePriceCents[target] = basePriceCents[source];
+            priceCents[target] = priceCents[source];
+            pagesOrLengths[target] = pagesOrLengths[source];
+            minAges[target] = minAges[source];
+            titleCodes[target] = titleCodes[source];
+            publisherCodes[target] = publisherCodes[source];
+            target++;
+        }
+
+        rowCount = target;
+        modificationCount++;
+
+        rehash(slots.length);
+    }
+
+    /**
+     * Copies the titles and publishers still in use into a new pool, which drops the bytes of all others.
+     */
+    private void compactStrings() {
+        StringPool compactedStrings = new StringPool();
+
+        for (int row = 0; row < rowCount; row++) {
+            if (types[row] == TYPE_DELETED) continue;
+
+            titleCodes[row] = compactedStrings.intern(strings, titleCodes[row]);
+            publisherCodes[row] = compactedStrings.intern(strings, publisherCodes[row]);
+        }
+
+        strings = compactedStrings;
+    }
+
+    private void rehash(int capacity) {
+        // Rebuilding also drops all tombstones, which may have piled up in the table
+        slots = new int[capacity];
+        usedSlots = 0;
+
+        for (int row = 0; row < rowCount; row++) {
+            if (types[row] != TYPE_DELETED) {
+                insertSlot(ids[row], row);
+            }
+        }
+    }
+
+    /**
+     * RowListView is the list view on the rows, which creates an article whenever it is accessed. It only stays valid
+     * until the next change of the rows.
+     */
+    private class RowListView extends AbstractList<Article> implements RandomAccess {
+
+        private final int size = rowCount;
+        private final int expectedModificationCount = modificationCount;
+
+        @Override
+        public Article get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            if (modificationCount != expectedModificationCount) throw new ConcurrentModificationException();
+
+            return getRow(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
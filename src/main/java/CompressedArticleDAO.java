@@ -0,0 +1,809 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * CompressedArticleDAO is the data access object specialization for storing a list of articles in a file of
+ * independently compressed blocks, which are located by a block index.
+ * <p>
+ * The file starts with a header, followed by the blocks, a release year histogram and the compressed block index. Every
+ * block is a catalogue in the ArticleCodec format of roughly the tunable block size, which is compressed with Deflater
+ * on its own, so the repeated publishers and similar titles of neighbouring articles shrink the file several-fold. The
+ * block index holds the compressed and uncompressed length and the article count of every block, followed by all
+ * identifiers in ascending order with the number of the block they are stored in.
+ * <p>
+ * Opening the file only reads the header and the histogram, so counts and aggregates are answered without touching any
+ * block. The block index is read on the first access to an article, after which looking up an article by its
+ * identifier only reads and decompresses a single block and the whole catalogue is decompressed block by block in
+ * parallel. Changes rewrite the file, but only re-encode the blocks that changed and copy all other blocks as they are.
+ */
+public class CompressedArticleDAO implements ArticleDAO {
+
+    static final int DEFAULT_BLOCK_SIZE = 1 << 14;
+    static final int MAGIC = 0x41435A31;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_COUNT = 8;
+    private static final int HEADER_BLOCK_COUNT = 12;
+    private static final int HEADER_BOOK_COUNT = 16;
+    private static final int HEADER_DVD_COUNT = 20;
+    private static final int HEADER_PRICE_SUM_YEAR = 24;
+    private static final int HEADER_HISTOGRAM_SIZE = 28;
+    private static final int HEADER_PRICE_SUM_CENTS = 32;
+    private static final int HEADER_INDEX_OFFSET = 40;
+    private static final int HEADER_INDEX_LENGTH = 48;
+    private static final int HEADER_INDEX_SIZE = 52;
+    private static final int HISTOGRAM_ENTRY_SIZE = 8;
+    private static final int NO_PRICE_SUM_YEAR = 0;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private final File file;
+    private final int blockSize;
+    private int count;
+    private int blockCount;
+    private int histogramSize;
+    private long indexOffset;
+    private int indexLength;
+    private int indexSize;
+    private ArticleStatistics statistics = new ArticleStatistics();
+    private BlockIndex blockIndex;
+    private volatile DecodedBlock lastDecodedBlock;
+
+    /**
+     * Creates an instance of CompressedArticleDAO with the default block size.
+     *
+     * @param filename the file used for storage
+     * @throws RuntimeException if something goes wrong while reading the header of an existent file
+     */
+    CompressedArticleDAO(String filename) {
+        this(filename, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates an instance of CompressedArticleDAO.
+     *
+     * @param filename  the file used for storage
+     * @param blockSize amount of uncompressed bytes after which a block is closed, larger blocks compress better while
+     *                  smaller blocks make looking up a single article cheaper
+     * @throws RuntimeException if something goes wrong while reading the header of an existent file
+     */
+    CompressedArticleDAO(String filename, int blockSize) {
+        this.file = new File(filename);
+        this.blockSize = Math.max(1, blockSize);
+
+        // Read the header of the specified file, if the file exists, otherwise the empty catalogue's price sum is known
+        if (this.file.exists()) {
+            readHeader();
+        } else {
+            statistics.setPriceSum(BigDecimal.ZERO);
+        }
+    }
+
+    @Override
+    public List<Article> getArticleList() {
+        BlockIndex index = getBlockIndex();
+        Article[] articles = new Article[count];
+
+        if (index.getBlockCount() == 0) return List.of();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // Every block is decompressed on its own and decoded right into its range of the list
+            IntStream.range(0, index.getBlockCount()).parallel().forEach(block -> {
+                try {
+                    Article[] blockArticles = readBlock(channel, index, block);
+
+                    System.arraycopy(blockArticles, 0, articles, index.blockStarts()[block], blockArticles.length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException | SecurityException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_DESERIALIZATION, e);
+        }
+
+        ArticleMetrics.getInstance().countBytesRead(index.blockOffsets()[index.getBlockCount()] - HEADER_SIZE);
+
+        return Collections.unmodifiableList(Arrays.asList(articles));
+    }
+
+    @Override
+    public Article getArticle(int id) {
+        BlockIndex index = getBlockIndex();
+        int block = index.findBlock(id);
+
+        if (block < 0) return null;
+
+        // Lookups of neighbouring articles hit the same block, so the last decoded block is kept
+        DecodedBlock decodedBlock = lastDecodedBlock;
+        if (decodedBlock == null || decodedBlock.block() != block) {
+            decodedBlock = new DecodedBlock(block, readBlock(index, block));
+            lastDecodedBlock = decodedBlock;
+        }
+
+        for (Article article : decodedBlock.articles()) {
+            if (article.getId() == id) return article;
+        }
+
+        return null;
+    }
+
+    @Override
+    public void saveArticle(Article article) {
+        saveAll(List.of(article));
+    }
+
+    @Override
+    public void saveAll(Collection<Article> articles) {
+        BlockIndex index = getBlockIndex();
+        IntArticleMap addedArticles = new IntArticleMap(articles.size());
+
+        // Throw an exception if any of the articles already exists, before the file is rewritten
+        for (Article article : articles) {
+            if (index.findBlock(article.getId()) >= 0 || addedArticles.put(article) != null) {
+                throw new IllegalArgumentException(MessageFormat.format(SerializedArticleDAO.ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS, Integer.valueOf(article.getId())));
+            }
+        }
+
+        if (addedArticles.size() == 0) return;
+
+        ArticleStatistics updatedStatistics = statistics.copy();
+        addedArticles.values().forEach(updatedStatistics::add);
+
+        // A last block that is not full yet is encoded again together with the added articles, so appending one
+        // article at a time does not leave a trail of tiny blocks behind
+        int lastBlock = index.getBlockCount() - 1;
+        boolean isRefillingLastBlock = lastBlock >= 0 && index.blockLengths()[lastBlock] < blockSize;
+        List<Segment> segments = new ArrayList<>();
+
+        for (int block = 0; block < (isRefillingLastBlock ? lastBlock : lastBlock + 1); block++) {
+            segments.add(Segment.copy(block));
+        }
+
+        List<Article> appendedArticles = new ArrayList<>();
+        if (isRefillingLastBlock) {
+            appendedArticles.addAll(Arrays.asList(readBlock(index, lastBlock)));
+        }
+        appendedArticles.addAll(addedArticles.values());
+        Segment.encode(segments, appendedArticles);
+
+        rewriteFile(segments, updatedStatistics);
+    }
+
+    @Override
+    public void deleteArticle(int id) {
+        deleteAll(new int[]{id});
+    }
+
+    @Override
+    public void deleteAll(int[] ids) {
+        BlockIndex index = getBlockIndex();
+        Set<Integer> deletedIds = new HashSet<>();
+        BitSet changedBlocks = new BitSet(index.getBlockCount());
+
+        // Throw an exception if any of the articles could not be found, before the file is rewritten
+        for (int id : ids) {
+            int block = index.findBlock(id);
+
+            if (block < 0) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(id)));
+            }
+            if (!deletedIds.add(id)) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_GIVEN_TWICE, Integer.valueOf(id)));
+            }
+            changedBlocks.set(block);
+        }
+
+        if (deletedIds.isEmpty()) return;
+
+        ArticleStatistics updatedStatistics = statistics.copy();
+        List<Segment> segments = new ArrayList<>();
+
+        for (int block = 0; block < index.getBlockCount(); block++) {
+            if (!changedBlocks.get(block)) {
+                segments.add(Segment.copy(block));
+                continue;
+            }
+
+            List<Article> remainingArticles = new ArrayList<>();
+            for (Article article : readBlock(index, block)) {
+                if (deletedIds.contains(article.getId())) {
+                    updatedStatistics.remove(article);
+                } else {
+                    remainingArticles.add(article);
+                }
+            }
+            Segment.encode(segments, remainingArticles);
+        }
+
+        rewriteFile(segments, updatedStatistics);
+    }
+
+    @Override
+    public void updateAll(Collection<Article> articles) {
+        BlockIndex index = getBlockIndex();
+        IntArticleMap updatedArticles = new IntArticleMap(articles.size());
+        BitSet changedBlocks = new BitSet(index.getBlockCount());
+
+        // Throw an exception if any of the articles could not be found, before the file is rewritten
+        for (Article article : articles) {
+            int block = index.findBlock(article.getId());
+
+            if (block < 0) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(article.getId())));
+            }
+            if (updatedArticles.put(article) != null) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_GIVEN_TWICE, Integer.valueOf(article.getId())));
+            }
+            changedBlocks.set(block);
+        }
+
+        if (updatedArticles.size() == 0) return;
+
+        ArticleStatistics updatedStatistics = statistics.copy();
+        List<Segment> segments = new ArrayList<>();
+
+        // Replaced articles keep their place, so the order of the catalogue does not change
+        for (int block = 0; block < index.getBlockCount(); block++) {
+            if (!changedBlocks.get(block)) {
+                segments.add(Segment.copy(block));
+                continue;
+            }
+
+            List<Article> blockArticles = new ArrayList<>();
+            for (Article article : readBlock(index, block)) {
+                Article updatedArticle = updatedArticles.get(article.getId());
+
+                if (updatedArticle != null) {
+                    updatedStatistics.remove(article);
+                    updatedStatistics.add(updatedArticle);
+                }
+                blockArticles.add(updatedArticle != null ? updatedArticle : article);
+            }
+            Segment.encode(segments, blockArticles);
+        }
+
+        rewriteFile(segments, updatedStatistics);
+    }
+
+    @Override
+    public ArticleStatistics getStatistics() {
+        // Recalculate the stored price sum, once the year changed since the file was written
+        if (!statistics.hasCurrentPriceSum()) {
+            statistics.recalculatePriceSum(getArticleList());
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Write the new content of the file into a temporary file and move it over the file. Copied blocks are transferred
+     * from the current file as they are, while the articles of all other segments are encoded into new blocks, which
+     * are compressed in parallel.
+     *
+     * @param segments          runs of copied blocks and articles to encode in the order of the new file
+     * @param updatedStatistics statistics about the articles of the new file
+     * @throws RuntimeException if something goes wrong while writing the file or an article cannot be represented
+     */
+    private void rewriteFile(List<Segment> segments, ArticleStatistics updatedStatistics) {
+        BlockIndex index = getBlockIndex();
+        File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+        BlockIndex updatedIndex;
+
+        try {
+            List<EncodedBlock> encodedBlocks = new ArrayList<>();
+            for (Segment segment : segments) {
+                if (segment.isEncoded()) {
+                    encodedBlocks.addAll(encodeBlocks(segment.articles()));
+                }
+            }
+
+            byte[][] compressedBlocks = encodedBlocks.parallelStream().map(block -> deflate(block.data())).toArray(byte[][]::new);
+
+            updatedIndex = writeFile(tempFile, index, segments, encodedBlocks, compressedBlocks, updatedStatistics);
+            ArticleMetrics.getInstance().countBytesWritten(tempFile.length());
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | SecurityException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_SERIALIZATION, e);
+        }
+
+        // The written index and statistics are kept, so only the header has to be read again
+        readHeader();
+        statistics = updatedStatistics;
+        blockIndex = updatedIndex;
+        lastDecodedBlock = null;
+    }
+
+    private BlockIndex writeFile(File targetFile, BlockIndex index, List<Segment> segments, List<EncodedBlock> encodedBlocks,
+                                 byte[][] compressedBlocks, ArticleStatistics updatedStatistics) throws IOException {
+        int copiedBlockCount = (int) segments.stream().filter(segment -> !segment.isEncoded()).count();
+        int updatedBlockCount = copiedBlockCount + encodedBlocks.size();
+        long[] blockOffsets = new long[updatedBlockCount + 1];
+        int[] blockLengths = new int[updatedBlockCount];
+        int[] blockStarts = new int[updatedBlockCount + 1];
+        int[] copiedBlockNumbers = new int[index.getBlockCount()];
+        long[] idEntries = new long[updatedStatistics.getArticleCount()];
+        int idEntryCount = 0;
+
+        Arrays.fill(copiedBlockNumbers, -1);
+        blockOffsets[0] = HEADER_SIZE;
+
+        try (FileChannel source = index.getBlockCount() > 0 ? FileChannel.open(file.toPath(), StandardOpenOption.READ) : null;
+             FileChannel target = FileChannel.open(targetFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            int block = 0;
+            int encodedBlock = 0;
+
+            target.position(HEADER_SIZE);
+
+            for (Segment segment : segments) {
+                if (!segment.isEncoded()) {
+                    int copiedBlock = segment.block();
+                    long length = index.blockOffsets()[copiedBlock + 1] - index.blockOffsets()[copiedBlock];
+
+                    copy(source, index.blockOffsets()[copiedBlock], length, target);
+                    ArticleMetrics.getInstance().countBytesRead(length);
+
+                    copiedBlockNumbers[copiedBlock] = block;
+                    blockOffsets[block + 1] = blockOffsets[block] + length;
+                    blockLengths[block] = index.blockLengths()[copiedBlock];
+                    blockStarts[block + 1] = blockStarts[block] + index.blockStarts()[copiedBlock + 1] - index.blockStarts()[copiedBlock];
+                    block++;
+                    continue;
+                }
+
+                // Encoded blocks are in the order of their segments, so take as many as the segment's articles filled
+                int remainingArticles = segment.articles().size();
+                while (remainingArticles > 0) {
+                    EncodedBlock encoded = encodedBlocks.get(encodedBlock);
+                    byte[] compressed = compressedBlocks[encodedBlock++];
+
+                    write(target, compressed);
+
+                    for (int id : encoded.ids()) {
+                        idEntries[idEntryCount++] = (long) id << 32 | block;
+                    }
+
+                    blockOffsets[block + 1] = blockOffsets[block] + compressed.length;
+                    blockLengths[block] = encoded.data().length;
+                    blockStarts[block + 1] = blockStarts[block] + encoded.ids().length;
+                    remainingArticles -= encoded.ids().length;
+                    block++;
+                }
+            }
+
+            // The identifiers of copied blocks only move to the new number of their block
+            for (int entry = 0; entry < index.sortedIds().length; entry++) {
+                int copiedBlockNumber = copiedBlockNumbers[index.idBlocks()[entry]];
+
+                if (copiedBlockNumber >= 0) {
+                    idEntries[idEntryCount++] = (long) index.sortedIds()[entry] << 32 | copiedBlockNumber;
+                }
+            }
+
+            if (idEntryCount != idEntries.length) throw new IOException("Article count does not match the statistics");
+
+            // Pack identifier and block number, so sorting the longs sorts by identifier
+            Arrays.sort(idEntries);
+
+            int[] sortedIds = new int[idEntryCount];
+            int[] idBlocks = new int[idEntryCount];
+            for (int entry = 0; entry < idEntryCount; entry++) {
+                sortedIds[entry] = (int) (idEntries[entry] >> 32);
+                idBlocks[entry] = (int) idEntries[entry];
+            }
+
+            BlockIndex updatedIndex = new BlockIndex(blockOffsets, blockLengths, blockStarts, sortedIds, idBlocks);
+            SortedMap<Integer, Integer> releaseYearHistogram = updatedStatistics.getReleaseYearHistogram();
+
+            ByteBuffer histogram = ByteBuffer.allocate(releaseYearHistogram.size() * HISTOGRAM_ENTRY_SIZE);
+            releaseYearHistogram.forEach((year, yearCount) -> histogram.putInt(year).putInt(yearCount));
+            write(target, histogram.array());
+
+            long updatedIndexOffset = target.position();
+            byte[] encodedIndex = encodeIndex(updatedIndex);
+            byte[] compressedIndex = deflate(encodedIndex);
+            write(target, compressedIndex);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(0, MAGIC);
+            header.putInt(HEADER_VERSION, VERSION);
+            header.putInt(HEADER_COUNT, idEntryCount);
+            header.putInt(HEADER_BLOCK_COUNT, updatedBlockCount);
+            header.putInt(HEADER_BOOK_COUNT, updatedStatistics.getBookCount());
+            header.putInt(HEADER_DVD_COUNT, updatedStatistics.getDVDCount());
+            header.putInt(HEADER_HISTOGRAM_SIZE, releaseYearHistogram.size());
+            header.putLong(HEADER_INDEX_OFFSET, updatedIndexOffset);
+            header.putInt(HEADER_INDEX_LENGTH, compressedIndex.length);
+            header.putInt(HEADER_INDEX_SIZE, encodedIndex.length);
+
+            // Only a current price sum in whole cents is stored, any other one is recalculated once it is needed
+            header.putInt(HEADER_PRICE_SUM_YEAR, NO_PRICE_SUM_YEAR);
+            if (updatedStatistics.hasCurrentPriceSum()) {
+                try {
+                    header.putLong(HEADER_PRICE_SUM_CENTS, ArticleCodec.toCents(updatedStatistics.getPriceSum()));
+                    header.putInt(HEADER_PRICE_SUM_YEAR, updatedStatistics.getPriceSumYear());
+                } catch (InvalidObjectException e) {
+                    header.putLong(HEADER_PRICE_SUM_CENTS, 0);
+                }
+            }
+
+            target.write(header, 0);
+            target.force(true);
+
+            return updatedIndex;
+        }
+    }
+
+    /**
+     * Encode the articles into blocks, each of which is closed once it holds at least the block size of bytes.
+     *
+     * @param articles articles to encode in their order
+     * @return uncompressed blocks
+     * @throws IOException if an article cannot be represented
+     */
+    private List<EncodedBlock> encodeBlocks(List<Article> articles) throws IOException {
+        List<EncodedBlock> blocks = new ArrayList<>();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ArticleCodec.Writer writer = null;
+        int[] ids = new int[articles.size()];
+        int blockStart = 0;
+
+        for (int i = 0; i < articles.size(); i++) {
+            if (writer == null) {
+                writer = new ArticleCodec.Writer(buffer);
+            }
+
+            writer.write(articles.get(i));
+            ids[i] = articles.get(i).getId();
+
+            if (buffer.size() >= blockSize || i == articles.size() - 1) {
+                writer.close();
+                blocks.add(new EncodedBlock(buffer.toByteArray(), Arrays.copyOfRange(ids, blockStart, i + 1)));
+                buffer.reset();
+                writer = null;
+                blockStart = i + 1;
+            }
+        }
+
+        return blocks;
+    }
+
+    private static byte[] encodeIndex(BlockIndex index) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+
+        for (int block = 0; block < index.getBlockCount(); block++) {
+            ArticleCodec.writeVarLong(out, index.blockOffsets()[block + 1] - index.blockOffsets()[block]);
+            ArticleCodec.writeVarLong(out, index.blockLengths()[block]);
+            ArticleCodec.writeVarLong(out, index.blockStarts()[block + 1] - index.blockStarts()[block]);
+        }
+
+        // The sorted identifiers are stored as differences to their predecessor, which mostly fit into a single byte
+        long previousId = Integer.MIN_VALUE;
+        for (int entry = 0; entry < index.sortedIds().length; entry++) {
+            ArticleCodec.writeVarLong(out, index.sortedIds()[entry] - previousId);
+            ArticleCodec.writeVarLong(out, index.idBlocks()[entry]);
+            previousId = index.sortedIds()[entry];
+        }
+
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Read the header and the release year histogram of the specified file and validate them.
+     *
+     * @throws RuntimeException if something goes wrong while reading the file or the header is invalid
+     */
+    private void readHeader() {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size < HEADER_SIZE) throw new StreamCorruptedException("Not a compressed article catalogue");
+
+            ByteBuffer header = ByteBuffer.wrap(read(channel, 0, HEADER_SIZE));
+
+            if (header.getInt(0) != MAGIC) throw new StreamCorruptedException("Not a compressed article catalogue");
+            if (header.getInt(HEADER_VERSION) != VERSION) throw new StreamCorruptedException("Unsupported catalogue version");
+
+            int headerCount = header.getInt(HEADER_COUNT);
+            int headerBlockCount = header.getInt(HEADER_BLOCK_COUNT);
+            int headerHistogramSize = header.getInt(HEADER_HISTOGRAM_SIZE);
+            long headerIndexOffset = header.getLong(HEADER_INDEX_OFFSET);
+            int headerIndexLength = header.getInt(HEADER_INDEX_LENGTH);
+            int headerIndexSize = header.getInt(HEADER_INDEX_SIZE);
+            long histogramOffset = headerIndexOffset - (long) headerHistogramSize * HISTOGRAM_ENTRY_SIZE;
+
+            if (headerCount < 0 || headerBlockCount < 0 || headerHistogramSize < 0 || headerIndexLength < 0 || headerIndexSize < 0
+                    || histogramOffset < HEADER_SIZE || headerIndexOffset + headerIndexLength != size) {
+                throw new StreamCorruptedException("Malformed catalogue header");
+            }
+
+            ByteBuffer histogram = ByteBuffer.wrap(read(channel, histogramOffset, headerHistogramSize * HISTOGRAM_ENTRY_SIZE));
+            TreeMap<Integer, Integer> releaseYearHistogram = new TreeMap<>();
+            while (histogram.hasRemaining()) {
+                releaseYearHistogram.put(histogram.getInt(), histogram.getInt());
+            }
+
+            ArticleMetrics.getInstance().countBytesRead(HEADER_SIZE + (long) headerHistogramSize * HISTOGRAM_ENTRY_SIZE);
+
+            int priceSumYear = header.getInt(HEADER_PRICE_SUM_YEAR);
+            BigDecimal priceSum = priceSumYear == NO_PRICE_SUM_YEAR ? null : BigDecimal.valueOf(header.getLong(HEADER_PRICE_SUM_CENTS), 2);
+
+            count = headerCount;
+            blockCount = headerBlockCount;
+            histogramSize = headerHistogramSize;
+            indexOffset = headerIndexOffset;
+            indexLength = headerIndexLength;
+            indexSize = headerIndexSize;
+            statistics = new ArticleStatistics(header.getInt(HEADER_BOOK_COUNT), header.getInt(HEADER_DVD_COUNT),
+                    releaseYearHistogram, priceSum, priceSumYear);
+            blockIndex = null;
+            lastDecodedBlock = null;
+        } catch (IOException | SecurityException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_DESERIALIZATION, e);
+        }
+    }
+
+    /**
+     * Returns the block index, which is read from the file on the first call.
+     *
+     * @return block index of the file
+     * @throws RuntimeException if something goes wrong while reading the block index or it is malformed
+     */
+    private BlockIndex getBlockIndex() {
+        if (blockIndex == null) {
+            blockIndex = blockCount == 0 && count == 0 ? BlockIndex.EMPTY : readBlockIndex();
+        }
+
+        return blockIndex;
+    }
+
+    private BlockIndex readBlockIndex() {
+        long[] blockOffsets = new long[blockCount + 1];
+        int[] blockLengths = new int[blockCount];
+        int[] blockStarts = new int[blockCount + 1];
+        int[] sortedIds = new int[count];
+        int[] idBlocks = new int[count];
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(inflate(read(channel, indexOffset, indexLength), indexSize)));
+
+            ArticleMetrics.getInstance().countBytesRead(indexLength);
+
+            blockOffsets[0] = HEADER_SIZE;
+            for (int block = 0; block < blockCount; block++) {
+                blockOffsets[block + 1] = blockOffsets[block] + readCount(in);
+                blockLengths[block] = readCount(in);
+                blockStarts[block + 1] = blockStarts[block] + readCount(in);
+            }
+
+            if (blockOffsets[blockCount] != indexOffset - (long) histogramSize * HISTOGRAM_ENTRY_SIZE || blockStarts[blockCount] != count) {
+                throw new StreamCorruptedException("Block index does not match the catalogue");
+            }
+
+            long previousId = Integer.MIN_VALUE;
+            for (int entry = 0; entry < count; entry++) {
+                long id = previousId + ArticleCodec.readVarLong(in);
+
+                if (id > Integer.MAX_VALUE || entry > 0 && id == previousId) throw new StreamCorruptedException("Malformed block index");
+
+                sortedIds[entry] = (int) id;
+                idBlocks[entry] = readCount(in);
+                previousId = id;
+
+                if (idBlocks[entry] >= blockCount) throw new StreamCorruptedException("Malformed block index");
+            }
+        } catch (IOException | SecurityException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_DESERIALIZATION, e);
+        }
+
+        return new BlockIndex(blockOffsets, blockLengths, blockStarts, sortedIds, idBlocks);
+    }
+
+    private static int readCount(DataInput in) throws IOException {
+        long value = ArticleCodec.readVarLong(in);
+
+        if (value < 0 || value > Integer.MAX_VALUE) throw new StreamCorruptedException("Malformed block index");
+
+        return (int) value;
+    }
+
+    private Article[] readBlock(BlockIndex index, int block) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Article[] articles = readBlock(channel, index, block);
+
+            ArticleMetrics.getInstance().countBytesRead(index.blockOffsets()[block + 1] - index.blockOffsets()[block]);
+
+            return articles;
+        } catch (IOException | SecurityException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_DESERIALIZATION, e);
+        }
+    }
+
+    /**
+     * Read, decompress and decode a single block.
+     *
+     * @param channel channel of the file to read from, which is only read at explicit positions
+     * @param index   block index of the file
+     * @param block   number of the block
+     * @return articles of the block in their order
+     * @throws IOException if the block could not be read or is malformed
+     */
+    private static Article[] readBlock(FileChannel channel, BlockIndex index, int block) throws IOException {
+        long offset = index.blockOffsets()[block];
+        byte[] data = inflate(read(channel, offset, (int) (index.blockOffsets()[block + 1] - offset)), index.blockLengths()[block]);
+        Article[] articles = new Article[index.blockStarts()[block + 1] - index.blockStarts()[block]];
+
+        try (ArticleCodec.Reader reader = new ArticleCodec.Reader(new ByteArrayInputStream(data))) {
+            for (int i = 0; i < articles.length; i++) {
+                articles[i] = reader.read();
+
+                if (articles[i] == null) throw new StreamCorruptedException("Block holds less articles than indexed");
+            }
+
+            if (reader.read() != null) throw new StreamCorruptedException("Block holds more articles than indexed");
+        }
+
+        return articles;
+    }
+
+    private static byte[] read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException("Unexpected end of catalogue");
+        }
+
+        return buffer.array();
+    }
+
+    private static void write(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void copy(FileChannel source, long position, long length, FileChannel target) throws IOException {
+        for (long copied = 0; copied < length; ) {
+            long transferred = source.transferTo(position + copied, length - copied, target);
+
+            if (transferred <= 0) throw new EOFException("Unexpected end of catalogue");
+
+            copied += transferred;
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 16);
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+        } finally {
+            deflater.end();
+        }
+
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] compressed, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        byte[] data = new byte[length];
+
+        try {
+            inflater.setInput(compressed);
+
+            for (int inflated = 0; inflated < length; ) {
+                int chunkLength = inflater.inflate(data, inflated, length - inflated);
+
+                if (chunkLength == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new StreamCorruptedException("Truncated compressed block");
+                }
+
+                inflated += chunkLength;
+            }
+        } catch (DataFormatException e) {
+            throw new StreamCorruptedException(e.getMessage());
+        } finally {
+            inflater.end();
+        }
+
+        return data;
+    }
+
+    /**
+     * BlockIndex holds where the blocks are stored and which block holds which identifier.
+     *
+     * @param blockOffsets file offsets of the blocks, followed by the end offset of the last block
+     * @param blockLengths uncompressed lengths of the blocks
+     * @param blockStarts  positions of the first article of every block in the catalogue, followed by the article count
+     * @param sortedIds    identifiers of all articles in ascending order
+     * @param idBlocks     block numbers of the identifiers at the same positions
+     */
+    private record BlockIndex(long[] blockOffsets, int[] blockLengths, int[] blockStarts, int[] sortedIds, int[] idBlocks) {
+
+        static final BlockIndex EMPTY = new BlockIndex(new long[]{HEADER_SIZE}, new int[0], new int[1], new int[0], new int[0]);
+
+        int getBlockCount() {
+            return blockLengths.length;
+        }
+
+        /**
+         * Returns the number of the block holding the given identifier by binary searching the sorted identifiers.
+         *
+         * @param id article identifier
+         * @return block number or -1, if there is no such article
+         */
+        int findBlock(int id) {
+            int entry = Arrays.binarySearch(sortedIds, id);
+
+            return entry < 0 ? -1 : idBlocks[entry];
+        }
+    }
+
+    /**
+     * Segment is a run of the rewritten file, which is either a block copied from the current file or articles, which
+     * are encoded into new blocks.
+     *
+     * @param block    number of the copied block or -1
+     * @param articles articles to encode or null
+     */
+    private record Segment(int block, List<Article> articles) {
+
+        static Segment copy(int block) {
+            return new Segment(block, null);
+        }
+
+        /**
+         * Adds articles to encode, which are merged into a directly preceding run of articles, so neighbouring changed
+         * blocks are encoded together instead of shrinking one by one.
+         *
+         * @param segments segments to add to
+         * @param articles articles to encode
+         */
+        static void encode(List<Segment> segments, List<Article> articles) {
+            if (articles.isEmpty()) return;
+
+            Segment lastSegment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (lastSegment != null && lastSegment.isEncoded()) {
+                lastSegment.articles().addAll(articles);
+            } else {
+                segments.add(new Segment(-1, new ArrayList<>(articles)));
+            }
+        }
+
+        boolean isEncoded() {
+            return articles != null;
+        }
+    }
+
+    private record EncodedBlock(byte[] data, int[] ids) {
+    }
+
+    private record DecodedBlock(int block, Article[] articles) {
+    }
+}
@@ -0,0 +1,315 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.math.BigDecimal;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ConcurrentArticleDAO is the data access object specialization for keeping a list of articles in memory, which can be
+ * used by any amount of threads at once.
+ * <p>
+ * Looking up an article never locks. Mutations lock one of several stripes chosen by the article identifier, so
+ * mutations of different articles mostly run in parallel, while adding, updating or deleting several articles at once
+ * locks all of their stripes and changes either all or none of them. Every stripe keeps the statistics about its own
+ * articles, which are updated under its lock with every mutation and merged when the statistics are requested. The
+ * article list is taken from a snapshot of all articles, which is consistent with a point in time between mutations
+ * and only copied again after the next mutation. Copying the snapshot or merging the statistics locks all stripes, so
+ * the mutations do not share any lock with each other and only wait for the copy or the merge.
+ */
+public class ConcurrentArticleDAO implements ArticleDAO {
+
+    private static final int STRIPES_PER_PROCESSOR = 4;
+    private final ConcurrentHashMap<Integer, Entry> articleMap = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Article> insertionOrder = new ConcurrentSkipListMap<>();
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final ReentrantLock[] stripes;
+    private final ArticleStatistics[] stripeStatistics;
+    private volatile List<Article> snapshot;
+
+    ConcurrentArticleDAO() {
+        this(Collections.emptyList());
+    }
+
+    /**
+     * Creates an instance of ConcurrentArticleDAO, which initially contains the given articles.
+     *
+     * @param articles initial articles
+     * @throws IllegalArgumentException if any article's id is given more than once
+     */
+    ConcurrentArticleDAO(Collection<Article> articles) {
+        // Use a power of two, so the stripe can be selected with a mask
+        int stripeCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * STRIPES_PER_PROCESSOR * 2 - 1);
+
+        int currentYear = ArticlePricing.getCurrentYear();
+
+        stripes = new ReentrantLock[stripeCount];
+        stripeStatistics = new ArticleStatistics[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+            stripeStatistics[i] = new ArticleStatistics(0, 0, new TreeMap<>(), BigDecimal.ZERO, currentYear);
+        }
+
+        saveAll(articles);
+    }
+
+    @Override
+    public List<Article> getArticleList() {
+        return getSnapshot();
+    }
+
+    @Override
+    public Article getArticle(int id) {
+        Entry entry = articleMap.get(id);
+
+        return entry == null ? null : entry.article;
+    }
+
+    @Override
+    public void saveArticle(Article article) {
+        ReentrantLock stripe = stripes[getStripeIndex(article.getId())];
+
+        stripe.lock();
+        try {
+            requireAbsent(article.getId());
+            insert(article);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Article> articles) {
+        if (articles.isEmpty()) return;
+
+        runLocked(articles.stream().mapToInt(Article::getId).toArray(), () -> {
+            // Throw an exception if any of the articles already exists, before any of them is stored
+            Set<Integer> batchIds = new HashSet<>(articles.size() * 2);
+            for (Article article : articles) {
+                requireAbsent(article.getId());
+
+                if (!batchIds.add(article.getId())) {
+                    throw alreadyExists(article.getId());
+                }
+            }
+
+            articles.forEach(this::insert);
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<Article> articles) {
+        if (articles.isEmpty()) return;
+
+        int[] ids = articles.stream().mapToInt(Article::getId).toArray();
+
+        runLocked(ids, () -> {
+            // Throw an exception if any of the articles could not be found, before any of them is replaced
+            requirePresent(ids);
+
+            // Replaced articles keep their position in the insertion order
+            for (Article article : articles) {
+                Entry entry = articleMap.get(article.getId());
+                ArticleStatistics statistics = stripeStatistics[getStripeIndex(article.getId())];
+
+                insertionOrder.put(entry.sequence, article);
+                articleMap.put(article.getId(), new Entry(entry.sequence, article));
+                statistics.remove(entry.article);
+                statistics.add(article);
+            }
+            snapshot = null;
+        });
+    }
+
+    @Override
+    public void deleteAll(int[] ids) {
+        if (ids.length == 0) return;
+
+        runLocked(ids, () -> {
+            // Throw an exception if any of the articles could not be found, before any of them is deleted
+            requirePresent(ids);
+
+            for (int id : ids) {
+                Entry entry = articleMap.remove(id);
+
+                insertionOrder.remove(entry.sequence);
+                stripeStatistics[getStripeIndex(id)].remove(entry.article);
+            }
+            snapshot = null;
+        });
+    }
+
+    @Override
+    public void deleteArticle(int id) {
+        ReentrantLock stripe = stripes[getStripeIndex(id)];
+
+        stripe.lock();
+        try {
+            Entry entry = articleMap.remove(id);
+
+            // Throw an exception if the article could not be found
+            if (entry == null) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(id)));
+            }
+
+            insertionOrder.remove(entry.sequence);
+            stripeStatistics[getStripeIndex(id)].remove(entry.article);
+            snapshot = null;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public ArticleStatistics getStatistics() {
+        lockAll();
+        try {
+            // The price sums are only recalculated from all articles whenever the year changed since they were calculated
+            if (!stripeStatistics[0].hasCurrentPriceSum()) {
+                recalculatePriceSums();
+            }
+
+            ArticleStatistics statistics = stripeStatistics[0].copy();
+            for (int i = 1; i < stripeStatistics.length; i++) {
+                statistics.addAll(stripeStatistics[i]);
+            }
+
+            return statistics;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private int getStripeIndex(int id) {
+        int h = id * 0x9E3779B9;
+
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    /**
+     * Runs the mutation while holding the stripe locks of all given identifiers.
+     *
+     * @param ids      identifiers of the articles to mutate
+     * @param mutation mutation to run
+     */
+    private void runLocked(int[] ids, Runnable mutation) {
+        // Lock the stripes in ascending order, so concurrent batches cannot deadlock each other
+        BitSet stripeIndices = new BitSet(stripes.length);
+        for (int id : ids) {
+            stripeIndices.set(getStripeIndex(id));
+        }
+
+        stripeIndices.stream().forEach(index -> stripes[index].lock());
+        try {
+            mutation.run();
+        } finally {
+            stripeIndices.stream().forEach(index -> stripes[index].unlock());
+        }
+    }
+
+    private void requirePresent(int[] ids) {
+        Set<Integer> batchIds = new HashSet<>(ids.length * 2);
+
+        for (int id : ids) {
+            if (!articleMap.containsKey(id)) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(id)));
+            }
+            if (!batchIds.add(id)) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_GIVEN_TWICE, Integer.valueOf(id)));
+            }
+        }
+    }
+
+    private void requireAbsent(int id) {
+        if (articleMap.containsKey(id)) {
+            throw alreadyExists(id);
+        }
+    }
+
+    private static IllegalArgumentException alreadyExists(int id) {
+        return new IllegalArgumentException(MessageFormat.format(SerializedArticleDAO.ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS, Integer.valueOf(id)));
+    }
+
+    /**
+     * Inserts the article, while the caller holds the article's stripe lock.
+     *
+     * @param article article to insert
+     */
+    private void insert(Article article) {
+        long sequence = nextSequence.getAndIncrement();
+
+        insertionOrder.put(sequence, article);
+        articleMap.put(article.getId(), new Entry(sequence, article));
+        stripeStatistics[getStripeIndex(article.getId())].add(article);
+        snapshot = null;
+    }
+
+    /**
+     * Recalculates the price sums of all stripes for the current year, while the caller holds all stripe locks.
+     */
+    private void recalculatePriceSums() {
+        List<List<Article>> stripeArticles = new ArrayList<>(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            stripeArticles.add(new ArrayList<>());
+        }
+
+        for (Entry entry : articleMap.values()) {
+            stripeArticles.get(getStripeIndex(entry.article.getId())).add(entry.article);
+        }
+
+        for (int i = 0; i < stripes.length; i++) {
+            stripeStatistics[i].recalculatePriceSum(stripeArticles.get(i));
+        }
+    }
+
+    /**
+     * Returns the snapshot of the current articles. The snapshot is copied while no mutation is in progress, which is
+     * ensured by holding all stripe locks in the same ascending order as the mutations of several articles.
+     *
+     * @return snapshot of all articles
+     */
+    private List<Article> getSnapshot() {
+        List<Article> currentSnapshot = snapshot;
+
+        if (currentSnapshot != null) return currentSnapshot;
+
+        lockAll();
+        try {
+            // Another thread might have copied the snapshot while this one was waiting for the locks
+            if (snapshot == null) {
+                snapshot = List.copyOf(insertionOrder.values());
+            }
+
+            return snapshot;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Entry is a stored article along with its position in the insertion order.
+     *
+     * @param sequence position in the insertion order
+     * @param article  stored article
+     */
+    private record Entry(long sequence, Article article) {
+    }
+}
@@ -5,8 +5,6 @@
 
 import java.io.Serial;
 import java.math.BigDecimal;
-import java.text.MessageFormat;
-import java.util.StringJoiner;
 
 /**
  * DVD is the specialized entity of Article, which describes DVD-related properties for an article.
@@ -54,10 +52,16 @@ public final class DVD extends Article {
         return ageRating.minAge;
     }
 
-    @Override
-    protected int getDiscountPercentage() {
+    /**
+     * Returns the discount percentage of a DVD with the given minimum age.
+     *
+     * @param minAge minimum age to consume the media
+     * @return discount percentage for such a DVD
+     * @throws IllegalArgumentException if the minimum age is not a valid age rating
+     */
+    static int getDiscountPercentage(int minAge) {
         // Calculate the discount based on the age rating
-        return switch (ageRating) {
+        return switch (AgeRating.getAgeRatingByMinAge(minAge)) {
             case NO_AGE_RESTRICTION -> 20;
             case AGES_SIX_AND_UP -> 15;
             case AGES_TWELVE_AND_UP -> 10;
@@ -67,13 +71,13 @@ public final class DVD extends Article {
     }
 
     @Override
-    public String toString() {
-        StringJoiner joiner = new StringJoiner(System.lineSeparator());
-
-        joiner.add(MessageFormat.format("Length:     {0,number,#}", Integer.valueOf(length)));
-        joiner.add(MessageFormat.format("Age rating: {0,number,#}", Integer.valueOf(ageRating.minAge())));
+    DVD withBasePrice(BigDecimal basePrice) {
+        return new DVD(getId(), getTitle(), getPublisher(), getReleaseYear(), basePrice, length, ageRating.minAge);
+    }
 
-        return MessageFormat.format("{0}{1}{2}", super.toString(), joiner, System.lineSeparator());
+    @Override
+    int getDiscountPercentageInYear(int referenceYear) {
+        return getDiscountPercentage(ageRating.minAge);
     }
 
     private enum AgeRating {
@@ -0,0 +1,289 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.text.MessageFormat;
+import java.util.*;
+
+/**
+ * IntArticleMap is an insertion-ordered hash map from article identifiers to articles.
+ * <p>
+ * The identifiers are kept as primitive ints in an open-addressing table with linear probing, so neither lookups nor
+ * insertions box the key. The articles themselves are kept in a dense array in insertion order, which the table points
+ * into. Removing an article only leaves a hole in that array, which is closed the next time the ordered view is needed.
+ */
+final class IntArticleMap {
+
+    private static final int EMPTY = -1;
+    private static final int DELETED = -2;
+    private static final int MIN_CAPACITY = 8;
+    private int[] slotKeys;
+    private int[] slotEntries;
+    private int usedSlots;
+    private Article[] entries;
+    private int entryCount;
+    private int size;
+    private int modificationCount;
+
+    IntArticleMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Creates an instance of IntArticleMap, which can hold the expected amount of articles without growing.
+     *
+     * @param expectedSize amount of articles expected to be stored
+     */
+    IntArticleMap(int expectedSize) {
+        int capacity = tableCapacityFor(Math.max(MIN_CAPACITY, expectedSize));
+
+        slotKeys = new int[capacity];
+        slotEntries = new int[capacity];
+        Arrays.fill(slotEntries, EMPTY);
+        entries = new Article[Math.max(MIN_CAPACITY, expectedSize)];
+    }
+
+    /**
+     * Creates an instance of IntArticleMap, which contains the given articles in the given order.
+     *
+     * @param articles articles to put into the map
+     * @return map containing the articles
+     */
+    static IntArticleMap of(List<Article> articles) {
+        IntArticleMap map = new IntArticleMap(articles.size());
+
+        for (Article article : articles) {
+            map.put(article);
+        }
+
+        return map;
+    }
+
+    private static int tableCapacityFor(int expectedSize) {
+        // Keep the table at most half full, so probe sequences stay short
+        return Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize) * 2 - 1) << 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(int id) {
+        return findSlot(id) >= 0;
+    }
+
+    /**
+     * Checks that none of the articles' identifiers is contained in this map or given more than once.
+     *
+     * @param articles articles to check
+     * @throws IllegalArgumentException if any article's identifier is already taken
+     */
+    void requireAbsent(Collection<Article> articles) {
+        IntArticleMap checkedArticles = new IntArticleMap(articles.size());
+
+        for (Article article : articles) {
+            if (containsKey(article.getId()) || checkedArticles.put(article) != null) {
+                throw new IllegalArgumentException(MessageFormat.format(SerializedArticleDAO.ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS, Integer.valueOf(article.getId())));
+            }
+        }
+    }
+
+    /**
+     * Checks that all identifiers are contained in this map and none of them is given more than once.
+     *
+     * @param ids identifiers to check
+     * @throws IllegalArgumentException if any identifier could not be found or is given more than once
+     */
+    void requirePresent(int[] ids) {
+        IntArticleMap checkedArticles = new IntArticleMap(ids.length);
+
+        for (int id : ids) {
+            Article article = get(id);
+
+            if (article == null) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(id)));
+            }
+            // An identifier given twice could not be found anymore, once its first occurrence is deleted
+            if (checkedArticles.put(article) != null) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_GIVEN_TWICE, Integer.valueOf(id)));
+            }
+        }
+    }
+
+    /**
+     * Returns the article with the given identifier.
+     *
+     * @param id article identifier
+     * @return found article or null
+     */
+    Article get(int id) {
+        int slot = findSlot(id);
+
+        return slot < 0 ? null : entries[slotEntries[slot]];
+    }
+
+    /**
+     * Puts the article into the map. If an article with the same identifier already exists, it is replaced in place and
+     * keeps its position in the insertion order.
+     *
+     * @param article article to put
+     * @return replaced article or null
+     */
+    Article put(Article article) {
+        int id = article.getId();
+        int slot = findSlot(id);
+
+        if (slot >= 0) {
+            int entry = slotEntries[slot];
+            Article previous = entries[entry];
+            entries[entry] = article;
+            modificationCount++;
+
+            return previous;
+        }
+
+        if (entryCount == entries.length) {
+            // Closing the holes first might already make enough room
+            if (size < entryCount) {
+                compactEntries();
+            }
+            if (entryCount == entries.length) {
+                entries = Arrays.copyOf(entries, entries.length + (entries.length >> 1) + 1);
+            }
+        }
+        if ((usedSlots + 1) * 2 > slotKeys.length) {
+            rehash(tableCapacityFor(size + 1));
+        }
+
+        insertSlot(id, entryCount);
+        entries[entryCount++] = article;
+        size++;
+        modificationCount++;
+
+        return null;
+    }
+
+    /**
+     * Removes the article with the given identifier from the map.
+     *
+     * @param id article identifier
+     * @return removed article or null, if there was none
+     */
+    Article remove(int id) {
+        int slot = findSlot(id);
+
+        if (slot < 0) return null;
+
+        int entry = slotEntries[slot];
+        Article removed = entries[entry];
+
+        // Leave tombstones, so the probe sequences of other keys stay intact
+        slotEntries[slot] = DELETED;
+        entries[entry] = null;
+        size--;
+        modificationCount++;
+
+        return removed;
+    }
+
+    /**
+     * Returns the articles in insertion order as an unmodifiable list.
+     * <p>
+     * The returned list is a view backed by the map and only stays valid until the map is modified the next time, after
+     * which accessing it throws a ConcurrentModificationException instead of returning moved or removed articles.
+     *
+     * @return articles in insertion order
+     */
+    List<Article> values() {
+        if (size < entryCount) {
+            compactEntries();
+        }
+
+        return new ValuesView();
+    }
+
+    private int findSlot(int id) {
+        int mask = slotKeys.length - 1;
+
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slotEntries[slot];
+
+            if (entry == EMPTY) return -1;
+            if (entry != DELETED && slotKeys[slot] == id) return slot;
+        }
+    }
+
+    private void insertSlot(int id, int entry) {
+        int mask = slotKeys.length - 1;
+        int slot = hash(id) & mask;
+
+        while (slotEntries[slot] >= 0) {
+            slot = (slot + 1) & mask;
+        }
+
+        if (slotEntries[slot] == EMPTY) {
+            usedSlots++;
+        }
+
+        slotKeys[slot] = id;
+        slotEntries[slot] = entry;
+    }
+
+    /**
+     * Moves the remaining articles to the front of the entry array and rebuilds the table to point at their new
+     * positions.
+     */
+    private void compactEntries() {
+        int target = 0;
+
+        for (int source = 0; source < entryCount; source++) {
+            if (entries[source] != null) {
+                entries[target++] = entries[source];
+            }
+        }
+
+        Arrays.fill(entries, target, entryCount, null);
+        entryCount = target;
+
+        rehash(slotKeys.length);
+    }
+
+    private void rehash(int capacity) {
+        // Rebuilding also drops all tombstones, which may have piled up in the table
+        slotKeys = new int[capacity];
+        slotEntries = new int[capacity];
+        Arrays.fill(slotEntries, EMPTY);
+        usedSlots = 0;
+
+        for (int entry = 0; entry < entryCount; entry++) {
+            if (entries[entry] != null) {
+                insertSlot(entries[entry].getId(), entry);
+            }
+        }
+    }
+
+    private final class ValuesView extends AbstractList<Article> implements RandomAccess {
+
+        private final int size = IntArticleMap.this.size;
+        private final int expectedModificationCount = modificationCount;
+
+        @Override
+        public Article get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            if (modificationCount != expectedModificationCount) throw new ConcurrentModificationException();
+
+            return entries[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
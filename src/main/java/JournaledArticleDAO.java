@@ -0,0 +1,649 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * JournaledArticleDAO is the data access object specialization for storing a list of articles in a snapshot file and
+ * an append-only journal of add and delete records next to it.
+ * <p>
+ * Every mutation only appends a small record to the journal instead of rewriting the whole article list. The journal is
+ * forced to the disk in batches and compacted into a new snapshot by a background thread once it has grown larger than
+ * the snapshot itself. The snapshot uses the same format as SerializedArticleDAO, so an existing serialized file can be
+ * used as snapshot right away.
+ * <p>
+ * Every journal record ends with a CRC32C checksum over its type, length and payload. Opening the journal replays all
+ * records up to the first one that is incomplete or fails its checksum, which can only be the tail a crash left behind
+ * while appending, and cuts off everything from there on. Since the journal is compacted once it outgrows the snapshot,
+ * the records to check and replay are bounded by the changes since the last snapshot. What was recovered is described
+ * by the {@link RecoveryReport} of the instance. Journals written before the records had checksums are still replayed,
+ * and compacted into a snapshot right away.
+ * <p>
+ * Batches of additions, deletes and updates are appended as a single batch record, which holds their add and delete
+ * records under one checksum, so a crash leaves either all or none of them behind. Replaying an add record replaces an
+ * article with the same identifier, so an update is journaled as an add record. Journals written before there were batch records
+ * are compacted into a snapshot right away as well, so no older version of this class ever reads a batch record.
+ */
+public class JournaledArticleDAO implements ArticleDAO {
+
+    static final String JOURNAL_FILE_SUFFIX = ".journal";
+    private static final String SNAPSHOT_TEMP_FILE_SUFFIX = ".tmp";
+    private static final int DEFAULT_SYNC_BATCH_SIZE = 64;
+    private static final long DEFAULT_SYNC_INTERVAL_MILLIS = 50;
+    private static final long DEFAULT_COMPACTION_INTERVAL_MILLIS = 10_000;
+    private static final long COMPACTION_MIN_JOURNAL_SIZE = 1 << 20;
+    private static final byte RECORD_ADD = 'A';
+    private static final byte RECORD_DELETE = 'D';
+    private static final byte RECORD_BATCH = 'B';
+    private static final int JOURNAL_MAGIC = 0x41434A4C;
+    private static final int JOURNAL_VERSION = 3;
+    private static final int MIN_JOURNAL_VERSION = 2;
+    private static final int JOURNAL_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int RECORD_HEADER_SIZE = 1 + Integer.BYTES;
+    private static final int RECORD_CHECKSUM_SIZE = Integer.BYTES;
+    private final File file;
+    private final File journalFile;
+    private final int syncBatchSize;
+    private final ScheduledExecutorService backgroundExecutor;
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(256);
+    private final ByteArrayOutputStream batchBuffer = new ByteArrayOutputStream(256);
+    private final CRC32C journalChecksum = new CRC32C();
+    private final RecoveryReport recoveryReport;
+    private IntArticleMap articleMap = new IntArticleMap();
+    private ArticleStatistics statistics = new ArticleStatistics();
+    private ArticleIndex index = new ArticleIndex();
+    private TextIndex textIndex;
+    private boolean isSearched;
+    private FileOutputStream journalOutputStream;
+    private DataOutputStream journal;
+    private int pendingRecords;
+    private RuntimeException backgroundFailure;
+    private boolean closed;
+
+    /**
+     * Creates an instance of JournaledArticleDAO with the default sync and compaction settings.
+     *
+     * @param filename the file used for the snapshot, the journal is stored next to it
+     * @throws RuntimeException if something goes wrong while reading the snapshot or replaying the journal
+     */
+    JournaledArticleDAO(String filename) {
+        this(filename, DEFAULT_SYNC_BATCH_SIZE, DEFAULT_SYNC_INTERVAL_MILLIS, DEFAULT_COMPACTION_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Creates an instance of JournaledArticleDAO.
+     *
+     * @param filename                 the file used for the snapshot, the journal is stored next to it
+     * @param syncBatchSize            amount of journal records after which the journal is forced to the disk
+     * @param syncIntervalMillis       maximum time in milliseconds a journal record stays unforced
+     * @param compactionIntervalMillis time in milliseconds between checks whether the journal should be compacted
+     * @throws RuntimeException if something goes wrong while reading the snapshot or replaying the journal
+     */
+    JournaledArticleDAO(String filename, int syncBatchSize, long syncIntervalMillis, long compactionIntervalMillis) {
+        this.file = new File(filename);
+        this.journalFile = new File(filename + JOURNAL_FILE_SUFFIX);
+        this.syncBatchSize = Math.max(1, syncBatchSize);
+
+        long startTime = System.nanoTime();
+        boolean isOutdatedJournal = false;
+        JournalReplay replay = new JournalReplay();
+
+        // Load the last snapshot, if there is one, and apply the journal records written after it
+        if (this.file.exists()) {
+            readSnapshot();
+        }
+        int snapshotArticleCount = articleMap.size();
+        if (this.journalFile.exists()) {
+            isOutdatedJournal = replayJournal(replay);
+        }
+
+        openJournal();
+
+        // Never append records to a journal of an older format, but move its records into a snapshot instead
+        if (isOutdatedJournal) {
+            compact(true);
+        }
+
+        recoveryReport = new RecoveryReport(snapshotArticleCount, replay.addCount, replay.deleteCount,
+                replay.truncatedBytes, System.nanoTime() - startTime);
+
+        backgroundExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "article-journal-" + file.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        backgroundExecutor.scheduleWithFixedDelay(() -> runInBackground(this::syncJournal), syncIntervalMillis,
+                syncIntervalMillis, TimeUnit.MILLISECONDS);
+        backgroundExecutor.scheduleWithFixedDelay(() -> runInBackground(() -> compact(false)),
+                compactionIntervalMillis, compactionIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized List<Article> getArticleList() {
+        // The background thread may change the map while the caller iterates, so the caller gets a copy
+        return List.copyOf(articleMap.values());
+    }
+
+    @Override
+    public synchronized Article getArticle(int id) {
+        return articleMap.get(id);
+    }
+
+    @Override
+    public synchronized void saveArticle(Article article) {
+        int articleId = article.getId();
+
+        // Throw an exception if the article already exists
+        if (articleMap.containsKey(articleId)) {
+            throw new IllegalArgumentException(MessageFormat.format(SerializedArticleDAO.ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS, Integer.valueOf(articleId)));
+        }
+
+        appendRecord(RECORD_ADD, article, articleId);
+
+        articleMap.put(article);
+        statistics.add(article);
+        index.add(article);
+        if (textIndex != null) textIndex.add(article);
+    }
+
+    @Override
+    public synchronized void saveAll(Collection<Article> articles) {
+        // Throw an exception if any of the articles already exists, before any of them is journaled
+        articleMap.requireAbsent(articles);
+
+        appendBatch(articles, new int[0]);
+
+        for (Article article : articles) {
+            articleMap.put(article);
+            statistics.add(article);
+            index.add(article);
+            if (textIndex != null) textIndex.add(article);
+        }
+    }
+
+    @Override
+    public synchronized void deleteArticle(int id) {
+        // Throw an exception if the article could not be found
+        if (!articleMap.containsKey(id)) {
+            throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(id)));
+        }
+
+        appendRecord(RECORD_DELETE, null, id);
+
+        Article article = articleMap.remove(id);
+
+        statistics.remove(article);
+        index.remove(article);
+        if (textIndex != null) textIndex.remove(article);
+    }
+
+    @Override
+    public synchronized void deleteAll(int[] ids) {
+        // Throw an exception if any of the articles could not be found, before any of them is journaled
+        articleMap.requirePresent(ids);
+
+        appendBatch(Collections.emptyList(), ids);
+
+        for (int id : ids) {
+            Article article = articleMap.remove(id);
+
+            statistics.remove(article);
+            index.remove(article);
+            if (textIndex != null) textIndex.remove(article);
+        }
+    }
+
+    @Override
+    public synchronized void updateAll(Collection<Article> articles) {
+        // Throw an exception if any of the articles could not be found, before any of them is journaled
+        articleMap.requirePresent(articles.stream().mapToInt(Article::getId).toArray());
+
+        appendBatch(articles, new int[0]);
+
+        for (Article article : articles) {
+            Article replaced = articleMap.put(article);
+
+            statistics.remove(replaced);
+            statistics.add(article);
+            index.remove(replaced);
+            index.add(article);
+            if (textIndex != null) {
+                textIndex.remove(replaced);
+                textIndex.add(article);
+            }
+        }
+    }
+
+    @Override
+    public synchronized List<Article> find(ArticleQuery query) {
+        return index.find(query, articleMap.values());
+    }
+
+    @Override
+    public synchronized List<Article> getSortedArticles(ArticleOrder order, boolean isDescending, int offset, int limit) {
+        return index.getSorted(order, isDescending, offset, limit, articleMap.values());
+    }
+
+    @Override
+    public synchronized List<Article> search(List<String> terms) {
+        // The index is not stored, so a single search is answered by scanning the articles, which is cheaper than
+        // building the index, and only a process searching again builds it and keeps it up to date from then on
+        if (textIndex == null && !isSearched) {
+            isSearched = true;
+
+            return TextIndex.scan(terms, articleMap.values());
+        }
+        if (textIndex == null) {
+            textIndex = TextIndex.of(articleMap.values());
+        }
+
+        return Arrays.stream(textIndex.search(terms)).mapToObj(articleMap::get).toList();
+    }
+
+    @Override
+    public synchronized ArticleStatistics getStatistics() {
+        // The price sum is only calculated on demand and whenever the year changed since it was calculated
+        if (!statistics.hasCurrentPriceSum()) {
+            statistics.recalculatePriceSum(articleMap.values());
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Returns what was recovered from the snapshot and the journal when this instance was opened.
+     *
+     * @return report about the recovery
+     */
+    RecoveryReport getRecoveryReport() {
+        return recoveryReport;
+    }
+
+    /**
+     * Force all pending journal records to the disk, compact the journal if it has grown too large and release the
+     * journal file.
+     *
+     * @throws RuntimeException if the journal could not be written or compacted
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+
+        backgroundExecutor.shutdownNow();
+
+        try {
+            compact(false);
+            syncJournal();
+        } finally {
+            closed = true;
+
+            try {
+                journal.close();
+            } catch (IOException e) {
+                throw new RuntimeException(SerializedArticleDAO.ERR_MSG_SERIALIZATION, e);
+            }
+        }
+    }
+
+    /**
+     * Write the current article list into a new snapshot and truncate the journal.
+     * <p>
+     * The snapshot is written into a temporary file first and then atomically moved over the old snapshot, so a crash
+     * at any point leaves either the old or the new snapshot behind. Replaying journal records on top of a snapshot that
+     * already contains them is harmless, since add records replace and delete records ignore missing articles.
+     *
+     * @param force whether the journal should be compacted even if it is still smaller than the snapshot
+     * @throws RuntimeException if the snapshot could not be written or the journal could not be truncated
+     */
+    synchronized void compact(boolean force) {
+        if (closed) return;
+
+        try {
+            long journalSize = journalOutputStream.getChannel().size();
+            long threshold = Math.max(COMPACTION_MIN_JOURNAL_SIZE, file.length());
+
+            // Only compact if the journal costs more to replay than the snapshot does to read
+            if (!force && (journalSize <= JOURNAL_HEADER_SIZE || journalSize < threshold)) return;
+
+            File snapshotTempFile = new File(file.getPath() + SNAPSHOT_TEMP_FILE_SUFFIX);
+
+            try (
+                    FileOutputStream fos = new FileOutputStream(snapshotTempFile);
+                    ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(fos))
+            ) {
+                oos.writeObject(new ArrayList<>(articleMap.values()));
+                SerializedArticleDAO.writeStatistics(oos, getStatistics());
+                oos.flush();
+                fos.getFD().sync();
+
+                ArticleMetrics.getInstance().countBytesWritten(fos.getChannel().position());
+            }
+
+            Files.move(snapshotTempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            journal.flush();
+            journalOutputStream.getChannel().truncate(0);
+            writeJournalHeader();
+            journalOutputStream.getChannel().force(true);
+            pendingRecords = 0;
+        } catch (IOException | SecurityException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_SERIALIZATION, e);
+        }
+    }
+
+    /**
+     * Flush the buffered journal records and force them to the disk.
+     *
+     * @throws RuntimeException if the journal could not be written
+     */
+    private synchronized void syncJournal() {
+        if (closed || pendingRecords == 0) return;
+
+        try {
+            journal.flush();
+            journalOutputStream.getChannel().force(false);
+            pendingRecords = 0;
+        } catch (IOException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_SERIALIZATION, e);
+        }
+    }
+
+    /**
+     * Run a task on the background thread and keep its failure for the next caller of this instance.
+     *
+     * @param task task to run
+     */
+    private void runInBackground(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                backgroundFailure = e;
+            }
+        }
+    }
+
+    /**
+     * Append a single record to the journal and force the journal to the disk if the sync batch is full.
+     * <p>
+     * Each record consists of the record type, the payload length, the payload itself, which is either an article
+     * record of ArticleCodec or the identifier of the deleted article, and the checksum of all of these.
+     *
+     * @param recordType type of the record, either add or delete
+     * @param article    article to add, or null for a delete record
+     * @param id         identifier of the affected article
+     * @throws RuntimeException if the journal could not be written or a background task failed before
+     */
+    private void appendRecord(byte recordType, Article article, int id) {
+        try {
+            writePayload(new DataOutputStream(recordBuffer), article, id);
+        } catch (IOException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_SERIALIZATION, e);
+        }
+
+        appendRecord(recordType, recordBuffer);
+    }
+
+    /**
+     * Append the added and deleted articles as a single batch record and force the journal to the disk right away.
+     * <p>
+     * The payload of a batch record is a sequence of delete and add records without checksums of their own, since they
+     * are covered by the checksum of the batch record.
+     *
+     * @param articles   articles to add or replace
+     * @param deletedIds identifiers of the articles to delete
+     * @throws RuntimeException if the journal could not be written or a background task failed before
+     */
+    private void appendBatch(Collection<Article> articles, int[] deletedIds) {
+        try {
+            batchBuffer.reset();
+            DataOutputStream batch = new DataOutputStream(batchBuffer);
+
+            for (int id : deletedIds) {
+                writePayload(new DataOutputStream(recordBuffer), null, id);
+                batch.writeByte(RECORD_DELETE);
+                batch.writeInt(recordBuffer.size());
+                recordBuffer.writeTo(batch);
+            }
+            for (Article article : articles) {
+                writePayload(new DataOutputStream(recordBuffer), article, article.getId());
+                batch.writeByte(RECORD_ADD);
+                batch.writeInt(recordBuffer.size());
+                recordBuffer.writeTo(batch);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_SERIALIZATION, e);
+        }
+
+        appendRecord(RECORD_BATCH, batchBuffer);
+        syncJournal();
+    }
+
+    private void writePayload(DataOutputStream payload, Article article, int id) throws IOException {
+        recordBuffer.reset();
+
+        if (article != null) {
+            ArticleCodec.writeArticle(payload, article);
+        } else {
+            payload.writeInt(id);
+        }
+    }
+
+    private void appendRecord(byte recordType, ByteArrayOutputStream payload) {
+        // Report failures of the background thread to the caller instead of losing them
+        if (backgroundFailure != null) {
+            RuntimeException failure = backgroundFailure;
+            backgroundFailure = null;
+            throw failure;
+        }
+
+        try {
+            // The checksum stream sees every byte as soon as it is written, so it covers exactly this record
+            journalChecksum.reset();
+            journal.writeByte(recordType);
+            journal.writeInt(payload.size());
+            payload.writeTo(journal);
+            journal.writeInt((int) journalChecksum.getValue());
+
+            ArticleMetrics.getInstance().countBytesWritten(RECORD_HEADER_SIZE + payload.size() + RECORD_CHECKSUM_SIZE);
+        } catch (IOException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_SERIALIZATION, e);
+        }
+
+        if (++pendingRecords >= syncBatchSize) {
+            syncJournal();
+        }
+    }
+
+    /**
+     * Deserialize the snapshot stored in the specified file and store it in articleMap.
+     *
+     * @throws RuntimeException if something goes wrong while reading the file or deserializing the article list
+     */
+    @SuppressWarnings("unchecked")
+    private void readSnapshot() {
+        try (
+                FileInputStream fis = new FileInputStream(file);
+                ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(fis))
+        ) {
+            List<Article> articleList = (List<Article>) ois.readObject();
+
+            articleMap = IntArticleMap.of(articleList);
+            statistics = SerializedArticleDAO.readStatistics(ois, articleList);
+
+            ArticleMetrics.getInstance().countBytesRead(fis.getChannel().position());
+        } catch (IOException | SecurityException | ClassNotFoundException | ClassCastException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_DESERIALIZATION, e);
+        }
+    }
+
+    /**
+     * Apply all intact journal records on top of the article list and cut off the journal at the first record that is
+     * incomplete or fails its checksum, which is left behind if the process died while appending it.
+     *
+     * @param replay counts of the replayed records and the cut off bytes
+     * @return whether the journal was written in an older format
+     * @throws RuntimeException if something goes wrong while reading the journal or an intact record is malformed
+     */
+    private boolean replayJournal(JournalReplay replay) {
+        long journalLength = journalFile.length();
+        long validLength = 0;
+        boolean isLegacyJournal = false;
+        boolean isOutdatedJournal = false;
+        CRC32C checksum = new CRC32C();
+        ByteBuffer lengthBytes = ByteBuffer.allocate(Integer.BYTES);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            in.mark(JOURNAL_HEADER_SIZE);
+
+            if (journalLength >= JOURNAL_HEADER_SIZE && in.readInt() == JOURNAL_MAGIC) {
+                int version = in.readInt();
+                if (version < MIN_JOURNAL_VERSION || version > JOURNAL_VERSION) throw new StreamCorruptedException("Unsupported journal version " + version);
+
+                isOutdatedJournal = version < JOURNAL_VERSION;
+                validLength = JOURNAL_HEADER_SIZE;
+            } else if (journalLength >= JOURNAL_HEADER_SIZE) {
+                in.reset();
+                isLegacyJournal = true;
+            }
+
+            while (validLength < journalLength) {
+                int recordType = in.readUnsignedByte();
+                int payloadLength = in.readInt();
+                long recordLength = (long) RECORD_HEADER_SIZE + payloadLength + (isLegacyJournal ? 0 : RECORD_CHECKSUM_SIZE);
+
+                // A length reaching beyond the end of the journal can only be part of a damaged record
+                if (payloadLength < 0 || recordLength > journalLength - validLength) break;
+
+                byte[] payload = new byte[payloadLength];
+                in.readFully(payload);
+
+                if (!isLegacyJournal) {
+                    checksum.reset();
+                    checksum.update(recordType);
+                    checksum.update(lengthBytes.clear().putInt(payloadLength).flip());
+                    checksum.update(payload);
+
+                    if (in.readInt() != (int) checksum.getValue()) break;
+                }
+
+                applyRecord(recordType, new DataInputStream(new ByteArrayInputStream(payload)), replay);
+                validLength += recordLength;
+            }
+        } catch (EOFException e) {
+            // The last record was only written partially, so it never was acknowledged and can be dropped
+        } catch (IOException | SecurityException | IllegalArgumentException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_DESERIALIZATION, e);
+        }
+
+        ArticleMetrics.getInstance().countBytesRead(journalLength);
+
+        if (validLength < journalLength) {
+            replay.truncatedBytes = journalLength - validLength;
+            truncateJournal(validLength);
+        }
+
+        return isLegacyJournal || isOutdatedJournal;
+    }
+
+    private void applyRecord(int recordType, DataInputStream payloadIn, JournalReplay replay) throws IOException {
+        switch (recordType) {
+            case RECORD_ADD -> {
+                Article article = ArticleCodec.readArticle(payloadIn);
+                Article replaced = articleMap.put(article);
+
+                if (replaced != null) statistics.remove(replaced);
+                statistics.add(article);
+                replay.addCount++;
+            }
+            case RECORD_DELETE -> {
+                Article deleted = articleMap.remove(payloadIn.readInt());
+
+                if (deleted != null) statistics.remove(deleted);
+                replay.deleteCount++;
+            }
+            case RECORD_BATCH -> {
+                // A batch only holds add and delete records, which share the checksum of the batch
+                while (payloadIn.available() > 0) {
+                    int batchedType = payloadIn.readUnsignedByte();
+                    int batchedLength = payloadIn.readInt();
+                    if (batchedType == RECORD_BATCH || batchedLength < 0) throw new StreamCorruptedException("Malformed journal batch");
+
+                    byte[] batchedPayload = new byte[batchedLength];
+                    payloadIn.readFully(batchedPayload);
+
+                    applyRecord(batchedType, new DataInputStream(new ByteArrayInputStream(batchedPayload)), replay);
+                }
+            }
+            default -> throw new StreamCorruptedException("Unknown journal record type " + recordType);
+        }
+    }
+
+    private void truncateJournal(long length) {
+        try (FileChannel channel = new RandomAccessFile(journalFile, "rw").getChannel()) {
+            channel.truncate(length);
+            channel.force(true);
+        } catch (IOException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_DESERIALIZATION, e);
+        }
+    }
+
+    private void openJournal() {
+        try {
+            journalOutputStream = new FileOutputStream(journalFile, true);
+            journal = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(journalOutputStream), journalChecksum));
+
+            if (journalOutputStream.getChannel().size() == 0) {
+                writeJournalHeader();
+            }
+        } catch (IOException | SecurityException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_SERIALIZATION, e);
+        }
+    }
+
+    private void writeJournalHeader() throws IOException {
+        journal.writeInt(JOURNAL_MAGIC);
+        journal.writeInt(JOURNAL_VERSION);
+        journal.flush();
+    }
+
+    /**
+     * RecoveryReport describes what was recovered when a JournaledArticleDAO was opened.
+     *
+     * @param snapshotArticleCount amount of articles read from the snapshot
+     * @param replayedAddCount     amount of replayed add records
+     * @param replayedDeleteCount  amount of replayed delete records
+     * @param truncatedBytes       amount of bytes cut off the end of the journal, because they were no intact record
+     * @param elapsedNanos         time the recovery took in nanoseconds
+     */
+    record RecoveryReport(int snapshotArticleCount, int replayedAddCount, int replayedDeleteCount, long truncatedBytes,
+                          long elapsedNanos) {
+    }
+
+    /**
+     * JournalReplay counts the records while the journal is replayed.
+     */
+    private static final class JournalReplay {
+
+        private int addCount;
+        private int deleteCount;
+        private long truncatedBytes;
+    }
+}
@@ -0,0 +1,673 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * MappedArticleDAO is the data access object specialization for storing a list of articles in a file with a fixed record
+ * layout, which is memory-mapped and only decoded on demand.
+ * <p>
+ * The file starts with a header, followed by one fixed-size record per article in insertion order, an index of
+ * (identifier, record number) pairs sorted by identifier and a heap of UTF-8 encoded titles and publishers, which the
+ * records point into. Opening the file only maps it, so looking up an article by its identifier only decodes that single
+ * record. The statistics about the catalogue are stored in the header and a release year histogram after the heap, so
+ * counts and aggregates are read from there and only recalculated from the raw record fields without creating any
+ * Article objects, when the price sum is outdated.
+ * <p>
+ * Changes rewrite the whole file by streaming the mapped records into a new file, so this format is meant for
+ * catalogues that are read much more often than they are changed.
+ */
+public class MappedArticleDAO implements ArticleDAO {
+
+    static final int MAGIC = 0x41434D31;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_COUNT = 8;
+    private static final int HEADER_HEAP_OFFSET = 16;
+    private static final int HEADER_BOOK_COUNT = 24;
+    private static final int HEADER_DVD_COUNT = 28;
+    private static final int HEADER_PRICE_SUM_YEAR = 32;
+    private static final int HEADER_HISTOGRAM_SIZE = 36;
+    private static final int HEADER_PRICE_SUM_CENTS = 40;
+    private static final int HEADER_HISTOGRAM_OFFSET = 48;
+    private static final int NO_PRICE_SUM_YEAR = 0;
+    private static final int HISTOGRAM_ENTRY_SIZE = 8;
+    private static final int RECORD_SIZE = 48;
+    private static final int RECORD_ID = 0;
+    private static final int RECORD_TYPE = 4;
+    private static final int RECORD_AGE_RATING = 5;
+    private static final int RECORD_RELEASE_YEAR = 8;
+    private static final int RECORD_PAGES_OR_LENGTH = 12;
+    private static final int RECORD_PRICE_CENTS = 16;
+    private static final int RECORD_TITLE_OFFSET = 24;
+    private static final int RECORD_TITLE_LENGTH = 32;
+    private static final int RECORD_PUBLISHER_OFFSET = 36;
+    private static final int RECORD_PUBLISHER_LENGTH = 44;
+    private static final int INDEX_ENTRY_SIZE = 8;
+    private static final byte TYPE_BOOK = 'B';
+    private static final byte TYPE_DVD = 'D';
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private final File file;
+    private MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+    private int count;
+    private long indexOffset;
+    private long heapOffset;
+    private ArticleStatistics statistics = new ArticleStatistics();
+
+    /**
+     * Creates an instance of MappedArticleDAO.
+     *
+     * @param filename the file used for storage
+     * @throws RuntimeException if something goes wrong while mapping an existent file
+     */
+    MappedArticleDAO(String filename) {
+        this.file = new File(filename);
+
+        // Map the specified file, if the file exists
+        if (this.file.exists()) {
+            mapFile();
+        }
+    }
+
+    /**
+     * Write the articles into a file in the mapped record layout.
+     *
+     * @param file     file to write
+     * @param articles articles to write in their order
+     * @param count    amount of articles that will be written
+     * @throws IOException if the file could not be written or an article cannot be represented
+     */
+    static void writeFile(File file, Iterable<Article> articles, int count) throws IOException {
+        long indexStart = HEADER_SIZE + (long) count * RECORD_SIZE;
+        long heapStart = indexStart + (long) count * INDEX_ENTRY_SIZE;
+        long[] index = new long[count];
+        Map<String, Long> publisherOffsets = new HashMap<>();
+        TreeMap<Integer, Integer> releaseYearHistogram = new TreeMap<>();
+        int currentYear = ArticlePricing.getCurrentYear();
+        int bookCount = 0;
+        long priceSumCents = 0;
+        BigDecimal otherPriceSum = BigDecimal.ZERO;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer records = ByteBuffer.allocate(BUFFER_SIZE);
+            ByteBuffer heap = ByteBuffer.allocate(BUFFER_SIZE);
+            long recordPosition = HEADER_SIZE;
+            long heapPosition = heapStart;
+            int written = 0;
+
+            for (Article article : articles) {
+                if (written == count) throw new IOException("More articles than announced");
+
+                byte[] title = article.getTitle().getBytes(StandardCharsets.UTF_8);
+                long titleOffset = heapPosition + heap.position() - heapStart;
+                heapPosition = putBytes(channel, heap, heapPosition, title);
+
+                // Store every publisher only once and let all of its articles point to it
+                byte[] publisher = article.getPublisher().getBytes(StandardCharsets.UTF_8);
+                Long publisherOffset = publisherOffsets.get(article.getPublisher());
+                if (publisherOffset == null) {
+                    publisherOffset = heapPosition + heap.position() - heapStart;
+                    publisherOffsets.put(article.getPublisher(), publisherOffset);
+                    heapPosition = putBytes(channel, heap, heapPosition, publisher);
+                }
+
+                if (records.remaining() < RECORD_SIZE) {
+                    recordPosition = flush(channel, records, recordPosition);
+                }
+
+                int start = records.position();
+                records.putInt(start + RECORD_ID, article.getId());
+                long basePriceCents = ArticleCodec.toCents(article.getBasePrice());
+                records.putShort(start + RECORD_AGE_RATING + 1, (short) 0);
+                records.putInt(start + RECORD_RELEASE_YEAR, article.getReleaseYear());
+                records.putLong(start + RECORD_PRICE_CENTS, basePriceCents);
+                records.putLong(start + RECORD_TITLE_OFFSET, titleOffset);
+                records.putInt(start + RECORD_TITLE_LENGTH, title.length);
+                records.putLong(start + RECORD_PUBLISHER_OFFSET, publisherOffset);
+                records.putInt(start + RECORD_PUBLISHER_LENGTH, publisher.length);
+
+                if (article instanceof Book book) {
+                    records.put(start + RECORD_TYPE, TYPE_BOOK);
+                    records.put(start + RECORD_AGE_RATING, (byte) 0);
+                    records.putInt(start + RECORD_PAGES_OR_LENGTH, book.getPages());
+                    bookCount++;
+                } else if (article instanceof DVD dvd) {
+                    records.put(start + RECORD_TYPE, TYPE_DVD);
+                    records.put(start + RECORD_AGE_RATING, ArticleCodec.toAgeRatingCode(dvd.getMinAge()));
+                    records.putInt(start + RECORD_PAGES_OR_LENGTH, dvd.getLength());
+                }
+
+                records.position(start + RECORD_SIZE);
+
+                releaseYearHistogram.merge(article.getReleaseYear(), 1, Integer::sum);
+                try {
+                    priceSumCents = Math.addExact(priceSumCents, getPriceCents(records, start, currentYear));
+                } catch (ArithmeticException e) {
+                    // The price or the sum does not fit into a long in cents, so it is continued in BigDecimal
+                    otherPriceSum = otherPriceSum.add(article.getPrice(currentYear));
+                }
+
+                // Pack identifier and record number, so sorting the longs sorts by identifier
+                index[written] = (long) article.getId() << 32 | written;
+                written++;
+            }
+
+            if (written != count) throw new IOException("Less articles than announced");
+
+            flush(channel, records, recordPosition);
+            long histogramStart = flush(channel, heap, heapPosition);
+
+            ByteBuffer histogram = ByteBuffer.allocate(releaseYearHistogram.size() * HISTOGRAM_ENTRY_SIZE);
+            releaseYearHistogram.forEach((year, yearCount) -> histogram.putInt(year).putInt(yearCount));
+            flush(channel, histogram, histogramStart);
+
+            Arrays.sort(index);
+
+            ByteBuffer indexBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long indexPosition = indexStart;
+            for (long entry : index) {
+                if (!indexBuffer.hasRemaining()) {
+                    indexPosition = flush(channel, indexBuffer, indexPosition);
+                }
+                indexBuffer.putInt((int) (entry >> 32));
+                indexBuffer.putInt((int) entry);
+            }
+            flush(channel, indexBuffer, indexPosition);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(0, MAGIC);
+            header.putInt(HEADER_VERSION, VERSION);
+            header.putInt(HEADER_COUNT, count);
+            header.putLong(HEADER_HEAP_OFFSET, heapStart);
+            header.putInt(HEADER_BOOK_COUNT, bookCount);
+            header.putInt(HEADER_DVD_COUNT, count - bookCount);
+            header.putInt(HEADER_HISTOGRAM_SIZE, releaseYearHistogram.size());
+
+            // Only a price sum in cents that fits into a long is stored, any other one is recalculated once it is needed
+            try {
+                header.putLong(HEADER_PRICE_SUM_CENTS, Math.addExact(priceSumCents, ArticleCodec.toCents(otherPriceSum)));
+                header.putInt(HEADER_PRICE_SUM_YEAR, currentYear);
+            } catch (ArithmeticException | InvalidObjectException e) {
+                header.putLong(HEADER_PRICE_SUM_CENTS, 0);
+                header.putInt(HEADER_PRICE_SUM_YEAR, NO_PRICE_SUM_YEAR);
+            }
+            header.putLong(HEADER_HISTOGRAM_OFFSET, histogramStart);
+            flush(channel, header.position(HEADER_SIZE), 0);
+
+            channel.force(true);
+        }
+    }
+
+    private static long putBytes(FileChannel channel, ByteBuffer buffer, long position, byte[] bytes) throws IOException {
+        for (int offset = 0; offset < bytes.length; ) {
+            if (!buffer.hasRemaining()) {
+                position = flush(channel, buffer, position);
+            }
+
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+
+        return position;
+    }
+
+    private static long flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+
+        buffer.clear();
+
+        return position;
+    }
+
+    @Override
+    public List<Article> getArticleList() {
+        return new RecordListView();
+    }
+
+    @Override
+    public Article getArticle(int id) {
+        int record = findRecord(id);
+
+        return record < 0 ? null : decodeRecord(record);
+    }
+
+    @Override
+    public void saveArticle(Article article) {
+        int articleId = article.getId();
+
+        // Throw an exception if the article already exists
+        if (findRecord(articleId) >= 0) {
+            throw new IllegalArgumentException(MessageFormat.format(SerializedArticleDAO.ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS, Integer.valueOf(articleId)));
+        }
+        ArticleCodec.requireEncodable(List.of(article));
+
+        List<Article> articles = new RecordListView() {
+            @Override
+            public Article get(int index) {
+                return index == count ? article : super.get(index);
+            }
+
+            @Override
+            public int size() {
+                return super.size() + 1;
+            }
+        };
+
+        rewriteFile(articles, articles.size());
+    }
+
+    @Override
+    public void saveAll(Collection<Article> articles) {
+        IntArticleMap addedArticles = new IntArticleMap(articles.size());
+
+        // Throw an exception if any of the articles already exists, before the file is rewritten
+        for (Article article : articles) {
+            if (findRecord(article.getId()) >= 0 || addedArticles.put(article) != null) {
+                throw new IllegalArgumentException(MessageFormat.format(SerializedArticleDAO.ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS, Integer.valueOf(article.getId())));
+            }
+        }
+        ArticleCodec.requireEncodable(articles);
+
+        List<Article> addedList = addedArticles.values();
+        List<Article> allArticles = new RecordListView() {
+            @Override
+            public Article get(int index) {
+                return index >= count ? addedList.get(index - count) : super.get(index);
+            }
+
+            @Override
+            public int size() {
+                return super.size() + addedList.size();
+            }
+        };
+
+        rewriteFile(allArticles, allArticles.size());
+    }
+
+    @Override
+    public void deleteArticle(int id) {
+        int deletedRecord = findRecord(id);
+
+        // Throw an exception if the article could not be found
+        if (deletedRecord < 0) {
+            throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(id)));
+        }
+
+        List<Article> remaining = new RecordListView() {
+            @Override
+            public Article get(int index) {
+                return super.get(index < deletedRecord ? index : index + 1);
+            }
+
+            @Override
+            public int size() {
+                return super.size() - 1;
+            }
+        };
+
+        rewriteFile(remaining, remaining.size());
+    }
+
+    @Override
+    public void deleteAll(int[] ids) {
+        BitSet deletedRecords = new BitSet(count);
+
+        // Throw an exception if any of the articles could not be found, before the file is rewritten
+        for (int id : ids) {
+            int deletedRecord = findRecord(id);
+
+            if (deletedRecord < 0) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(id)));
+            }
+            if (deletedRecords.get(deletedRecord)) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_GIVEN_TWICE, Integer.valueOf(id)));
+            }
+            deletedRecords.set(deletedRecord);
+        }
+
+        int[] remainingRecords = IntStream.range(0, count).filter(record -> !deletedRecords.get(record)).toArray();
+        List<Article> remaining = new RecordListView() {
+            @Override
+            public Article get(int index) {
+                return super.get(remainingRecords[index]);
+            }
+
+            @Override
+            public int size() {
+                return remainingRecords.length;
+            }
+        };
+
+        rewriteFile(remaining, remaining.size());
+    }
+
+    @Override
+    public void updateAll(Collection<Article> articles) {
+        IntArticleMap updatedArticles = new IntArticleMap(articles.size());
+
+        // Throw an exception if any of the articles could not be found, before the file is rewritten
+        for (Article article : articles) {
+            if (findRecord(article.getId()) < 0) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(article.getId())));
+            }
+            if (updatedArticles.put(article) != null) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_GIVEN_TWICE, Integer.valueOf(article.getId())));
+            }
+        }
+        ArticleCodec.requireEncodable(articles);
+
+        // Only the identifier of a record is read to find out whether it is replaced
+        List<Article> allArticles = new RecordListView() {
+            @Override
+            public Article get(int index) {
+                Article updatedArticle = updatedArticles.get(getInt(recordPosition(index) + RECORD_ID));
+
+                return updatedArticle != null ? updatedArticle : super.get(index);
+            }
+        };
+
+        rewriteFile(allArticles, allArticles.size());
+    }
+
+    @Override
+    public ArticleStatistics getStatistics() {
+        // Recalculate the stored price sum from the raw records, once the year changed since the file was written
+        if (!statistics.hasCurrentPriceSum()) {
+            statistics.setPriceSum(calculatePriceSum());
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Returns the identifiers of the articles released in the oldest release year, read from the raw records.
+     *
+     * @return identifiers of the oldest articles
+     * @throws NoSuchElementException if there are no articles
+     */
+    @Override
+    public List<Integer> getOldestArticleIds() {
+        int releaseYear = getStatistics().getOldestReleaseYear();
+        List<Integer> ids = new ArrayList<>();
+
+        for (int record = 0; record < count; record++) {
+            long position = recordPosition(record);
+
+            if (getInt(position + RECORD_RELEASE_YEAR) == releaseYear) {
+                ids.add(getInt(position + RECORD_ID));
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Returns the sum of the article prices, calculated from the raw records.
+     *
+     * @return sum of the article prices
+     * @throws RuntimeException if a record is malformed
+     */
+    private BigDecimal calculatePriceSum() {
+        int currentYear = ArticlePricing.getCurrentYear();
+        long sumCents = 0;
+        BigDecimal otherSum = BigDecimal.ZERO;
+
+        try {
+            for (int record = 0; record < count; record++) {
+                long position = recordPosition(record);
+
+                try {
+                    sumCents = Math.addExact(sumCents, getPriceCents(getByte(position + RECORD_TYPE),
+                            getInt(position + RECORD_RELEASE_YEAR), getInt(position + RECORD_PAGES_OR_LENGTH),
+                            getByte(position + RECORD_AGE_RATING), getLong(position + RECORD_PRICE_CENTS), currentYear));
+                } catch (ArithmeticException e) {
+                    // The price or the sum does not fit into a long in cents, so it is continued in BigDecimal
+                    otherSum = otherSum.add(decodeRecord(record).getPrice(currentYear));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_DESERIALIZATION, e);
+        }
+
+        return BigDecimal.valueOf(sumCents, 2).add(otherSum);
+    }
+
+    private static long getPriceCents(ByteBuffer records, int start, int currentYear) throws IOException {
+        return getPriceCents(records.get(start + RECORD_TYPE), records.getInt(start + RECORD_RELEASE_YEAR),
+                records.getInt(start + RECORD_PAGES_OR_LENGTH), records.get(start + RECORD_AGE_RATING),
+                records.getLong(start + RECORD_PRICE_CENTS), currentYear);
+    }
+
+    private static long getPriceCents(byte type, int releaseYear, int pagesOrLength, byte ageRatingCode, long basePriceCents, int currentYear) throws IOException {
+        int discountPercentage = type == TYPE_BOOK
+                ? Book.getDiscountPercentage(currentYear - releaseYear, pagesOrLength)
+                : DVD.getDiscountPercentage(ArticleCodec.fromAgeRatingCode(ageRatingCode));
+
+        return Article.calculatePriceCents(basePriceCents, discountPercentage);
+    }
+
+    /**
+     * Write the articles into a temporary file, move it over the mapped file and map the new file. The temporary file is
+     * deleted again, if it could not be written or moved.
+     *
+     * @param articles articles to write
+     * @param size     amount of articles to write
+     * @throws RuntimeException if something goes wrong while writing or mapping the file
+     */
+    private void rewriteFile(Iterable<Article> articles, int size) {
+        File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+
+        try {
+            writeFile(tempFile, articles, size);
+            ArticleMetrics.getInstance().countBytesWritten(tempFile.length());
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | SecurityException | ArithmeticException e) {
+            tempFile.delete();
+
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_SERIALIZATION, e);
+        }
+
+        mapFile();
+    }
+
+    /**
+     * Map the specified file into memory and validate its header.
+     *
+     * @throws RuntimeException if something goes wrong while mapping the file or the header is invalid
+     */
+    private void mapFile() {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer[] mappedChunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+
+            for (int chunk = 0; chunk < mappedChunks.length; chunk++) {
+                long start = (long) chunk << CHUNK_SHIFT;
+                mappedChunks[chunk] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_SIZE, size - start));
+            }
+
+            chunks = mappedChunks;
+
+            if (size < HEADER_SIZE || getInt(0) != MAGIC) throw new StreamCorruptedException("Not a mapped article catalogue");
+            if (getInt(HEADER_VERSION) != VERSION) throw new StreamCorruptedException("Unsupported catalogue version");
+
+            count = getInt(HEADER_COUNT);
+            indexOffset = HEADER_SIZE + (long) count * RECORD_SIZE;
+            heapOffset = getLong(HEADER_HEAP_OFFSET);
+
+            if (count < 0 || heapOffset != indexOffset + (long) count * INDEX_ENTRY_SIZE || heapOffset > size) {
+                throw new StreamCorruptedException("Malformed catalogue header");
+            }
+
+            int histogramSize = getInt(HEADER_HISTOGRAM_SIZE);
+            long histogramOffset = getLong(HEADER_HISTOGRAM_OFFSET);
+
+            if (histogramSize < 0 || histogramOffset < heapOffset || histogramOffset + (long) histogramSize * HISTOGRAM_ENTRY_SIZE > size) {
+                throw new StreamCorruptedException("Malformed release year histogram");
+            }
+
+            TreeMap<Integer, Integer> releaseYearHistogram = new TreeMap<>();
+            for (long entry = histogramOffset; entry < histogramOffset + (long) histogramSize * HISTOGRAM_ENTRY_SIZE; entry += HISTOGRAM_ENTRY_SIZE) {
+                releaseYearHistogram.put(getInt(entry), getInt(entry + Integer.BYTES));
+            }
+
+            int priceSumYear = getInt(HEADER_PRICE_SUM_YEAR);
+            BigDecimal priceSum = priceSumYear == NO_PRICE_SUM_YEAR ? null : BigDecimal.valueOf(getLong(HEADER_PRICE_SUM_CENTS), 2);
+
+            statistics = new ArticleStatistics(getInt(HEADER_BOOK_COUNT), getInt(HEADER_DVD_COUNT), releaseYearHistogram,
+                    priceSum, priceSumYear);
+        } catch (IOException | SecurityException e) {
+            chunks = new MappedByteBuffer[0];
+            count = 0;
+            statistics = new ArticleStatistics();
+
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_DESERIALIZATION, e);
+        }
+    }
+
+    /**
+     * Returns the number of the record with the given identifier by binary searching the index.
+     *
+     * @param id article identifier
+     * @return record number or -1, if there is no such article
+     */
+    private int findRecord(int id) {
+        int low = 0;
+        int high = count - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long entry = indexOffset + (long) middle * INDEX_ENTRY_SIZE;
+            int middleId = getInt(entry);
+
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return getInt(entry + Integer.BYTES);
+            }
+        }
+
+        return -1;
+    }
+
+    private Article decodeRecord(int record) {
+        long position = recordPosition(record);
+        int id = getInt(position + RECORD_ID);
+        int releaseYear = getInt(position + RECORD_RELEASE_YEAR);
+        String title = getString(getLong(position + RECORD_TITLE_OFFSET), getInt(position + RECORD_TITLE_LENGTH));
+        String publisher = getString(getLong(position + RECORD_PUBLISHER_OFFSET), getInt(position + RECORD_PUBLISHER_LENGTH));
+        BigDecimal basePrice = BigDecimal.valueOf(getLong(position + RECORD_PRICE_CENTS), 2);
+        int pagesOrLength = getInt(position + RECORD_PAGES_OR_LENGTH);
+
+        // The mapped pages are only read once they are accessed, so count the bytes the record and its strings span
+        ArticleMetrics.getInstance().countBytesRead(RECORD_SIZE + (long) title.length() + publisher.length());
+
+        if (getByte(position + RECORD_TYPE) == TYPE_BOOK) {
+            return new Book(id, title, publisher, releaseYear, basePrice, pagesOrLength);
+        }
+
+        return new DVD(id, title, publisher, releaseYear, basePrice, pagesOrLength, getMinAge(position));
+    }
+
+    private int getMinAge(long position) {
+        try {
+            return ArticleCodec.fromAgeRatingCode(getByte(position + RECORD_AGE_RATING));
+        } catch (IOException e) {
+            throw new RuntimeException(SerializedArticleDAO.ERR_MSG_DESERIALIZATION, e);
+        }
+    }
+
+    private static long recordPosition(int record) {
+        return HEADER_SIZE + (long) record * RECORD_SIZE;
+    }
+
+    private byte getByte(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & (CHUNK_SIZE - 1)));
+    }
+
+    private int getInt(long position) {
+        MappedByteBuffer chunk = chunks[(int) (position >>> CHUNK_SHIFT)];
+        int offset = (int) (position & (CHUNK_SIZE - 1));
+
+        // Only values crossing a chunk boundary have to be assembled byte by byte
+        if (offset + Integer.BYTES <= chunk.limit()) return chunk.getInt(offset);
+
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value = value << 8 | getByte(position + i) & 0xFF;
+        }
+        return value;
+    }
+
+    private long getLong(long position) {
+        MappedByteBuffer chunk = chunks[(int) (position >>> CHUNK_SHIFT)];
+        int offset = (int) (position & (CHUNK_SIZE - 1));
+
+        if (offset + Long.BYTES <= chunk.limit()) return chunk.getLong(offset);
+
+        return (long) getInt(position) << 32 | getInt(position + Integer.BYTES) & 0xFFFFFFFFL;
+    }
+
+    private String getString(long heapRelativeOffset, int length) {
+        byte[] bytes = new byte[length];
+        long position = heapOffset + heapRelativeOffset;
+
+        for (int copied = 0; copied < length; ) {
+            MappedByteBuffer chunk = chunks[(int) ((position + copied) >>> CHUNK_SHIFT)];
+            int offset = (int) ((position + copied) & (CHUNK_SIZE - 1));
+            int chunkLength = Math.min(length - copied, chunk.limit() - offset);
+
+            chunk.get(offset, bytes, copied, chunkLength);
+            copied += chunkLength;
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * RecordListView is the list view on the mapped records, which decodes an article whenever it is accessed.
+     */
+    private class RecordListView extends AbstractList<Article> implements RandomAccess {
+
+        private final int size = count;
+
+        @Override
+        public Article get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+
+            return decodeRecord(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
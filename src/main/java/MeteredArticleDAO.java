@@ -0,0 +1,110 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * MeteredArticleDAO is the data access object decorator, which records the latency of every call into the histogram
+ * {@code dao.<method>} of ArticleMetrics and counts the bytes the decorated data access object reads or writes during
+ * the call for it.
+ */
+final class MeteredArticleDAO implements ArticleDAO {
+
+    private final ArticleDAO articleDAO;
+    private final ArticleMetrics metrics;
+
+    /**
+     * Creates an instance of MeteredArticleDAO.
+     *
+     * @param articleDAO data access object to decorate
+     * @param metrics    registry to record into
+     */
+    MeteredArticleDAO(ArticleDAO articleDAO, ArticleMetrics metrics) {
+        this.articleDAO = articleDAO;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public List<Article> getArticleList() {
+        return metrics.time("dao.getArticleList", articleDAO::getArticleList);
+    }
+
+    @Override
+    public Article getArticle(int id) {
+        return metrics.time("dao.getArticle", () -> articleDAO.getArticle(id));
+    }
+
+    @Override
+    public void saveArticle(Article article) {
+        metrics.time("dao.saveArticle", () -> articleDAO.saveArticle(article));
+    }
+
+    @Override
+    public void saveAll(Collection<Article> articles) {
+        metrics.time("dao.saveAll", () -> articleDAO.saveAll(articles));
+    }
+
+    @Override
+    public void deleteArticle(int id) {
+        metrics.time("dao.deleteArticle", () -> articleDAO.deleteArticle(id));
+    }
+
+    @Override
+    public void deleteAll(int[] ids) {
+        metrics.time("dao.deleteAll", () -> articleDAO.deleteAll(ids));
+    }
+
+    @Override
+    public int deleteWhere(Predicate<Article> predicate) {
+        return metrics.time("dao.deleteWhere", () -> articleDAO.deleteWhere(predicate));
+    }
+
+    @Override
+    public void updateAll(Collection<Article> articles) {
+        metrics.time("dao.updateAll", () -> articleDAO.updateAll(articles));
+    }
+
+    @Override
+    public List<Article> find(ArticleQuery query) {
+        return metrics.time("dao.find", () -> articleDAO.find(query));
+    }
+
+    @Override
+    public List<Article> getSortedArticles(ArticleOrder order, boolean isDescending, int offset, int limit) {
+        return metrics.time("dao.getSortedArticles", () -> articleDAO.getSortedArticles(order, isDescending, offset, limit));
+    }
+
+    @Override
+    public List<Article> search(List<String> terms) {
+        return metrics.time("dao.search", () -> articleDAO.search(terms));
+    }
+
+    @Override
+    public ArticleStatistics getStatistics() {
+        return metrics.time("dao.getStatistics", articleDAO::getStatistics);
+    }
+
+    @Override
+    public ArticleAggregator.Result aggregate(ArticlePricing pricing) {
+        return metrics.time("dao.aggregate", () -> articleDAO.aggregate(pricing));
+    }
+
+    @Override
+    public List<Integer> getOldestArticleIds() {
+        return metrics.time("dao.getOldestArticleIds", articleDAO::getOldestArticleIds);
+    }
+
+    @Override
+    public ArticleChangeLog getChangeLog() {
+        return articleDAO.getChangeLog();
+    }
+
+    @Override
+    public void close() {
+        metrics.time("dao.close", articleDAO::close);
+    }
+}
@@ -0,0 +1,692 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * OffHeapArticleDAO is the data access object specialization for keeping a list of articles in memory outside of the
+ * Java heap, so the garbage collector neither has to trace nor to copy the catalogue, no matter how large it grows.
+ * <p>
+ * Each article is a fixed-size record in direct buffers, which hold the identifier, type, release year, base price in
+ * cents, page count or length, minimum age and references to its title and publisher. Titles and publishers are stored
+ * as UTF-8 in an arena of direct buffers as well, with every publisher stored only once and found through an
+ * open-addressing table of arena references. The records are found by their identifier through another
+ * open-addressing table of record numbers, which is also stored outside of the heap. Article objects are only created
+ * when an article is accessed and become garbage right after their use, while the counts, prices and oldest articles
+ * are aggregated from the raw records. Base prices that are not given in whole cents or do not fit into a long are
+ * kept aside on the heap.
+ * <p>
+ * Deleting an article only leaves a hole in the records, which is closed the next time the records are listed or once
+ * most of the records are holes. The arena is copied without the titles of deleted articles and unused publishers,
+ * once most of its bytes are unused.
+ * <p>
+ * The direct buffers count against the JVM's limit of direct memory, which defaults to the maximum heap size and is
+ * raised with {@code -XX:MaxDirectMemorySize}.
+ */
+public class OffHeapArticleDAO implements ArticleDAO {
+
+    private static final String ERR_MSG_STRING_TOO_LONG = "Error: Title or publisher too long.";
+    private static final String ERR_MSG_TOO_MANY_ARTICLES = "Error: Too many articles.";
+    private static final int RECORD_SIZE = 40;
+    private static final int RECORD_ID = 0;
+    private static final int RECORD_TYPE = 4;
+    private static final int RECORD_MIN_AGE = 5;
+    private static final int RECORD_RELEASE_YEAR = 8;
+    private static final int RECORD_PAGES_OR_LENGTH = 12;
+    private static final int RECORD_BASE_PRICE_CENTS = 16;
+    private static final int RECORD_TITLE = 24;
+    private static final int RECORD_PUBLISHER = 32;
+    private static final byte TYPE_DELETED = 0;
+    private static final byte TYPE_BOOK = 'B';
+    private static final byte TYPE_DVD = 'D';
+    private static final int RECORD_CHUNK_SHIFT = 20;
+    private static final int RECORDS_PER_CHUNK = 1 << RECORD_CHUNK_SHIFT;
+    // Every string in the arena is stored as its hash and its length followed by its bytes
+    private static final int STRING_HASH = 0;
+    private static final int STRING_LENGTH = 4;
+    private static final int STRING_BYTES = 8;
+    private static final int ARENA_CHUNK_SHIFT = 26;
+    private static final int ARENA_CHUNK_SIZE = 1 << ARENA_CHUNK_SHIFT;
+    private static final int EMPTY = 0;
+    private static final int DELETED = -1;
+    private static final int MAX_SLOT_COUNT = 1 << 28;
+    private static final int MIN_CAPACITY = 8;
+    private ByteBuffer[] recordChunks = {allocate(MIN_CAPACITY * RECORD_SIZE)};
+    private int recordCount;
+    private int size;
+    // Holds the record number plus one of every article, so the identifiers are only stored in the records
+    private ByteBuffer slots = allocate(MIN_CAPACITY * 2 * Integer.BYTES);
+    private int usedSlots;
+    private ByteBuffer[] arenaChunks = {allocate(MIN_CAPACITY * 16)};
+    private long arenaSize;
+    private long unusedArenaBytes;
+    // Holds the arena reference plus one of every publisher, so zero marks an empty slot
+    private ByteBuffer publisherSlots = allocate(MIN_CAPACITY * 2 * Long.BYTES);
+    private int publisherCount;
+    private final Map<Integer, BigDecimal> otherBasePrices = new HashMap<>();
+    private ArticleStatistics statistics = new ArticleStatistics();
+    private int modificationCount;
+
+    OffHeapArticleDAO() {
+        this(Collections.emptyList());
+    }
+
+    /**
+     * Creates an instance of OffHeapArticleDAO, which initially contains the given articles.
+     *
+     * @param articles initial articles
+     * @throws IllegalArgumentException if any article's id is given more than once
+     */
+    OffHeapArticleDAO(Collection<Article> articles) {
+        saveAll(articles);
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(byte[] bytes) {
+        int h = 1;
+
+        for (byte b : bytes) {
+            h = 31 * h + b;
+        }
+
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public List<Article> getArticleList() {
+        if (size < recordCount) {
+            compactRecords();
+        }
+
+        return new RecordListView();
+    }
+
+    @Override
+    public Article getArticle(int id) {
+        int slot = findSlot(id);
+
+        return slot < 0 ? null : getRecord(getSlot(slot) - 1);
+    }
+
+    @Override
+    public void saveArticle(Article article) {
+        int articleId = article.getId();
+
+        // Throw an exception if the article already exists
+        if (findSlot(articleId) >= 0) {
+            throw new IllegalArgumentException(MessageFormat.format(SerializedArticleDAO.ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS, Integer.valueOf(articleId)));
+        }
+
+        addRecord(article);
+        statistics.add(article);
+        modificationCount++;
+    }
+
+    @Override
+    public void saveAll(Collection<Article> articles) {
+        IntArticleMap addedArticles = new IntArticleMap(articles.size());
+
+        // Throw an exception if any of the articles already exists, before any of them is stored
+        for (Article article : articles) {
+            if (findSlot(article.getId()) >= 0 || addedArticles.put(article) != null) {
+                throw new IllegalArgumentException(MessageFormat.format(SerializedArticleDAO.ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS, Integer.valueOf(article.getId())));
+            }
+        }
+
+        for (Article article : articles) {
+            addRecord(article);
+            statistics.add(article);
+        }
+        modificationCount++;
+    }
+
+    @Override
+    public void deleteArticle(int id) {
+        int slot = findSlot(id);
+
+        // Throw an exception if the article could not be found
+        if (slot < 0) {
+            throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(id)));
+        }
+
+        int record = getSlot(slot) - 1;
+        statistics.remove(getRecord(record));
+
+        // The publisher may still be shared with other articles, so only the title is known to be unused
+        unusedArenaBytes += STRING_BYTES + getArenaInt(getRecordChunk(record).getLong(getRecordOffset(record) + RECORD_TITLE) + STRING_LENGTH);
+        otherBasePrices.remove(id);
+
+        // Leave a tombstone, so the probe sequences of other identifiers stay intact
+        setSlot(slot, DELETED);
+        getRecordChunk(record).put(getRecordOffset(record) + RECORD_TYPE, TYPE_DELETED);
+        size--;
+        modificationCount++;
+
+        if (size < recordCount / 2) {
+            compactRecords();
+        }
+        if (unusedArenaBytes > arenaSize / 2) {
+            compactArena();
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<Article> articles) {
+        IntArticleMap updatedArticles = new IntArticleMap(articles.size());
+
+        // Throw an exception if any of the articles could not be found, before any of them is replaced
+        for (Article article : articles) {
+            if (findSlot(article.getId()) < 0) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(article.getId())));
+            }
+            if (updatedArticles.put(article) != null) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_GIVEN_TWICE, Integer.valueOf(article.getId())));
+            }
+        }
+
+        // Every article is written over its own record, so it keeps its position and leaves no tombstone behind
+        for (Article article : articles) {
+            int record = getSlot(findSlot(article.getId())) - 1;
+            statistics.remove(getRecord(record));
+
+            // The publisher may still be shared with other articles, so only the replaced title is known to be unused
+            unusedArenaBytes += STRING_BYTES + getArenaInt(getRecordChunk(record).getLong(getRecordOffset(record) + RECORD_TITLE) + STRING_LENGTH);
+            otherBasePrices.remove(article.getId());
+
+            setRecord(record, article);
+            statistics.add(article);
+        }
+        modificationCount++;
+
+        if (unusedArenaBytes > arenaSize / 2) {
+            compactArena();
+        }
+    }
+
+    @Override
+    public ArticleStatistics getStatistics() {
+        // Recalculate the price sum from the records, once the year changed since it was calculated
+        if (!statistics.hasCurrentPriceSum()) {
+            statistics.setPriceSum(calculatePriceSum());
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Returns the counts, price aggregates and oldest articles, which are calculated from the records in a single
+     * parallel pass without creating any Article objects.
+     *
+     * @param pricing pricing all prices are calculated with
+     * @return aggregates of all articles
+     */
+    @Override
+    public ArticleAggregator.Result aggregate(ArticlePricing pricing) {
+        if (size < recordCount) {
+            compactRecords();
+        }
+
+        int count = recordCount;
+
+        return ArticleAggregator.aggregate(new ArticleAggregator.Rows() {
+            @Override
+            public int size() {
+                return count;
+            }
+
+            @Override
+            public void addTo(ArticleAggregator.Accumulator accumulator, int row, ArticlePricing pricing) {
+                ByteBuffer chunk = getRecordChunk(row);
+                int offset = getRecordOffset(row);
+                boolean isBook = chunk.get(offset + RECORD_TYPE) == TYPE_BOOK;
+                int id = chunk.getInt(offset + RECORD_ID);
+                int releaseYear = chunk.getInt(offset + RECORD_RELEASE_YEAR);
+                long priceCents = calculatePriceCents(row, pricing.getReferenceYear());
+
+                if (priceCents != Article.PRICE_NOT_IN_CENTS) {
+                    accumulator.add(isBook, id, releaseYear, priceCents);
+                } else {
+                    accumulator.add(isBook, id, releaseYear, getRecord(row).getPrice(pricing.getReferenceYear()));
+                }
+            }
+        }, pricing, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the identifiers of the articles released in the oldest release year, read from the records.
+     *
+     * @return identifiers of the oldest articles
+     * @throws NoSuchElementException if there are no articles
+     */
+    @Override
+    public List<Integer> getOldestArticleIds() {
+        int releaseYear = getStatistics().getOldestReleaseYear();
+        List<Integer> articleIds = new ArrayList<>();
+
+        for (int record = 0; record < recordCount; record++) {
+            ByteBuffer chunk = getRecordChunk(record);
+            int offset = getRecordOffset(record);
+
+            if (chunk.getInt(offset + RECORD_RELEASE_YEAR) == releaseYear && chunk.get(offset + RECORD_TYPE) != TYPE_DELETED) {
+                articleIds.add(chunk.getInt(offset + RECORD_ID));
+            }
+        }
+
+        return articleIds;
+    }
+
+    /**
+     * Returns the sum of the article prices, calculated from the records.
+     *
+     * @return sum of the article prices
+     */
+    private BigDecimal calculatePriceSum() {
+        int currentYear = ArticlePricing.getCurrentYear();
+        long sumCents = 0;
+        BigDecimal otherSum = BigDecimal.ZERO;
+
+        for (int record = 0; record < recordCount; record++) {
+            if (getRecordChunk(record).get(getRecordOffset(record) + RECORD_TYPE) == TYPE_DELETED) continue;
+
+            long priceCents = calculatePriceCents(record, currentYear);
+
+            if (priceCents != Article.PRICE_NOT_IN_CENTS) {
+                try {
+                    sumCents = Math.addExact(sumCents, priceCents);
+                } catch (ArithmeticException e) {
+                    otherSum = otherSum.add(BigDecimal.valueOf(priceCents, Article.PRICE_DECIMAL_COUNT));
+                }
+            } else {
+                otherSum = otherSum.add(getRecord(record).getPrice(currentYear));
+            }
+        }
+
+        return BigDecimal.valueOf(sumCents, Article.PRICE_DECIMAL_COUNT).add(otherSum);
+    }
+
+    /**
+     * Returns the price in cents of the article in the given record, or PRICE_NOT_IN_CENTS if it has to be calculated
+     * from its Article object instead.
+     *
+     * @param record        number of the record
+     * @param referenceYear year in which the discount applies
+     * @return price of the article in cents or PRICE_NOT_IN_CENTS
+     */
+    private long calculatePriceCents(int record, int referenceYear) {
+        ByteBuffer chunk = getRecordChunk(record);
+        int offset = getRecordOffset(record);
+        long basePriceCents = chunk.getLong(offset + RECORD_BASE_PRICE_CENTS);
+
+        if (basePriceCents == Article.PRICE_NOT_IN_CENTS) return Article.PRICE_NOT_IN_CENTS;
+
+        int discountPercentage = chunk.get(offset + RECORD_TYPE) == TYPE_BOOK
+                ? Book.getDiscountPercentage(referenceYear - chunk.getInt(offset + RECORD_RELEASE_YEAR), chunk.getInt(offset + RECORD_PAGES_OR_LENGTH))
+                : DVD.getDiscountPercentage(chunk.get(offset + RECORD_MIN_AGE));
+
+        try {
+            return Article.calculatePriceCents(basePriceCents, discountPercentage);
+        } catch (ArithmeticException e) {
+            return Article.PRICE_NOT_IN_CENTS;
+        }
+    }
+
+    private Article getRecord(int record) {
+        ByteBuffer chunk = getRecordChunk(record);
+        int offset = getRecordOffset(record);
+        int id = chunk.getInt(offset + RECORD_ID);
+        String title = getString(chunk.getLong(offset + RECORD_TITLE));
+        String publisher = getString(chunk.getLong(offset + RECORD_PUBLISHER));
+        int releaseYear = chunk.getInt(offset + RECORD_RELEASE_YEAR);
+        long basePriceCents = chunk.getLong(offset + RECORD_BASE_PRICE_CENTS);
+        BigDecimal basePrice = basePriceCents == Article.PRICE_NOT_IN_CENTS
+                ? otherBasePrices.get(id)
+                : BigDecimal.valueOf(basePriceCents, Article.PRICE_DECIMAL_COUNT);
+        int pagesOrLength = chunk.getInt(offset + RECORD_PAGES_OR_LENGTH);
+
+        if (chunk.get(offset + RECORD_TYPE) == TYPE_BOOK) {
+            return new Book(id, title, publisher, releaseYear, basePrice, pagesOrLength);
+        }
+
+        return new DVD(id, title, publisher, releaseYear, basePrice, pagesOrLength, chunk.get(offset + RECORD_MIN_AGE));
+    }
+
+    private void addRecord(Article article) {
+        if (size == MAX_SLOT_COUNT / 2) throw new IllegalStateException(ERR_MSG_TOO_MANY_ARTICLES);
+
+        if ((usedSlots + 1) * 2L > getSlotCount()) {
+            rehash(Integer.highestOneBit(Math.max(MIN_CAPACITY, size + 1) * 2 - 1) << 1);
+        }
+        // Closing the holes first might already make enough room
+        if (size < recordCount && recordCount == getRecordCapacity()) {
+            compactRecords();
+        }
+        ensureRecordCapacity(recordCount + 1);
+
+        int record = recordCount++;
+        setRecord(record, article);
+
+        insertSlot(article.getId(), record);
+        size++;
+    }
+
+    private void setRecord(int record, Article article) {
+        ByteBuffer chunk = getRecordChunk(record);
+        int offset = getRecordOffset(record);
+        long basePriceCents;
+
+        try {
+            basePriceCents = article.getBasePrice().movePointRight(Article.PRICE_DECIMAL_COUNT).longValueExact();
+        } catch (ArithmeticException e) {
+            basePriceCents = Article.PRICE_NOT_IN_CENTS;
+            otherBasePrices.put(article.getId(), article.getBasePrice());
+        }
+
+        chunk.putInt(offset + RECORD_ID, article.getId());
+        chunk.putInt(offset + RECORD_RELEASE_YEAR, article.getReleaseYear());
+        chunk.putLong(offset + RECORD_BASE_PRICE_CENTS, basePriceCents);
+        chunk.putLong(offset + RECORD_TITLE, appendString(article.getTitle().getBytes(StandardCharsets.UTF_8)));
+        chunk.putLong(offset + RECORD_PUBLISHER, internPublisher(article.getPublisher().getBytes(StandardCharsets.UTF_8)));
+
+        if (article instanceof Book book) {
+            chunk.put(offset + RECORD_TYPE, TYPE_BOOK);
+            chunk.put(offset + RECORD_MIN_AGE, (byte) 0);
+            chunk.putInt(offset + RECORD_PAGES_OR_LENGTH, book.getPages());
+        } else if (article instanceof DVD dvd) {
+            chunk.put(offset + RECORD_TYPE, TYPE_DVD);
+            chunk.put(offset + RECORD_MIN_AGE, (byte) dvd.getMinAge());
+            chunk.putInt(offset + RECORD_PAGES_OR_LENGTH, dvd.getLength());
+        }
+    }
+
+    private ByteBuffer getRecordChunk(int record) {
+        return recordChunks[record >>> RECORD_CHUNK_SHIFT];
+    }
+
+    private static int getRecordOffset(int record) {
+        return (record & (RECORDS_PER_CHUNK - 1)) * RECORD_SIZE;
+    }
+
+    private long getRecordCapacity() {
+        ByteBuffer lastChunk = recordChunks[recordChunks.length - 1];
+
+        return (long) (recordChunks.length - 1) * RECORDS_PER_CHUNK + lastChunk.capacity() / RECORD_SIZE;
+    }
+
+    private void ensureRecordCapacity(int capacity) {
+        if (capacity <= getRecordCapacity()) return;
+
+        // The first chunk grows until it is full-sized, every further chunk is allocated at full size right away
+        if (recordChunks.length == 1 && recordChunks[0].capacity() < RECORDS_PER_CHUNK * RECORD_SIZE) {
+            int chunkCapacity = Math.min(RECORDS_PER_CHUNK, Math.max(capacity, recordChunks[0].capacity() / RECORD_SIZE * 2));
+            recordChunks[0] = allocate(chunkCapacity * RECORD_SIZE).put(recordChunks[0].clear());
+        } else {
+            recordChunks = Arrays.copyOf(recordChunks, recordChunks.length + 1);
+            recordChunks[recordChunks.length - 1] = allocate(RECORDS_PER_CHUNK * RECORD_SIZE);
+        }
+    }
+
+    private long appendString(byte[] bytes) {
+        return appendString(bytes, hash(bytes));
+    }
+
+    private long appendString(byte[] bytes, int hash) {
+        int length = STRING_BYTES + bytes.length;
+        if (length > ARENA_CHUNK_SIZE) throw new IllegalArgumentException(ERR_MSG_STRING_TOO_LONG);
+
+        int chunkIndex = (int) (arenaSize >>> ARENA_CHUNK_SHIFT);
+        int offset = (int) (arenaSize & (ARENA_CHUNK_SIZE - 1));
+        ByteBuffer chunk = arenaChunks[chunkIndex];
+
+        if (offset + length > chunk.capacity()) {
+            if (arenaChunks.length == 1 && offset + length <= ARENA_CHUNK_SIZE) {
+                int chunkCapacity = Math.min(ARENA_CHUNK_SIZE, Math.max(offset + length, chunk.capacity() * 2));
+                chunk = allocate(chunkCapacity).put(chunk.clear());
+                arenaChunks[0] = chunk;
+            } else {
+                // Strings never cross a chunk boundary, so the rest of the current chunk stays unused
+                unusedArenaBytes += ARENA_CHUNK_SIZE - offset;
+                chunkIndex++;
+                offset = 0;
+                arenaChunks = Arrays.copyOf(arenaChunks, chunkIndex + 1);
+                chunk = allocate(ARENA_CHUNK_SIZE);
+                arenaChunks[chunkIndex] = chunk;
+            }
+        }
+
+        chunk.putInt(offset + STRING_HASH, hash);
+        chunk.putInt(offset + STRING_LENGTH, bytes.length);
+        chunk.put(offset + STRING_BYTES, bytes);
+
+        long reference = (long) chunkIndex << ARENA_CHUNK_SHIFT | offset;
+        arenaSize = reference + length;
+
+        return reference;
+    }
+
+    /**
+     * Returns the arena reference of the publisher, appending the publisher to the arena if it is not yet contained.
+     *
+     * @param bytes UTF-8 encoded publisher
+     * @return arena reference of the publisher
+     */
+    private long internPublisher(byte[] bytes) {
+        int hash = hash(bytes);
+        int mask = publisherSlots.capacity() / Long.BYTES - 1;
+        int slot = hash & mask;
+
+        for (long entry = publisherSlots.getLong(slot * Long.BYTES); entry != 0; slot = (slot + 1) & mask, entry = publisherSlots.getLong(slot * Long.BYTES)) {
+            long reference = entry - 1;
+
+            if (getArenaInt(reference + STRING_HASH) == hash && equalsString(reference, bytes)) return reference;
+        }
+
+        long reference = appendString(bytes, hash);
+        publisherCount++;
+
+        if (publisherCount * 2L > mask + 1) {
+            rehashPublishers(publisherSlots.capacity() / Long.BYTES * 2);
+        }
+        insertPublisher(reference);
+
+        return reference;
+    }
+
+    private void insertPublisher(long reference) {
+        int mask = publisherSlots.capacity() / Long.BYTES - 1;
+        int slot = getArenaInt(reference + STRING_HASH) & mask;
+
+        while (publisherSlots.getLong(slot * Long.BYTES) != 0) {
+            slot = (slot + 1) & mask;
+        }
+
+        publisherSlots.putLong(slot * Long.BYTES, reference + 1);
+    }
+
+    private void rehashPublishers(int capacity) {
+        ByteBuffer oldSlots = publisherSlots;
+        publisherSlots = allocate(capacity * Long.BYTES);
+
+        for (int slot = 0; slot < oldSlots.capacity() / Long.BYTES; slot++) {
+            long entry = oldSlots.getLong(slot * Long.BYTES);
+
+            if (entry != 0) {
+                insertPublisher(entry - 1);
+            }
+        }
+    }
+
+    private boolean equalsString(long reference, byte[] bytes) {
+        ByteBuffer chunk = arenaChunks[(int) (reference >>> ARENA_CHUNK_SHIFT)];
+        int offset = (int) (reference & (ARENA_CHUNK_SIZE - 1));
+
+        if (chunk.getInt(offset + STRING_LENGTH) != bytes.length) return false;
+
+        return chunk.slice(offset + STRING_BYTES, bytes.length).equals(ByteBuffer.wrap(bytes));
+    }
+
+    private int getArenaInt(long position) {
+        return arenaChunks[(int) (position >>> ARENA_CHUNK_SHIFT)].getInt((int) (position & (ARENA_CHUNK_SIZE - 1)));
+    }
+
+    private String getString(long reference) {
+        ByteBuffer chunk = arenaChunks[(int) (reference >>> ARENA_CHUNK_SHIFT)];
+        int offset = (int) (reference & (ARENA_CHUNK_SIZE - 1));
+        byte[] bytes = new byte[chunk.getInt(offset + STRING_LENGTH)];
+
+        chunk.get(offset + STRING_BYTES, bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int getSlotCount() {
+        return slots.capacity() / Integer.BYTES;
+    }
+
+    private int getSlot(int slot) {
+        return slots.getInt(slot * Integer.BYTES);
+    }
+
+    private void setSlot(int slot, int entry) {
+        slots.putInt(slot * Integer.BYTES, entry);
+    }
+
+    private int findSlot(int id) {
+        int mask = getSlotCount() - 1;
+
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            int entry = getSlot(slot);
+
+            if (entry == EMPTY) return -1;
+            if (entry != DELETED) {
+                int record = entry - 1;
+
+                if (getRecordChunk(record).getInt(getRecordOffset(record) + RECORD_ID) == id) return slot;
+            }
+        }
+    }
+
+    private void insertSlot(int id, int record) {
+        int mask = getSlotCount() - 1;
+        int slot = hash(id) & mask;
+
+        while (getSlot(slot) > EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+
+        if (getSlot(slot) == EMPTY) {
+            usedSlots++;
+        }
+
+        setSlot(slot, record + 1);
+    }
+
+    /**
+     * Moves the remaining records to the front and rebuilds the table to point at their new positions.
+     */
+    private void compactRecords() {
+        int target = 0;
+
+        for (int source = 0; source < recordCount; source++) {
+            ByteBuffer sourceChunk = getRecordChunk(source);
+            int sourceOffset = getRecordOffset(source);
+
+            if (sourceChunk.get(sourceOffset + RECORD_TYPE) == TYPE_DELETED) continue;
+
+            if (target != source) {
+                getRecordChunk(target).put(getRecordOffset(target), sourceChunk, sourceOffset, RECORD_SIZE);
+            }
+            target++;
+        }
+
+        recordCount = target;
+        modificationCount++;
+
+        rehash(getSlotCount());
+    }
+
+    /**
+     * Copies the titles and publishers still in use into a new arena, which drops the bytes of all others.
+     */
+    private void compactArena() {
+        ByteBuffer[] oldChunks = arenaChunks;
+        arenaChunks = new ByteBuffer[]{allocate(MIN_CAPACITY * 16)};
+        arenaSize = 0;
+        unusedArenaBytes = 0;
+        publisherSlots = allocate(MIN_CAPACITY * 2 * Long.BYTES);
+        publisherCount = 0;
+
+        for (int record = 0; record < recordCount; record++) {
+            ByteBuffer chunk = getRecordChunk(record);
+            int offset = getRecordOffset(record);
+
+            if (chunk.get(offset + RECORD_TYPE) == TYPE_DELETED) continue;
+
+            chunk.putLong(offset + RECORD_TITLE, appendString(getBytes(oldChunks, chunk.getLong(offset + RECORD_TITLE))));
+            chunk.putLong(offset + RECORD_PUBLISHER, internPublisher(getBytes(oldChunks, chunk.getLong(offset + RECORD_PUBLISHER))));
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer[] chunks, long reference) {
+        ByteBuffer chunk = chunks[(int) (reference >>> ARENA_CHUNK_SHIFT)];
+        int offset = (int) (reference & (ARENA_CHUNK_SIZE - 1));
+        byte[] bytes = new byte[chunk.getInt(offset + STRING_LENGTH)];
+
+        chunk.get(offset + STRING_BYTES, bytes);
+
+        return bytes;
+    }
+
+    private void rehash(int capacity) {
+        // Rebuilding also drops all tombstones, which may have piled up in the table
+        slots = allocate(capacity * Integer.BYTES);
+        usedSlots = 0;
+
+        for (int record = 0; record < recordCount; record++) {
+            ByteBuffer chunk = getRecordChunk(record);
+            int offset = getRecordOffset(record);
+
+            if (chunk.get(offset + RECORD_TYPE) != TYPE_DELETED) {
+                insertSlot(chunk.getInt(offset + RECORD_ID), record);
+            }
+        }
+    }
+
+    /**
+     * RecordListView is the list view on the records, which creates an article whenever it is accessed. It only stays
+     * valid until the next change of the records.
+     */
+    private class RecordListView extends AbstractList<Article> implements RandomAccess {
+
+        private final int size = recordCount;
+        private final int expectedModificationCount = modificationCount;
+
+        @Override
+        public Article get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            if (modificationCount != expectedModificationCount) throw new ConcurrentModificationException();
+
+            return getRecord(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
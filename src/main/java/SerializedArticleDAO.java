@@ -4,22 +4,50 @@
  */
 
 import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.text.MessageFormat;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * SerializedArticleDAO is the data access object specialization for storing a list of articles in file on the local
  * filesystem by serializing the ArticleList object with Java Object Serialization.
+ * <p>
+ * Several processes may use the same file at once. They coordinate through a lock file next to it, which also holds the
+ * version stamp of the file's content. The file carries the stamp of its own version as well, so loading reads it
+ * without any lock and remembers the version, while files stored without a stamp are loaded under a shared lock. Every
+ * mutation takes an exclusive lock and, if another process stored a newer version in the meantime, loads that version first and applies
+ * the mutation on top of it, so no process overwrites the articles of another one. The file itself is replaced with a
+ * completely written temporary file, so a crash never leaves a partially written file behind.
  */
 public class SerializedArticleDAO implements ArticleDAO {
 
-    private static final String ERR_MSG_SERIALIZATION = "Error during serialization.";
-    private static final String ERR_MSG_DESERIALIZATION = "Error during deserialization.";
-    private static final String ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS = "Error: Article already exists. (id={0,number,#})";
+    static final String ERR_MSG_SERIALIZATION = "Error during serialization.";
+    static final String ERR_MSG_DESERIALIZATION = "Error during deserialization.";
+    static final String ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS = "Error: Article already exists. (id={0,number,#})";
+    static final String LOCK_FILE_SUFFIX = ".lock";
+    static final String TEXT_INDEX_FILE_SUFFIX = ".search";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final long UNSTAMPED = -1;
     private final File file;
-    private List<Article> articleList = new ArrayList<>(1);
+    private final File lockFile;
+    private final File textIndexFile;
+    private long version;
+    private IntArticleMap articleMap = new IntArticleMap();
+    private ArticleStatistics statistics = new ArticleStatistics();
+    private ArticleIndex index = new ArticleIndex();
+    private TextIndex textIndex;
 
     /**
      * Creates an instance of SerializedArticleDAO.
@@ -29,79 +57,418 @@ public class SerializedArticleDAO implements ArticleDAO {
      */
     SerializedArticleDAO(String filename) {
         this.file = new File(filename);
+        // String.concat instead of +, since bootstrapping the string concatenation takes longer than loading a small file
+        this.lockFile = new File(filename.concat(LOCK_FILE_SUFFIX));
+        this.textIndexFile = new File(filename.concat(TEXT_INDEX_FILE_SUFFIX));
 
-        // Deserialize the specified file and store it in article list, if the file exists
-        if (this.file.exists()) {
-            deserializeArticleList();
-        }
+        loadArticleList();
     }
 
     @Override
     public List<Article> getArticleList() {
-        return Collections.unmodifiableList(articleList);
+        return articleMap.values();
     }
 
     @Override
     public Article getArticle(int id) {
-        return articleList.stream().filter(article -> article.getId() == id).findFirst().orElse(null);
+        return articleMap.get(id);
     }
 
     @Override
     public void saveArticle(Article article) {
         int articleId = article.getId();
 
-        // Throw an exception if the article already exists
-        if (getArticle(articleId) != null) {
-            throw new IllegalArgumentException(MessageFormat.format(ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS, Integer.valueOf(articleId)));
-        }
+        updateArticleList(() -> {
+            // Throw an exception if the article already exists
+            if (articleMap.containsKey(articleId)) {
+                throw new IllegalArgumentException(MessageFormat.format(ERR_MSG_FMT_ARTICLE_ALREADY_EXISTS, Integer.valueOf(articleId)));
+            }
+
+            articleMap.put(article);
+            statistics.add(article);
+            index.add(article);
+            if (textIndex != null) textIndex.add(article);
+        });
+    }
 
-        articleList.add(article);
+    @Override
+    public void saveAll(Collection<Article> articles) {
+        updateArticleList(() -> {
+            // Throw an exception if any of the articles already exists, before any of them is stored
+            articleMap.requireAbsent(articles);
 
-        serializeArticleList();
+            for (Article article : articles) {
+                articleMap.put(article);
+                statistics.add(article);
+                index.add(article);
+                if (textIndex != null) textIndex.add(article);
+            }
+        });
     }
 
     @Override
     public void deleteArticle(int id) {
-        Article article = getArticle(id);
+        updateArticleList(() -> {
+            Article article = articleMap.remove(id);
+
+            // Throw an exception if the article could not be found
+            if (article == null) {
+                throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(id)));
+            }
+
+            statistics.remove(article);
+            index.remove(article);
+            if (textIndex != null) textIndex.remove(article);
+        });
+    }
+
+    @Override
+    public void deleteAll(int[] ids) {
+        updateArticleList(() -> {
+            // Throw an exception if any of the articles could not be found, before any of them is deleted
+            articleMap.requirePresent(ids);
+
+            for (int id : ids) {
+                Article article = articleMap.remove(id);
+
+                statistics.remove(article);
+                index.remove(article);
+                if (textIndex != null) textIndex.remove(article);
+            }
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<Article> articles) {
+        updateArticleList(() -> {
+            // Throw an exception if any of the articles could not be found, before any of them is replaced
+            articleMap.requirePresent(articles.stream().mapToInt(Article::getId).toArray());
+
+            for (Article article : articles) {
+                Article replaced = articleMap.put(article);
+
+                statistics.remove(replaced);
+                statistics.add(article);
+                index.remove(replaced);
+                index.add(article);
+                if (textIndex != null) {
+                    textIndex.remove(replaced);
+                    textIndex.add(article);
+                }
+            }
+        });
+    }
+
+    @Override
+    public List<Article> find(ArticleQuery query) {
+        return index.find(query, articleMap.values());
+    }
+
+    @Override
+    public List<Article> getSortedArticles(ArticleOrder order, boolean isDescending, int offset, int limit) {
+        return index.getSorted(order, isDescending, offset, limit, articleMap.values());
+    }
+
+    @Override
+    public List<Article> search(List<String> terms) {
+        // Use the stored index of the words, if it belongs to the current version, or build and store it otherwise
+        if (textIndex == null) {
+            textIndex = TextIndex.read(textIndexFile, version);
+        }
+        if (textIndex == null) {
+            textIndex = TextIndex.of(articleMap.values());
+            writeTextIndex();
+        }
+
+        return Arrays.stream(textIndex.search(terms)).mapToObj(articleMap::get).toList();
+    }
+
+    @Override
+    public ArticleStatistics getStatistics() {
+        // The price sum is only calculated on demand and whenever the year changed since it was calculated
+        if (!statistics.hasCurrentPriceSum()) {
+            statistics.recalculatePriceSum(articleMap.values());
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Write the statistics after the article list as primitive data, which is read without looking up any classes by
+     * reflection, unlike a serialized ArticleStatistics object.
+     *
+     * @param oos        stream positioned after the article list
+     * @param statistics statistics with a current price sum
+     * @throws IOException if the stream could not be written
+     */
+    static void writeStatistics(ObjectOutputStream oos, ArticleStatistics statistics) throws IOException {
+        SortedMap<Integer, Integer> releaseYearHistogram = statistics.getReleaseYearHistogram();
+
+        oos.writeInt(statistics.getBookCount());
+        oos.writeInt(statistics.getDVDCount());
+        oos.writeInt(releaseYearHistogram.size());
+        for (Map.Entry<Integer, Integer> entry : releaseYearHistogram.entrySet()) {
+            oos.writeInt(entry.getKey());
+            oos.writeInt(entry.getValue());
+        }
+        oos.writeUTF(statistics.getPriceSum().toString());
+        oos.writeInt(statistics.getPriceSumYear());
+    }
+
+    /**
+     * Read the statistics, which are stored after the article list. Files written before the statistics were stored
+     * as primitive data hold a serialized ArticleStatistics object instead, and files written before the statistics
+     * were stored along with the articles end after the article list, so the statistics are aggregated from the
+     * articles instead.
+     *
+     * @param ois         stream positioned after the article list
+     * @param articleList deserialized article list
+     * @return statistics about the article list
+     * @throws IOException            if the stream could not be read
+     * @throws ClassNotFoundException if the class of the stored statistics could not be found
+     */
+    static ArticleStatistics readStatistics(ObjectInputStream ois, List<Article> articleList) throws IOException, ClassNotFoundException {
+        ArticleStatistics storedStatistics = null;
+
+        try {
+            if (ois.readObject() instanceof ArticleStatistics statistics) {
+                storedStatistics = statistics;
+            }
+        } catch (OptionalDataException e) {
+            // The stream stays positioned at the primitive data, which the object could not be read from
+            if (!e.eof) {
+                storedStatistics = readStatisticsData(ois);
+            }
+        } catch (EOFException e) {
+            // There are no statistics stored in this file
+        }
+
+        if (storedStatistics != null && storedStatistics.getArticleCount() == articleList.size()) {
+            return storedStatistics;
+        }
+
+        return ArticleStatistics.of(articleList);
+    }
+
+    private static ArticleStatistics readStatisticsData(ObjectInputStream ois) throws IOException {
+        int bookCount = ois.readInt();
+        int dvdCount = ois.readInt();
+        int histogramSize = ois.readInt();
+
+        TreeMap<Integer, Integer> releaseYearHistogram = new TreeMap<>();
+        for (int entry = 0; entry < histogramSize; entry++) {
+            releaseYearHistogram.put(ois.readInt(), ois.readInt());
+        }
+
+        try {
+            return new ArticleStatistics(bookCount, dvdCount, releaseYearHistogram, new BigDecimal(ois.readUTF()), ois.readInt());
+        } catch (NumberFormatException e) {
+            throw new StreamCorruptedException("Malformed price sum");
+        }
+    }
 
-        // Throw an exception if the article could not be found
-        if (article == null) {
-            throw new IllegalArgumentException(MessageFormat.format(ArticleCLI.ERR_MSG_FMT_ARTICLE_NOT_FOUND, Integer.valueOf(id)));
+    /**
+     * Read the version stamped after the statistics. Files written before the version was stamped into them end after
+     * the statistics or even after the article list.
+     *
+     * @param ois stream positioned after the statistics
+     * @return stamped version, or UNSTAMPED if there is none
+     * @throws IOException if the stream could not be read
+     */
+    private static long readStamp(ObjectInputStream ois) throws IOException {
+        try {
+            return ois.readLong();
+        } catch (EOFException e) {
+            // There is no version stamped into this file
+            return UNSTAMPED;
         }
+    }
 
-        articleList.remove(article);
+    /**
+     * Load the content stored in the specified file along with its version.
+     * <p>
+     * The file is only ever replaced atomically, so it is read completely without locking, and the version stamped into
+     * it always belongs to its content. A file stored without a stamp is read again under a shared lock, which keeps the
+     * version in the lock file consistent with the content, unless there is no lock file, since then no process has
+     * stored the file with versioning yet. A later mutation notices any newer version either way.
+     *
+     * @throws RuntimeException if something goes wrong while locking or reading the file
+     */
+    @SuppressWarnings("try")
+    private void loadArticleList() {
+        // Locking takes longer than reading a small catalogue, since it loads the classes of the file channels
+        version = readArticleList();
+        if (version != UNSTAMPED) return;
 
-        serializeArticleList();
+        if (!lockFile.exists()) {
+            version = 0;
+            return;
+        }
+
+        // A single JVM must not lock the same file twice, so its instances take turns
+        synchronized (SerializedArticleDAO.class) {
+            try (
+                    FileChannel lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.READ);
+                    FileLock ignored = lockChannel.lock(0, Long.MAX_VALUE, true)
+            ) {
+                version = readVersion(lockChannel);
+                readArticleList();
+            } catch (IOException | SecurityException e) {
+                throw new RuntimeException(ERR_MSG_DESERIALIZATION, e);
+            }
+        }
     }
 
     /**
-     * Deserialize the content stored in the specified file and store it in articleList.
+     * Apply the mutation on the newest version of the content and store the result under an exclusive lock.
+     * <p>
+     * If another process stored a newer version since this one was loaded, the newer version is loaded first, so the
+     * mutation is retried on top of the other process' changes. The version stamp is increased before the file is
+     * replaced, so a crash in between only makes other processes load the file again.
      *
+     * @param mutation mutation of articleMap and statistics, which may throw if it is invalid for the newest version
+     * @throws RuntimeException if something goes wrong while locking or writing the file
+     */
+    @SuppressWarnings("try")
+    private void updateArticleList(Runnable mutation) {
+        synchronized (SerializedArticleDAO.class) {
+            try (
+                    FileChannel lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    FileLock ignored = lockChannel.lock()
+            ) {
+                long currentVersion = readVersion(lockChannel);
+
+                if (currentVersion != version) {
+                    readArticleList();
+                    version = currentVersion;
+                }
+
+                // Keep a stored index of the words up to date, once it has been built for the current version
+                if (textIndex == null) {
+                    textIndex = TextIndex.read(textIndexFile, version);
+                }
+
+                mutation.run();
+
+                writeVersion(lockChannel, currentVersion + 1);
+                version = currentVersion + 1;
+
+                serializeArticleList();
+
+                if (textIndex != null) {
+                    writeTextIndex();
+                }
+            } catch (IOException | SecurityException e) {
+                throw new RuntimeException(ERR_MSG_SERIALIZATION, e);
+            }
+        }
+    }
+
+    private static long readVersion(FileChannel lockChannel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+
+        while (buffer.hasRemaining() && lockChannel.read(buffer, buffer.position()) > 0) {
+            // Read until the version is complete or the lock file ends
+        }
+
+        return buffer.hasRemaining() ? 0 : buffer.getLong(0);
+    }
+
+    private static void writeVersion(FileChannel lockChannel, long version) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, version);
+
+        while (buffer.hasRemaining()) {
+            lockChannel.write(buffer, buffer.position());
+        }
+
+        lockChannel.force(false);
+    }
+
+    /**
+     * Read the content of the specified file into articleMap, or clear articleMap if the file does not exist.
+     *
+     * @return version stamped into the file, or UNSTAMPED if the file does not exist or was stored without a stamp
+     */
+    private long readArticleList() {
+        if (file.exists()) {
+            return deserializeArticleList();
+        }
+
+        articleMap = new IntArticleMap();
+        statistics = new ArticleStatistics();
+        index = new ArticleIndex();
+        textIndex = null;
+
+        return UNSTAMPED;
+    }
+
+    /**
+     * Deserialize the content stored in the specified file and store it in articleMap.
+     *
+     * @return version stamped into the file, or UNSTAMPED if it was stored without a stamp
      * @throws RuntimeException if something goes wrong while reading the file or serializing the article list
      */
     @SuppressWarnings("unchecked")
-    private void deserializeArticleList() {
+    private long deserializeArticleList() {
         try (
                 FileInputStream fis = new FileInputStream(file);
-                ObjectInputStream ois = new ObjectInputStream(fis)
+                ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(fis))
         ) {
-            articleList = (List<Article>) ois.readObject();
+            List<Article> articleList = (List<Article>) ois.readObject();
+
+            articleMap = IntArticleMap.of(articleList);
+            statistics = readStatistics(ois, articleList);
+            index = new ArticleIndex();
+            textIndex = null;
+
+            long storedVersion = readStamp(ois);
+
+            // The whole file is read, and its channel is not opened just to count it
+            ArticleMetrics.getInstance().countBytesRead(file.length());
+
+            return storedVersion;
         } catch (IOException | SecurityException | ClassNotFoundException e) {
             throw new RuntimeException(ERR_MSG_DESERIALIZATION, e);
         }
     }
 
     /**
-     * Serialize the content stored in articleList to the file specified in file.
+     * Write the index of the words along with the version of the articles it was built from.
+     *
+     * @throws RuntimeException if something goes wrong while writing the index
+     */
+    private void writeTextIndex() {
+        try {
+            textIndex.write(textIndexFile, version);
+        } catch (IOException | SecurityException e) {
+            throw new RuntimeException(ERR_MSG_SERIALIZATION, e);
+        }
+    }
+
+    /**
+     * Serialize the content stored in articleMap to a temporary file, force it to the disk and replace the file
+     * specified in file with it.
      *
      * @throws RuntimeException if something goes wrong while serializing the article list or writing the file
      */
     private void serializeArticleList() {
-        try (
-                FileOutputStream fos = new FileOutputStream(file);
-                ObjectOutput oos = new ObjectOutputStream(fos)
-        ) {
-            oos.writeObject(articleList);
+        File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+
+        try {
+            try (
+                    FileOutputStream fos = new FileOutputStream(tempFile);
+                    ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(fos))
+            ) {
+                oos.writeObject(new ArrayList<>(articleMap.values()));
+                writeStatistics(oos, getStatistics());
+                oos.writeLong(version);
+                oos.flush();
+                fos.getFD().sync();
+
+                ArticleMetrics.getInstance().countBytesWritten(fos.getChannel().position());
+            }
+
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException | SecurityException | ClassCastException | UnsupportedOperationException e) {
             throw new RuntimeException(ERR_MSG_SERIALIZATION, e);
         }
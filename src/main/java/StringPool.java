@@ -0,0 +1,159 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * StringPool is a dictionary of strings, which are encoded as UTF-8 into a single byte array and referred to by an int
+ * code.
+ * <p>
+ * Interning the same string again returns the same code, so repeated strings like publishers are stored only once. The
+ * codes are kept in an open-addressing table with linear probing over the hashes of the encoded bytes, so the pool does
+ * not keep any String objects alive. Every code counts its references, and the bytes of strings without references
+ * are only reclaimed by copying the strings still in use into a new pool.
+ */
+final class StringPool {
+
+    private static final int MIN_CAPACITY = 8;
+    private byte[] heap = new byte[MIN_CAPACITY * 16];
+    private int heapSize;
+    // Holds the start of every string followed by the end of the last one, as the strings are stored back to back
+    private int[] offsets = new int[MIN_CAPACITY + 1];
+    private int[] hashes = new int[MIN_CAPACITY];
+    private int[] referenceCounts = new int[MIN_CAPACITY];
+    private int count;
+    private int unusedBytes;
+    // Holds the code plus one of every string, so zero marks an empty slot
+    private int[] slots = new int[MIN_CAPACITY * 2];
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int h = 1;
+
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + bytes[i];
+        }
+
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the code of the string and adds a reference to it, adding the string to the pool if it is not yet
+     * contained.
+     *
+     * @param value string to intern
+     * @return code of the string
+     */
+    int intern(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        return intern(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns the code of the string with the given code in another pool and adds a reference to it, copying its bytes
+     * without decoding them.
+     *
+     * @param pool pool containing the string
+     * @param code code of the string in that pool
+     * @return code of the string in this pool
+     */
+    int intern(StringPool pool, int code) {
+        return intern(pool.heap, pool.offsets[code], pool.offsets[code + 1] - pool.offsets[code]);
+    }
+
+    private int intern(byte[] bytes, int offset, int length) {
+        int hash = hash(bytes, offset, length);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+
+        for (int entry = slots[slot]; entry != 0; slot = (slot + 1) & mask, entry = slots[slot]) {
+            int code = entry - 1;
+
+            if (hashes[code] == hash && Arrays.equals(heap, offsets[code], offsets[code + 1], bytes, offset, offset + length)) {
+                // A string without references is in use again, so its bytes are no longer reclaimable
+                if (referenceCounts[code]++ == 0) unusedBytes -= length;
+
+                return code;
+            }
+        }
+
+        int code = append(bytes, offset, length, hash);
+
+        if (count * 2 > slots.length) {
+            rehash(slots.length * 2);
+        } else {
+            slots[slot] = code + 1;
+        }
+
+        return code;
+    }
+
+    private int append(byte[] bytes, int offset, int length, int hash) {
+        if (count == hashes.length) {
+            int capacity = count + (count >> 1) + 1;
+
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+            hashes = Arrays.copyOf(hashes, capacity);
+            referenceCounts = Arrays.copyOf(referenceCounts, capacity);
+        }
+        if (heapSize + length > heap.length) {
+            heap = Arrays.copyOf(heap, Math.max(heapSize + length, heap.length + (heap.length >> 1)));
+        }
+
+        System.arraycopy(bytes, offset, heap, heapSize, length);
+        heapSize += length;
+        offsets[count + 1] = heapSize;
+        hashes[count] = hash;
+        referenceCounts[count] = 1;
+
+        return count++;
+    }
+
+    private void rehash(int capacity) {
+        int mask = capacity - 1;
+        slots = new int[capacity];
+
+        for (int code = 0; code < count; code++) {
+            int slot = hashes[code] & mask;
+
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            slots[slot] = code + 1;
+        }
+    }
+
+    /**
+     * Removes a reference to the string with the given code. The string keeps its code, even once it has no references
+     * left.
+     *
+     * @param code code of the string
+     */
+    void release(int code) {
+        if (--referenceCounts[code] == 0) unusedBytes += offsets[code + 1] - offsets[code];
+    }
+
+    /**
+     * Returns the string with the given code.
+     *
+     * @param code code of the string
+     * @return decoded string
+     */
+    String get(int code) {
+        return new String(heap, offsets[code], offsets[code + 1] - offsets[code], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns whether most of the encoded bytes belong to strings without references, so copying the strings still in
+     * use into a new pool would at least halve its size.
+     *
+     * @return whether the pool should be compacted
+     */
+    boolean isMostlyUnused() {
+        return unusedBytes > heapSize / 2;
+    }
+}
@@ -0,0 +1,474 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * TextIndex is an inverted index of the words in the titles and publisher names of articles.
+ * <p>
+ * Titles and publishers are split into words at every character that is neither a letter nor a digit and folded to
+ * lower case. Every word maps to a posting list of the identifiers of the articles containing it, which is kept as a
+ * sorted sequence of variable-length encoded differences. Identifiers added in ascending order are appended to that
+ * sequence right away, all other changes are collected and merged into it once enough of them piled up or the list is
+ * read. A search returns the articles containing every search term as the prefix of one of their words.
+ * <p>
+ * The index can be stored in a file along with the version of the catalogue it was built from, so it does not have to
+ * be built again as long as the catalogue stays the same.
+ */
+final class TextIndex {
+
+    private static final int MAGIC = 0x41435449;
+    private static final int VERSION = 1;
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private final TreeMap<String, PostingList> postingLists = new TreeMap<>();
+
+    /**
+     * Creates an instance of TextIndex, which contains the given articles.
+     *
+     * @param articles articles to index
+     * @return index of the articles
+     */
+    static TextIndex of(Iterable<Article> articles) {
+        TextIndex index = new TextIndex();
+
+        articles.forEach(index::add);
+
+        return index;
+    }
+
+    /**
+     * Returns the articles whose words start with every one of the search terms in ascending order of their
+     * identifiers, by scanning all articles.
+     *
+     * @param terms    search terms
+     * @param articles all articles
+     * @return matching articles
+     */
+    static List<Article> scan(List<String> terms, Iterable<Article> articles) {
+        List<String> foldedTerms = tokenize(terms);
+        List<Article> matches = new ArrayList<>();
+
+        if (foldedTerms.isEmpty()) return matches;
+
+        for (Article article : articles) {
+            Set<String> words = getWords(article);
+
+            if (foldedTerms.stream().allMatch(term -> words.stream().anyMatch(word -> word.startsWith(term)))) {
+                matches.add(article);
+            }
+        }
+
+        matches.sort(Comparator.comparingInt(Article::getId));
+
+        return matches;
+    }
+
+    /**
+     * Splits the text into lower case words at every character that is neither a letter nor a digit.
+     *
+     * @param text     text to split
+     * @param consumer consumer of the words
+     */
+    private static void forEachWord(String text, Consumer<String> consumer) {
+        int start = -1;
+
+        for (int i = 0; i <= text.length(); i++) {
+            boolean isWordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+
+            if (isWordCharacter && start < 0) {
+                start = i;
+            } else if (!isWordCharacter && start >= 0) {
+                consumer.accept(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+
+    private static List<String> tokenize(List<String> terms) {
+        List<String> words = new ArrayList<>();
+
+        terms.forEach(term -> forEachWord(term, words::add));
+
+        return words;
+    }
+
+    private static Set<String> getWords(Article article) {
+        Set<String> words = new HashSet<>();
+
+        forEachWord(article.getTitle(), words::add);
+        forEachWord(article.getPublisher(), words::add);
+
+        return words;
+    }
+
+    /**
+     * Adds the words of the article to the index.
+     *
+     * @param article added article
+     */
+    void add(Article article) {
+        for (String word : getWords(article)) {
+            postingLists.computeIfAbsent(word, w -> new PostingList()).add(article.getId());
+        }
+    }
+
+    /**
+     * Removes the words of the article from the index.
+     *
+     * @param article deleted article
+     */
+    void remove(Article article) {
+        for (String word : getWords(article)) {
+            PostingList postingList = postingLists.get(word);
+
+            if (postingList == null) continue;
+
+            postingList.remove(article.getId());
+
+            // Drop the word from the index once its last article is gone
+            if (postingList.isEmpty()) {
+                postingLists.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Returns the identifiers of the articles whose words start with every one of the search terms.
+     *
+     * @param terms search terms, which are split into words the same way as the titles and publishers
+     * @return identifiers of the matching articles in ascending order
+     */
+    int[] search(List<String> terms) {
+        List<String> words = tokenize(terms);
+
+        if (words.isEmpty()) return new int[0];
+
+        // Intersect the terms with the fewest matches first, so the intermediate results stay small
+        List<List<PostingList>> termPostingLists = new ArrayList<>(words.size());
+        for (String word : words) {
+            termPostingLists.add(new ArrayList<>(postingLists.subMap(word, true, word + Character.MAX_VALUE, false).values()));
+        }
+        termPostingLists.sort(Comparator.comparingLong(TextIndex::countIds));
+
+        int[] result = null;
+        for (List<PostingList> prefixPostingLists : termPostingLists) {
+            int[] ids = union(prefixPostingLists);
+
+            result = result == null ? ids : intersect(result, ids);
+
+            if (result.length == 0) break;
+        }
+
+        return result;
+    }
+
+    private static long countIds(List<PostingList> prefixPostingLists) {
+        long count = 0;
+
+        for (PostingList postingList : prefixPostingLists) {
+            count += postingList.size();
+        }
+
+        return count;
+    }
+
+    private static int[] union(List<PostingList> prefixPostingLists) {
+        if (prefixPostingLists.size() == 1) return prefixPostingLists.get(0).toArray();
+
+        // Several words start with the same term, so their identifiers are combined and deduplicated
+        int[] ids = new int[(int) Math.min(Integer.MAX_VALUE - 8, countIds(prefixPostingLists))];
+        int count = 0;
+
+        for (PostingList postingList : prefixPostingLists) {
+            int[] postingIds = postingList.toArray();
+
+            System.arraycopy(postingIds, 0, ids, count, postingIds.length);
+            count += postingIds.length;
+        }
+
+        Arrays.sort(ids, 0, count);
+
+        int distinctCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinctCount == 0 || ids[distinctCount - 1] != ids[i]) {
+                ids[distinctCount++] = ids[i];
+            }
+        }
+
+        return Arrays.copyOf(ids, distinctCount);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Reads the index from the file, if it was built from the given version of the catalogue.
+     *
+     * @param file    index file
+     * @param version version of the catalogue
+     * @return read index, or null if the file does not exist, cannot be read or belongs to another version
+     */
+    static TextIndex read(File file, long version) {
+        if (!file.exists()) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != version) return null;
+
+            TextIndex index = new TextIndex();
+            int wordCount = in.readInt();
+
+            for (int i = 0; i < wordCount; i++) {
+                String word = in.readUTF();
+
+                index.postingLists.put(word, PostingList.read(in));
+            }
+
+            ArticleMetrics.getInstance().countBytesRead(file.length());
+
+            return index;
+        } catch (IOException | SecurityException e) {
+            // The index is only a cache of the catalogue and is built again instead
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index into the file along with the version of the catalogue it was built from. The file is replaced
+     * atomically, so readers never see a partially written index.
+     *
+     * @param file    index file
+     * @param version version of the catalogue
+     * @throws IOException if the file could not be written
+     */
+    void write(File file, long version) throws IOException {
+        // Several processes may write the index at once, so each of them uses its own temporary file
+        File tempFile = File.createTempFile(file.getName(), TEMP_FILE_SUFFIX, file.getAbsoluteFile().getParentFile());
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(version);
+            out.writeInt(postingLists.size());
+
+            for (Map.Entry<String, PostingList> entry : postingLists.entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().write(out);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile.toPath());
+            throw e;
+        }
+
+        ArticleMetrics.getInstance().countBytesWritten(tempFile.length());
+
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * PostingList is a sorted set of article identifiers, which is stored as variable-length encoded differences
+     * between consecutive identifiers.
+     */
+    private static final class PostingList {
+
+        private static final int MIN_PENDING_CHANGES = 16;
+        private byte[] data = new byte[8];
+        private int dataLength;
+        private int size;
+        private int lastId = Integer.MIN_VALUE;
+        private int[] pendingAdds = new int[0];
+        private int pendingAddCount;
+        private int[] pendingRemoves = new int[0];
+        private int pendingRemoveCount;
+
+        private static PostingList read(DataInput in) throws IOException {
+            PostingList postingList = new PostingList();
+
+            postingList.size = in.readInt();
+            postingList.lastId = in.readInt();
+            postingList.dataLength = in.readInt();
+            postingList.data = new byte[Math.max(8, postingList.dataLength)];
+            in.readFully(postingList.data, 0, postingList.dataLength);
+
+            return postingList;
+        }
+
+        private void write(DataOutput out) throws IOException {
+            merge();
+
+            out.writeInt(size);
+            out.writeInt(lastId);
+            out.writeInt(dataLength);
+            out.write(data, 0, dataLength);
+        }
+
+        private int size() {
+            return size + pendingAddCount - pendingRemoveCount;
+        }
+
+        private boolean isEmpty() {
+            return size() == 0;
+        }
+
+        /**
+         * Adds an identifier, which must not be contained yet.
+         *
+         * @param id added identifier
+         */
+        private void add(int id) {
+            // Identifiers beyond the last encoded one can be appended without decoding the list
+            if (pendingAddCount == 0 && pendingRemoveCount == 0 && (size == 0 || id > lastId)) {
+                append(id);
+                return;
+            }
+
+            // Adding an identifier again cancels its pending removal
+            if (!cancel(pendingRemoves, pendingRemoveCount, id)) {
+                if (pendingAddCount == pendingAdds.length) {
+                    pendingAdds = Arrays.copyOf(pendingAdds, Math.max(MIN_PENDING_CHANGES, pendingAddCount * 2));
+                }
+                pendingAdds[pendingAddCount++] = id;
+            } else {
+                pendingRemoveCount--;
+            }
+
+            mergeIfNecessary();
+        }
+
+        /**
+         * Removes an identifier, which must be contained.
+         *
+         * @param id removed identifier
+         */
+        private void remove(int id) {
+            // Removing an identifier which was only added in the meantime cancels its pending addition
+            if (!cancel(pendingAdds, pendingAddCount, id)) {
+                if (pendingRemoveCount == pendingRemoves.length) {
+                    pendingRemoves = Arrays.copyOf(pendingRemoves, Math.max(MIN_PENDING_CHANGES, pendingRemoveCount * 2));
+                }
+                pendingRemoves[pendingRemoveCount++] = id;
+            } else {
+                pendingAddCount--;
+            }
+
+            mergeIfNecessary();
+        }
+
+        /**
+         * Removes the identifier from the pending changes by moving the last pending change into its place.
+         *
+         * @return whether the identifier was found, in which case the caller has to decrease the count
+         */
+        private static boolean cancel(int[] pendingChanges, int count, int id) {
+            for (int i = 0; i < count; i++) {
+                if (pendingChanges[i] == id) {
+                    pendingChanges[i] = pendingChanges[count - 1];
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private void mergeIfNecessary() {
+            if (pendingAddCount + pendingRemoveCount >= Math.max(MIN_PENDING_CHANGES, size >> 3)) {
+                merge();
+            }
+        }
+
+        /**
+         * Merges the pending changes into the encoded identifiers.
+         */
+        private void merge() {
+            if (pendingAddCount == 0 && pendingRemoveCount == 0) return;
+
+            int[] ids = decode();
+            int[] adds = Arrays.copyOf(pendingAdds, pendingAddCount);
+            int[] removes = Arrays.copyOf(pendingRemoves, pendingRemoveCount);
+            Arrays.sort(adds);
+            Arrays.sort(removes);
+
+            dataLength = 0;
+            size = 0;
+            lastId = Integer.MIN_VALUE;
+            pendingAddCount = 0;
+            pendingRemoveCount = 0;
+
+            // Merge the sorted identifiers and additions, leaving out duplicates and removed identifiers
+            for (int i = 0, j = 0; i < ids.length || j < adds.length; ) {
+                int id = j >= adds.length || i < ids.length && ids[i] <= adds[j] ? ids[i++] : adds[j++];
+
+                if ((size == 0 || id != lastId) && Arrays.binarySearch(removes, id) < 0) {
+                    append(id);
+                }
+            }
+        }
+
+        private void append(int id) {
+            // The difference between sorted identifiers always fits into 32 unsigned bits
+            long delta = Integer.toUnsignedLong(id - (size == 0 ? Integer.MIN_VALUE : lastId));
+
+            if (dataLength + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(dataLength + 5, data.length + (data.length >> 1)));
+            }
+
+            while (delta >= 0x80) {
+                data[dataLength++] = (byte) (delta | 0x80);
+                delta >>>= 7;
+            }
+            data[dataLength++] = (byte) delta;
+
+            lastId = id;
+            size++;
+        }
+
+        private int[] decode() {
+            int[] ids = new int[size];
+            int id = Integer.MIN_VALUE;
+
+            for (int position = 0, i = 0; i < size; i++) {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+
+                do {
+                    b = data[position++];
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+
+                id += (int) delta;
+                ids[i] = id;
+            }
+
+            return ids;
+        }
+
+        private int[] toArray() {
+            merge();
+
+            return decode();
+        }
+    }
+}
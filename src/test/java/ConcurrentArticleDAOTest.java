@@ -0,0 +1,219 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stress tests of ConcurrentArticleDAO, which let several threads add, update and delete overlapping batches of
+ * articles at once.
+ * <p>
+ * The identifiers are split into groups, and every batch consists of whole groups whose articles all carry the same
+ * version in their title. As long as every batch is applied as a whole, every group is either missing completely or
+ * present completely with a single version, no matter how the batches interleave.
+ */
+public class ConcurrentArticleDAOTest {
+
+    private static final int THREAD_COUNT = 8;
+    private static final int OPERATIONS_PER_THREAD = 5_000;
+    private static final int GROUP_COUNT = 16;
+    private static final int GROUP_SIZE = 4;
+    private static final int SINGLE_ID_OFFSET = 1_000;
+    private static final int SINGLE_ID_COUNT = 32;
+
+    @Test
+    public void concurrentBatchesKeepCountAndStatistics() throws Exception {
+        ConcurrentArticleDAO articleDAO = new ConcurrentArticleDAO();
+        AtomicInteger expectedCount = new AtomicInteger();
+        AtomicInteger versions = new AtomicInteger();
+        AtomicBoolean isRunning = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT + 1);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int thread = 0; thread < THREAD_COUNT; thread++) {
+                Random random = new Random(thread);
+
+                writers.add(executor.submit(() -> {
+                    start.await();
+
+                    for (int operation = 0; operation < OPERATIONS_PER_THREAD; operation++) {
+                        mutate(articleDAO, random, versions.incrementAndGet(), expectedCount);
+                    }
+
+                    return null;
+                }));
+            }
+
+            // Every snapshot taken while the batches are applied must only contain whole batches
+            Future<Integer> reader = executor.submit(() -> {
+                start.await();
+
+                int snapshotCount = 0;
+                while (isRunning.get()) {
+                    assertWholeGroups(articleDAO.getArticleList());
+                    snapshotCount++;
+                }
+
+                return snapshotCount;
+            });
+
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(1, TimeUnit.MINUTES);
+            }
+            isRunning.set(false);
+
+            assertTrue(reader.get(1, TimeUnit.MINUTES) > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Article> articles = articleDAO.getArticleList();
+        ArticleStatistics statistics = articleDAO.getStatistics();
+        ArticleStatistics expectedStatistics = ArticleStatistics.of(articles);
+        expectedStatistics.recalculatePriceSum(articles);
+
+        assertWholeGroups(articles);
+        assertEquals(expectedCount.get(), articles.size());
+        assertEquals(expectedCount.get(), new HashSet<>(articles.stream().map(Article::getId).toList()).size());
+        assertEquals(expectedCount.get(), statistics.getArticleCount());
+        assertEquals(expectedStatistics.getBookCount(), statistics.getBookCount());
+        assertEquals(expectedStatistics.getDVDCount(), statistics.getDVDCount());
+        assertEquals(expectedStatistics.getReleaseYearHistogram(), statistics.getReleaseYearHistogram());
+        assertEquals(0, expectedStatistics.getPriceSum().compareTo(statistics.getPriceSum()));
+
+        for (Article article : articles) {
+            assertSame(article, articleDAO.getArticle(article.getId()));
+        }
+    }
+
+    @Test
+    public void failedBatchesChangeNothing() {
+        ConcurrentArticleDAO articleDAO = new ConcurrentArticleDAO(createGroup(0, 1));
+        List<Article> articles = articleDAO.getArticleList();
+
+        // The last article of every batch is rejected, after all others were checked already
+        List<Article> duplicateBatch = new ArrayList<>(createGroup(1, 2));
+        duplicateBatch.add(createArticle(0, 2));
+        assertThrows(IllegalArgumentException.class, () -> articleDAO.saveAll(duplicateBatch));
+
+        List<Article> missingBatch = new ArrayList<>(createGroup(0, 3));
+        missingBatch.add(createArticle(GROUP_SIZE, 3));
+        assertThrows(IllegalArgumentException.class, () -> articleDAO.updateAll(missingBatch));
+
+        assertThrows(IllegalArgumentException.class, () -> articleDAO.deleteAll(new int[]{0, 1, GROUP_SIZE}));
+        assertThrows(IllegalArgumentException.class, () -> articleDAO.deleteAll(new int[]{0, 1, 1}));
+
+        assertEquals(articles, articleDAO.getArticleList());
+        assertEquals(GROUP_SIZE, articleDAO.getStatistics().getArticleCount());
+        assertNull(articleDAO.getArticle(GROUP_SIZE));
+    }
+
+    @Test
+    public void updatedArticlesKeepTheirPosition() {
+        ConcurrentArticleDAO articleDAO = new ConcurrentArticleDAO(createGroup(0, 1));
+        articleDAO.saveAll(createGroup(1, 1));
+
+        articleDAO.updateAll(createGroup(0, 2));
+
+        List<Integer> ids = articleDAO.getArticleList().stream().map(Article::getId).toList();
+        List<Integer> expectedIds = new ArrayList<>();
+        for (int id = 0; id < 2 * GROUP_SIZE; id++) {
+            expectedIds.add(id);
+        }
+
+        assertEquals(expectedIds, ids);
+        assertEquals("v2", articleDAO.getArticle(0).getTitle());
+    }
+
+    /**
+     * Applies a random batch of whole groups or a single change outside of the groups, and counts the stored articles
+     * if it succeeded.
+     */
+    private static void mutate(ConcurrentArticleDAO articleDAO, Random random, int version, AtomicInteger expectedCount) {
+        int operation = random.nextInt(8);
+
+        try {
+            if (operation == 0) {
+                int id = SINGLE_ID_OFFSET + random.nextInt(SINGLE_ID_COUNT);
+
+                articleDAO.saveArticle(createArticle(id, version));
+                expectedCount.incrementAndGet();
+                return;
+            }
+            if (operation == 1) {
+                articleDAO.deleteArticle(SINGLE_ID_OFFSET + random.nextInt(SINGLE_ID_COUNT));
+                expectedCount.decrementAndGet();
+                return;
+            }
+
+            // Batches of neighbouring groups overlap with the batches of other threads
+            int firstGroup = random.nextInt(GROUP_COUNT);
+            int groupCount = 1 + random.nextInt(2);
+            List<Article> batch = new ArrayList<>();
+            for (int group = firstGroup; group < Math.min(GROUP_COUNT, firstGroup + groupCount); group++) {
+                batch.addAll(createGroup(group, version));
+            }
+
+            switch (operation % 3) {
+                case 0 -> {
+                    articleDAO.saveAll(batch);
+                    expectedCount.addAndGet(batch.size());
+                }
+                case 1 -> articleDAO.updateAll(batch);
+                default -> {
+                    articleDAO.deleteAll(batch.stream().mapToInt(Article::getId).toArray());
+                    expectedCount.addAndGet(-batch.size());
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // The articles were already stored or deleted by another thread, so nothing changed
+        }
+    }
+
+    private static void assertWholeGroups(List<Article> articles) {
+        Map<Integer, Set<String>> groupVersions = new HashMap<>();
+        Map<Integer, Integer> groupSizes = new HashMap<>();
+
+        for (Article article : articles) {
+            if (article.getId() >= SINGLE_ID_OFFSET) continue;
+
+            int group = article.getId() / GROUP_SIZE;
+            groupVersions.computeIfAbsent(group, key -> new HashSet<>()).add(article.getTitle());
+            groupSizes.merge(group, 1, Integer::sum);
+        }
+
+        groupSizes.forEach((group, size) -> assertEquals("size of group " + group, GROUP_SIZE, size.intValue()));
+        groupVersions.forEach((group, titles) -> assertEquals("versions of group " + group, 1, titles.size()));
+    }
+
+    private static List<Article> createGroup(int group, int version) {
+        List<Article> articles = new ArrayList<>(GROUP_SIZE);
+
+        for (int id = group * GROUP_SIZE; id < (group + 1) * GROUP_SIZE; id++) {
+            articles.add(createArticle(id, version));
+        }
+
+        return articles;
+    }
+
+    private static Article createArticle(int id, int version) {
+        BigDecimal basePrice = BigDecimal.valueOf(version % 1_000 + 1, 1);
+        int releaseYear = 1990 + version % 30;
+
+        return id % 2 == 0
+                ? new Book(id, "v" + version, "Publisher", releaseYear, basePrice, 100 + id)
+                : new DVD(id, "v" + version, "Studio", releaseYear, basePrice, 90, 12);
+    }
+}
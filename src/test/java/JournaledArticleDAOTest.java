@@ -0,0 +1,178 @@
+/**
+ * @author Daniel Kral
+ * @id 11908284
+ */
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Crash injection tests of JournaledArticleDAO, which cut off or damage a journal at every byte and check that opening
+ * it replays exactly the changes that were acknowledged before the damaged record.
+ * <p>
+ * The journal is written with a sync batch size of one, so every change is forced to the disk before it returns and
+ * the journal's length after every change is the boundary of an acknowledged prefix. Cutting the journal anywhere
+ * within a record, including within a batch record, has to recover the state after the previous boundary, just like
+ * flipping any bit of a record has to, since its checksum does not match anymore.
+ */
+public class JournaledArticleDAOTest {
+
+    private static final long NO_BACKGROUND_TASK_MILLIS = 3_600_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] journal;
+    private final List<Long> boundaries = new ArrayList<>();
+    private final List<List<String>> states = new ArrayList<>();
+
+    @Before
+    public void writeJournal() throws IOException {
+        String filename = new File(folder.newFolder("written"), "catalogue").getPath();
+
+        try (JournaledArticleDAO articleDAO = open(filename)) {
+            Path journalPath = Path.of(filename + JournaledArticleDAO.JOURNAL_FILE_SUFFIX);
+            List<Consumer<JournaledArticleDAO>> changes = List.of(
+                    dao -> dao.saveArticle(createBook(1, "First", 10)),
+                    dao -> dao.saveArticle(createDVD(2, "Second")),
+                    dao -> dao.saveArticle(createBook(3, "Third", 30)),
+                    dao -> dao.deleteArticle(2),
+                    dao -> dao.updateAll(List.of(createBook(1, "First again", 11), createBook(3, "Third again", 31))),
+                    dao -> dao.saveArticle(createDVD(4, "Fourth")),
+                    dao -> dao.deleteAll(new int[]{1, 4}),
+                    dao -> dao.saveArticle(createBook(5, "Fifth", 50)),
+                    dao -> dao.saveAll(List.of(createDVD(6, "Sixth"), createBook(7, "Seventh", 70)))
+            );
+
+            acknowledge(articleDAO, journalPath);
+            for (Consumer<JournaledArticleDAO> change : changes) {
+                change.accept(articleDAO);
+                acknowledge(articleDAO, journalPath);
+            }
+
+            journal = Files.readAllBytes(journalPath);
+        }
+
+        assertEquals(journal.length, boundaries.get(boundaries.size() - 1).longValue());
+    }
+
+    @Test
+    public void cutJournalKeepsAcknowledgedPrefix() throws IOException {
+        for (int length = 0; length <= journal.length; length++) {
+            int prefix = findPrefix(length);
+            // A journal too short for its header is cut off completely
+            long validLength = length < boundaries.get(0) ? 0 : boundaries.get(prefix);
+            String filename = writeDamagedJournal("cut" + length, Arrays.copyOf(journal, length));
+
+            try (JournaledArticleDAO articleDAO = open(filename)) {
+                assertEquals("cut at " + length, states.get(prefix), describe(articleDAO));
+                assertEquals("cut at " + length, length - validLength, articleDAO.getRecoveryReport().truncatedBytes());
+            }
+
+            // The damaged tail is cut off for good, so the next opening finds an intact journal
+            try (JournaledArticleDAO articleDAO = open(filename)) {
+                assertEquals("reopened after cut at " + length, states.get(prefix), describe(articleDAO));
+                assertEquals(0, articleDAO.getRecoveryReport().truncatedBytes());
+            }
+        }
+    }
+
+    @Test
+    public void flippedBitKeepsPrefixBeforeDamagedRecord() throws IOException {
+        long headerSize = boundaries.get(0);
+
+        for (int position = (int) headerSize; position < journal.length; position++) {
+            int prefix = findPrefix(position);
+
+            for (int bit = 0; bit < Byte.SIZE; bit++) {
+                byte[] damagedJournal = journal.clone();
+                damagedJournal[position] ^= (byte) (1 << bit);
+                String filename = writeDamagedJournal("flip" + position + "_" + bit, damagedJournal);
+
+                try (JournaledArticleDAO articleDAO = open(filename)) {
+                    String message = "bit " + bit + " flipped at " + position;
+
+                    assertEquals(message, states.get(prefix), describe(articleDAO));
+                    assertEquals(message, journal.length - boundaries.get(prefix), articleDAO.getRecoveryReport().truncatedBytes());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void changesAfterRecoveryAreReplayed() throws IOException {
+        // Cut the last record in half, as if the process died while appending it
+        int prefix = boundaries.size() - 2;
+        int length = (int) (boundaries.get(prefix) + boundaries.get(prefix + 1)) / 2;
+        String filename = writeDamagedJournal("append", Arrays.copyOf(journal, length));
+        List<String> expectedState = new ArrayList<>(states.get(prefix));
+
+        try (JournaledArticleDAO articleDAO = open(filename)) {
+            Article article = createDVD(8, "Eighth");
+
+            articleDAO.saveArticle(article);
+            expectedState.add(article.toString());
+        }
+
+        try (JournaledArticleDAO articleDAO = open(filename)) {
+            assertEquals(expectedState, describe(articleDAO));
+            assertEquals(0, articleDAO.getRecoveryReport().truncatedBytes());
+        }
+    }
+
+    private void acknowledge(JournaledArticleDAO articleDAO, Path journalPath) throws IOException {
+        boundaries.add(Files.size(journalPath));
+        states.add(describe(articleDAO));
+    }
+
+    /**
+     * Returns the number of the last acknowledged prefix, which fits into the given length of the journal.
+     */
+    private int findPrefix(long length) {
+        int prefix = 0;
+
+        while (prefix + 1 < boundaries.size() && boundaries.get(prefix + 1) <= length) {
+            prefix++;
+        }
+
+        return prefix;
+    }
+
+    private String writeDamagedJournal(String name, byte[] damagedJournal) throws IOException {
+        String filename = new File(folder.newFolder(name), "catalogue").getPath();
+
+        Files.write(Path.of(filename + JournaledArticleDAO.JOURNAL_FILE_SUFFIX), damagedJournal);
+
+        return filename;
+    }
+
+    private static JournaledArticleDAO open(String filename) {
+        return new JournaledArticleDAO(filename, 1, NO_BACKGROUND_TASK_MILLIS, NO_BACKGROUND_TASK_MILLIS);
+    }
+
+    private static List<String> describe(ArticleDAO articleDAO) {
+        return articleDAO.getArticleList().stream().map(Article::toString).toList();
+    }
+
+    private static Book createBook(int id, String title, int basePrice) {
+        return new Book(id, title, "Publisher", 2000 + id, BigDecimal.valueOf(basePrice), 100 * id);
+    }
+
+    private static DVD createDVD(int id, String title) {
+        return new DVD(id, title, "Studio", 2010 + id, new BigDecimal("19.99"), 90 + id, 12);
+    }
+}